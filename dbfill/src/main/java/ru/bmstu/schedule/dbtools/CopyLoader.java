@@ -0,0 +1,243 @@
+package ru.bmstu.schedule.dbtools;
+
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import ru.bmstu.schedule.csv.CSVPipeline;
+import ru.bmstu.schedule.csv.ImportReport;
+import ru.bmstu.schedule.csv.LecturerEntry;
+import ru.bmstu.schedule.csv.RecordHolder;
+import ru.bmstu.schedule.csv.SpecializationEntry;
+import ru.bmstu.schedule.csv.parser.LecturerParser;
+import ru.bmstu.schedule.csv.parser.SpecializationParser;
+import ru.bmstu.schedule.dao.UnitOfWork;
+import ru.bmstu.schedule.entity.EduDegree;
+import ru.bmstu.schedule.entity.Lecturer;
+import ru.bmstu.schedule.entity.Speciality;
+import ru.bmstu.schedule.entity.Specialization;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
+
+// Fast path for the large references: rows parsed by the usual EntryParsers are streamed with
+// COPY ... FROM STDIN into a temporary staging table, and a few INSERT ... SELECT statements then
+// resolve the foreign keys and merge the rows into the real tables. Rows already in the tables
+// are kept. Everything runs in one transaction, the staging table is dropped on commit. Rows the
+// parsers reject are reported and skipped, as the Hibernate path does.
+public class CopyLoader {
+
+    private static final String LECTURER_STAGE =
+            "CREATE TEMP TABLE lecturer_stage (" +
+                    "  seq         BIGSERIAL," +
+                    "  first_name  TEXT," +
+                    "  middle_name TEXT," +
+                    "  last_name   TEXT," +
+                    "  edu_degree  TEXT" +
+                    ") ON COMMIT DROP";
+
+    private static final String LECTURER_MERGE =
+            "INSERT INTO lecturer (first_name, middle_name, last_name, edu_degree) " +
+                    "SELECT s.first_name, s.middle_name, s.last_name, s.edu_degree " +
+                    "FROM lecturer_stage s " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM lecturer l " +
+                    "                  WHERE l.last_name = s.last_name AND l.first_name = s.first_name " +
+                    "                    AND l.middle_name = s.middle_name) " +
+                    "ORDER BY s.seq";
+
+    private static final String SPECIALIZATION_STAGE =
+            "CREATE TEMP TABLE specialization_stage (" +
+                    "  seq                  BIGSERIAL," +
+                    "  speciality_code      TEXT," +
+                    "  speciality_title     TEXT," +
+                    "  degree_name          TEXT," +
+                    "  degree_study_years   INTEGER," +
+                    "  number_in_speciality INTEGER," +
+                    "  title                TEXT" +
+                    ") ON COMMIT DROP";
+
+    // Degrees and specialities take their attributes from the first row that mentions them
+    private static final String DEGREE_MERGE =
+            "INSERT INTO edu_degree (degree_name, min_number_of_study_years) " +
+                    "SELECT d.degree_name, d.degree_study_years " +
+                    "FROM (SELECT DISTINCT ON (degree_name) seq, degree_name, degree_study_years " +
+                    "      FROM specialization_stage ORDER BY degree_name, seq) d " +
+                    "ORDER BY d.seq " +
+                    "ON CONFLICT (degree_name) DO NOTHING";
+
+    private static final String SPECIALITY_MERGE =
+            "INSERT INTO speciality (code, degree_id, title) " +
+                    "SELECT s.speciality_code, d.degree_id, s.speciality_title " +
+                    "FROM (SELECT DISTINCT ON (speciality_code) seq, speciality_code, speciality_title, degree_name " +
+                    "      FROM specialization_stage ORDER BY speciality_code, seq) s " +
+                    "     JOIN edu_degree d ON d.degree_name = s.degree_name " +
+                    "ORDER BY s.seq " +
+                    "ON CONFLICT (code) DO NOTHING";
+
+    private static final String SPECIALIZATION_MERGE =
+            "INSERT INTO specialization (speciality_id, number_in_speciality, title) " +
+                    "SELECT sp.id, s.number_in_speciality, s.title " +
+                    "FROM specialization_stage s " +
+                    "     JOIN speciality sp ON sp.code = s.speciality_code " +
+                    "ORDER BY s.seq " +
+                    "ON CONFLICT (speciality_id, number_in_speciality) DO NOTHING";
+
+    private CopyLoader() {
+    }
+
+    public static void loadLecturers(SessionFactory sessionFactory, String csvFile) {
+        LecturerParser parser = new LecturerParser();
+        Function<CSVRecord, String> toCopyRow = record -> {
+            LecturerEntry lec = parser.parse(new RecordHolder<>(record));
+            if (lec.getLastName() == null) {
+                throw new IllegalArgumentException("Full name of the lecturer is not specified");
+            }
+
+            return copyRow(lec.getFirstName(), lec.getMiddleName(), lec.getLastName(), lec.getEduDegree());
+        };
+
+        new UnitOfWork(sessionFactory).run(session -> {
+            session.createSQLQuery(LECTURER_STAGE).executeUpdate();
+            ImportReport report = copy(session, csvFile, toCopyRow,
+                    "COPY lecturer_stage (first_name, middle_name, last_name, edu_degree) FROM STDIN");
+
+            int lecturers = session.createSQLQuery(LECTURER_MERGE)
+                    .addSynchronizedEntityClass(Lecturer.class)
+                    .executeUpdate();
+            System.out.printf("[info] %s: %d of %d lecturers added%n", report.getSource(), lecturers, report.getWritten());
+        });
+    }
+
+    public static void loadSpecializations(SessionFactory sessionFactory, String csvFile) {
+        SpecializationParser parser = new SpecializationParser();
+        Function<CSVRecord, String> toCopyRow = record -> {
+            SpecializationEntry spec = parser.parse(new RecordHolder<>(record));
+            if (spec.getSpecialityCode() == null || StringUtils.isEmpty(spec.getDegreeName())
+                    || spec.getDegreeStudyYears() <= 0) {
+                throw new IllegalArgumentException("Specialization code, degree or study years are not valid");
+            }
+
+            return copyRow(
+                    spec.getSpecialityCode(),
+                    spec.getSpecialityName(),
+                    spec.getDegreeName(),
+                    String.valueOf(spec.getDegreeStudyYears()),
+                    String.valueOf(spec.getNumberInSpeciality()),
+                    spec.getSpecializationName()
+            );
+        };
+
+        new UnitOfWork(sessionFactory).run(session -> {
+            session.createSQLQuery(SPECIALIZATION_STAGE).executeUpdate();
+            ImportReport report = copy(session, csvFile, toCopyRow,
+                    "COPY specialization_stage (speciality_code, speciality_title, degree_name, degree_study_years, " +
+                            "number_in_speciality, title) FROM STDIN");
+
+            int degrees = session.createSQLQuery(DEGREE_MERGE)
+                    .addSynchronizedEntityClass(EduDegree.class)
+                    .executeUpdate();
+            int specialities = session.createSQLQuery(SPECIALITY_MERGE)
+                    .addSynchronizedEntityClass(Speciality.class)
+                    .executeUpdate();
+            int specializations = session.createSQLQuery(SPECIALIZATION_MERGE)
+                    .addSynchronizedEntityClass(Specialization.class)
+                    .executeUpdate();
+            System.out.printf("[info] %s: %d of %d specializations added, %d specialities, %d degrees%n",
+                    report.getSource(), specializations, report.getWritten(), specialities, degrees);
+        });
+    }
+
+    // Rows are parsed in parallel and written to the COPY stream in file order as they come
+    private static ImportReport copy(Session session, String csvFile,
+                                     Function<CSVRecord, String> toCopyRow, String copySql) {
+        return session.doReturningWork(connection -> {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            CopyIn copyIn = copyManager.copyIn(copySql);
+            SQLException[] copyFailure = new SQLException[1];
+
+            ImportReport report;
+            try {
+                report = new CSVPipeline<>(toCopyRow).run(csvFile, rows -> {
+                    if (copyFailure[0] == null) {
+                        copyFailure[0] = writeRows(copyIn, rows);
+                    }
+                });
+            } catch (IOException e) {
+                copyIn.cancelCopy();
+                throw new UncheckedIOException(e);
+            }
+
+            if (copyFailure[0] != null) {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                throw copyFailure[0];
+            }
+
+            copyIn.endCopy();
+            report.print();
+            return report;
+        });
+    }
+
+    private static SQLException writeRows(CopyIn copyIn, List<String> rows) {
+        StringBuilder data = new StringBuilder();
+        for (String row : rows) {
+            data.append(row);
+        }
+
+        byte[] bytes = data.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            return null;
+        } catch (SQLException e) {
+            return e;
+        }
+    }
+
+    // Line of the COPY text format: columns separated by tabs, null is \N
+    static String copyRow(String... values) {
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append('\t');
+            }
+
+            String value = values[i];
+            if (value == null) {
+                row.append("\\N");
+                continue;
+            }
+
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\':
+                        row.append("\\\\");
+                        break;
+                    case '\t':
+                        row.append("\\t");
+                        break;
+                    case '\n':
+                        row.append("\\n");
+                        break;
+                    case '\r':
+                        row.append("\\r");
+                        break;
+                    default:
+                        row.append(c);
+                }
+            }
+        }
+
+        return row.append('\n').toString();
+    }
+
+}
@@ -7,6 +7,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.csv.*;
 import ru.bmstu.schedule.csv.LecturerSubjectEntry.ClassKind;
+import ru.bmstu.schedule.csv.header.CSVHeader;
 import ru.bmstu.schedule.csv.header.DepartmentHeader;
 import ru.bmstu.schedule.csv.header.GroupHeader;
 import ru.bmstu.schedule.csv.header.LecturerSubjectsHeader;
@@ -69,7 +70,7 @@ public class DBUtils {
     }
 
     public static void fillClassRooms(SessionFactory sessionFactory, String roomsRef) throws IOException {
-        CSVUtils.fillFromCsv(new ClassroomDao(sessionFactory), roomsRef);
+        CSVUtils.upsertFromCsv(new ClassroomDao(sessionFactory), roomsRef, "roomNumber");
     }
 
 
@@ -83,46 +84,58 @@ public class DBUtils {
         CSVParser records = CSVFormat.EXCEL.withHeader().parse(new FileReader(refFile));
         EntryParser<SpecializationEntry, SpecializationHeader> parser = new SpecializationParser();
 
-        for (CSVRecord record : records) {
-            RecordHolder<SpecializationHeader> holder = new RecordHolder<>(record);
-            SpecializationEntry specEntry = parser.parse(holder);
-
-            String degreeName = specEntry.getDegreeName();
-            Optional<EduDegree> degreeOpt = degreeDao.findByName(degreeName);
-            EduDegree degree;
-
-            String specialityCode = specEntry.getSpecialityCode();
-            Optional<Speciality> specialityOpt = specialityDao.findByCode(specialityCode);
-            Speciality speciality;
-
-            if (!degreeOpt.isPresent()) {
-                degree = new EduDegree();
-                degree.setName(degreeName);
-                degree.setMinNumberOfStudyYears(specEntry.getDegreeStudyYears());
-                Integer id = degreeDao.create(degree);
-                degree.setId(id);
-            } else {
-                degree = degreeOpt.get();
-            }
+        List<SpecializationEntry> entries = parseAll(records, parser);
 
-            if (!specialityOpt.isPresent()) {
-                speciality = new Speciality();
-                speciality.setCode(specialityCode);
-                speciality.setDegree(degree);
-                speciality.setTitle(specEntry.getSpecialityName());
-                Integer id = specialityDao.create(speciality);
-                speciality.setId(id);
-            } else {
-                speciality = specialityOpt.get();
+        UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+        unitOfWork.run(session -> {
+            BatchLoader<String, EduDegree> degrees = new BatchLoader<>(degreeDao::findAllByNames);
+            BatchLoader<String, Speciality> specialities = new BatchLoader<>(specialityDao::findAllByCodes);
+            for (SpecializationEntry specEntry : entries) {
+                degrees.register(specEntry.getDegreeName());
+                specialities.register(specEntry.getSpecialityCode());
             }
 
-            Specialization specialization = new Specialization();
-            specialization.setNumberInSpeciality(specEntry.getNumberInSpeciality());
-            specialization.setTitle(specEntry.getSpecializationName());
-            specialization.setSpeciality(speciality);
+            for (SpecializationEntry specEntry : entries) {
+                String degreeName = specEntry.getDegreeName();
+                Optional<EduDegree> degreeOpt = degrees.load(degreeName);
+                EduDegree degree;
+
+                String specialityCode = specEntry.getSpecialityCode();
+                Optional<Speciality> specialityOpt = specialities.load(specialityCode);
+                Speciality speciality;
+
+                if (!degreeOpt.isPresent()) {
+                    degree = new EduDegree();
+                    degree.setName(degreeName);
+                    degree.setMinNumberOfStudyYears(specEntry.getDegreeStudyYears());
+                    Integer id = degreeDao.create(degree);
+                    degree.setId(id);
+                    degrees.prime(degreeName, degree);
+                } else {
+                    degree = degreeOpt.get();
+                }
+
+                if (!specialityOpt.isPresent()) {
+                    speciality = new Speciality();
+                    speciality.setCode(specialityCode);
+                    speciality.setDegree(degree);
+                    speciality.setTitle(specEntry.getSpecialityName());
+                    Integer id = specialityDao.create(speciality);
+                    speciality.setId(id);
+                    specialities.prime(specialityCode, speciality);
+                } else {
+                    speciality = specialityOpt.get();
+                }
 
-            specializationDao.create(specialization);
-        }
+                Specialization specialization = new Specialization();
+                specialization.setNumberInSpeciality(specEntry.getNumberInSpeciality());
+                specialization.setTitle(specEntry.getSpecializationName());
+                specialization.setSpeciality(speciality);
+
+                specializationDao.create(specialization);
+                unitOfWork.written();
+            }
+        });
 
     }
 
@@ -138,22 +151,29 @@ public class DBUtils {
         CSVParser records = CSVFormat.EXCEL.withHeader().parse(new FileReader(new File(refPath)));
         EntryParser<DepartmentEntry, DepartmentHeader> parser = new DepartmentParser();
 
-        for (CSVRecord record : records) {
-            RecordHolder<DepartmentHeader> holder = new RecordHolder<>(record);
-            DepartmentEntry deptEntry = parser.parse(holder);
-            Department dept = new Department();
-            Optional<Faculty> factOpt = facultyDao.findByCipher(deptEntry.getFacultyCipher());
-            if (!factOpt.isPresent()) {
-                System.out.println("[error] No faculty found with cipher: " + deptEntry.getFacultyCipher());
-                continue;
-            }
+        List<DepartmentEntry> entries = parseAll(records, parser);
 
-            dept.setFaculty(factOpt.get());
-            dept.setNumber(deptEntry.getDepartmentNumber());
-            dept.setTitle(deptEntry.getDepartmentTitle());
+        UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+        unitOfWork.run(session -> {
+            BatchLoader<String, Faculty> faculties = new BatchLoader<>(facultyDao::findAllByCiphers);
+            entries.forEach(deptEntry -> faculties.register(deptEntry.getFacultyCipher()));
 
-            deptDao.create(dept);
-        }
+            for (DepartmentEntry deptEntry : entries) {
+                Department dept = new Department();
+                Optional<Faculty> factOpt = faculties.load(deptEntry.getFacultyCipher());
+                if (!factOpt.isPresent()) {
+                    System.out.println("[error] No faculty found with cipher: " + deptEntry.getFacultyCipher());
+                    continue;
+                }
+
+                dept.setFaculty(factOpt.get());
+                dept.setNumber(deptEntry.getDepartmentNumber());
+                dept.setTitle(deptEntry.getDepartmentTitle());
+
+                deptDao.create(dept);
+                unitOfWork.written();
+            }
+        });
     }
 
     public static void fillGroups(SessionFactory sessionFactory, String refPath) throws IOException {
@@ -170,70 +190,83 @@ public class DBUtils {
         CSVParser records = CSVFormat.EXCEL.withHeader().parse(new FileReader(new File(refPath)));
         EntryParser<GroupEntry, GroupHeader> parser = new GroupParser();
 
-        for (CSVRecord record : records) {
-            RecordHolder<GroupHeader> holder = new RecordHolder<>(record);
-            GroupEntry groupEntry = parser.parse(holder);
+        List<GroupEntry> entries = parseAll(records, parser);
+
+        UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+        unitOfWork.run(session -> {
+            BatchLoader<String, Department> departments = new BatchLoader<>(deptDao::findAllByCiphers);
+            BatchLoader<String, Specialization> specializations = new BatchLoader<>(specDao::findAllByCodes);
+            BatchLoader<Integer, Term> terms = new BatchLoader<>(termDao::findAllByNumbers);
+            for (GroupEntry groupEntry : entries) {
+                departments.register(groupEntry.getDepartmentCipher());
+                specializations.register(groupEntry.getSpecializationCode());
+                terms.register(groupEntry.getTermNumber());
+            }
+
+            for (GroupEntry groupEntry : entries) {
+                Optional<Department> deptOpt = departments.load(groupEntry.getDepartmentCipher());
+                Optional<Specialization> specOpt = specializations.load(groupEntry.getSpecializationCode());
 
-            Optional<Department> deptOpt = deptDao.findByCipher(groupEntry.getDepartmentCipher());
-            Optional<Specialization> specOpt = specDao.findByCode(groupEntry.getSpecializationCode());
+                if (!deptOpt.isPresent() || !specOpt.isPresent()) {
+                    System.out.printf(
+                            "[error] Failed to create department to specialization mapping: department - %s, specialization - %s%n",
+                            groupEntry.getDepartmentCipher(),
+                            groupEntry.getSpecializationCode()
+                    );
+                    continue;
+                }
 
-            if (!deptOpt.isPresent() || !specOpt.isPresent()) {
-                System.out.printf(
-                        "[error] Failed to create department to specialization mapping: department - %s, specialization - %s%n",
+                Optional<DepartmentSpecialization> deptSpecOpt = deptSpecDao.findByDepartmentAndSpecialization(deptOpt.get(), specOpt.get());
+
+                DepartmentSpecialization deptSpec;
+                if (deptSpecOpt.isPresent()) {
+                    deptSpec = deptSpecOpt.get();
+                } else {
+                    deptSpec = new DepartmentSpecialization();
+                    deptSpec.setDepartment(deptOpt.get());
+                    deptSpec.setSpecialization(specOpt.get());
+                    Integer deptSpecId = deptSpecDao.create(deptSpec);
+                    deptSpec.setId(deptSpecId);
+                }
+
+                int enrollmentYear = curYear - groupEntry.getTermNumber() / 2;
+                Optional<Calendar> calendarOpt = calendarDao.findByStartYearAndDepartmentCodeAndSpecCode(
+                        enrollmentYear,
                         groupEntry.getDepartmentCipher(),
                         groupEntry.getSpecializationCode()
                 );
-                continue;
-            }
-
-            Optional<DepartmentSpecialization> deptSpecOpt = deptSpecDao.findByDepartmentAndSpecialization(deptOpt.get(), specOpt.get());
-
-            DepartmentSpecialization deptSpec;
-            if (deptSpecOpt.isPresent()) {
-                deptSpec = deptSpecOpt.get();
-            } else {
-                deptSpec = new DepartmentSpecialization();
-                deptSpec.setDepartment(deptOpt.get());
-                deptSpec.setSpecialization(specOpt.get());
-                Integer deptSpecId = deptSpecDao.create(deptSpec);
-                deptSpec.setId(deptSpecId);
-            }
+                Calendar calendar;
 
-            int enrollmentYear = curYear - groupEntry.getTermNumber() / 2;
-            Optional<Calendar> calendarOpt = calendarDao.findByStartYearAndDepartmentCodeAndSpecCode(
-                    enrollmentYear,
-                    groupEntry.getDepartmentCipher(),
-                    groupEntry.getSpecializationCode()
-            );
-            Calendar calendar;
-
-            if (calendarOpt.isPresent()) {
-                calendar = calendarOpt.get();
-            } else {
-                calendar = new Calendar();
-                calendar.setStartYear(enrollmentYear);
-                calendar.setDepartmentSpecialization(deptSpec);
-                Integer calendarId = calendarDao.create(calendar);
-                calendar.setId(calendarId);
-            }
+                if (calendarOpt.isPresent()) {
+                    calendar = calendarOpt.get();
+                } else {
+                    calendar = new Calendar();
+                    calendar.setStartYear(enrollmentYear);
+                    calendar.setDepartmentSpecialization(deptSpec);
+                    Integer calendarId = calendarDao.create(calendar);
+                    calendar.setId(calendarId);
+                }
 
-            StudyGroup studyGroup = new StudyGroup();
-            Optional<Term> termOpt = termDao.findByNumber(groupEntry.getTermNumber());
-            if (termOpt.isPresent()) {
-                studyGroup.setTerm(termOpt.get());
-            } else {
-                Term term = new Term();
-                term.setNumber(groupEntry.getTermNumber());
-                Integer termId = termDao.create(term);
-                term.setId(termId);
-                studyGroup.setTerm(term);
-            }
+                StudyGroup studyGroup = new StudyGroup();
+                Optional<Term> termOpt = terms.load(groupEntry.getTermNumber());
+                if (termOpt.isPresent()) {
+                    studyGroup.setTerm(termOpt.get());
+                } else {
+                    Term term = new Term();
+                    term.setNumber(groupEntry.getTermNumber());
+                    Integer termId = termDao.create(term);
+                    term.setId(termId);
+                    terms.prime(term.getNumber(), term);
+                    studyGroup.setTerm(term);
+                }
 
-            studyGroup.setNumber(groupEntry.getGroupNumber());
-            studyGroup.setCalendar(calendar);
+                studyGroup.setNumber(groupEntry.getGroupNumber());
+                studyGroup.setCalendar(calendar);
 
-            groupDao.create(studyGroup);
-        }
+                groupDao.create(studyGroup);
+                unitOfWork.written();
+            }
+        });
     }
 
     public static void fillLecturerSubjects(SessionFactory sessionFactory, String refPath) throws IOException {
@@ -249,80 +282,109 @@ public class DBUtils {
         CSVParser records = CSVFormat.EXCEL.withHeader().parse(new FileReader(refFile));
         EntryParser<LecturerSubjectEntry, LecturerSubjectsHeader> parser = new LecturerSubjectsParser();
 
-        for (CSVRecord record : records) {
-            RecordHolder<LecturerSubjectsHeader> holder = new RecordHolder<>(record);
-            LecturerSubjectEntry entry = parser.parse(holder);
-            String lecInitials = entry.getLecturer();
-            String deptCipher = entry.getDepartment();
+        List<LecturerSubjectEntry> entries = parseAll(records, parser);
+
+        // Lecturer subjects are written in bulk at the end, the same triple met twice is written once
+        List<LecturerSubject> lecSubjects = new ArrayList<>();
+        UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+        unitOfWork.run(session -> {
+            BatchLoader<String, List<Lecturer>> lecturers = new BatchLoader<>(lecDao::findAllByInitials);
+            BatchLoader<String, Department> departments = new BatchLoader<>(deptDao::findAllByCiphers);
+            BatchLoader<String, Subject> subjects = new BatchLoader<>(subjDao::findAllByNames);
+            for (LecturerSubjectEntry entry : entries) {
+                lecturers.register(entry.getLecturer());
+                departments.register(entry.getDepartment());
+                for (Map.Entry<ClassKind, String> subjEntry : entry.getSubjectsOfKind()) {
+                    subjects.register(subjEntry.getValue());
+                }
+            }
 
-            List<Lecturer> foundLecturers = lecDao.findByInitials(lecInitials);
-            Optional<Department> deptOpt = deptDao.findByCipher(deptCipher);
+            for (LecturerSubjectEntry entry : entries) {
+                String lecInitials = entry.getLecturer();
+                String deptCipher = entry.getDepartment();
 
-            if (foundLecturers.isEmpty() || !deptOpt.isPresent()) {
-                System.out.printf("[error] Lecturer or department not found: lecturer - %s, department - %s.%n", lecInitials, deptCipher);
-                continue;
-            }
+                List<Lecturer> foundLecturers = lecturers.load(lecInitials).orElse(Collections.emptyList());
+                Optional<Department> deptOpt = departments.load(deptCipher);
 
-            if (foundLecturers.size() > 1) {
-                System.out.println("[error] Repeated lecturer initials: " + foundLecturers);
-                continue;
-            }
+                if (foundLecturers.isEmpty() || !deptOpt.isPresent()) {
+                    System.out.printf("[error] Lecturer or department not found: lecturer - %s, department - %s.%n", lecInitials, deptCipher);
+                    continue;
+                }
 
-            for (Map.Entry<LecturerSubjectEntry.ClassKind, String> subjEntry : entry.getSubjectsOfKind()) {
-                Optional<Subject> subjOpt = subjDao.findByName(subjEntry.getValue());
-                if (!subjOpt.isPresent()) {
-                    System.out.println("[error] No subject found with name: " + subjEntry.getValue());
+                if (foundLecturers.size() > 1) {
+                    System.out.println("[error] Repeated lecturer initials: " + foundLecturers);
                     continue;
                 }
-                Optional<DepartmentSubject> deptSubjOpt = deptSubjDao.findByDepartmentAndSubject(deptOpt.get(), subjOpt.get());
 
-                DepartmentSubject deptSubj;
+                for (Map.Entry<LecturerSubjectEntry.ClassKind, String> subjEntry : entry.getSubjectsOfKind()) {
+                    Optional<Subject> subjOpt = subjects.load(subjEntry.getValue());
+                    if (!subjOpt.isPresent()) {
+                        System.out.println("[error] No subject found with name: " + subjEntry.getValue());
+                        continue;
+                    }
+                    Optional<DepartmentSubject> deptSubjOpt = deptSubjDao.findByDepartmentAndSubject(deptOpt.get(), subjOpt.get());
+
+                    DepartmentSubject deptSubj;
+
+                    if (!deptSubjOpt.isPresent()) {
+                        deptSubj = new DepartmentSubject();
+                        deptSubj.setDepartment(deptOpt.get());
+                        deptSubj.setSubject(subjOpt.get());
+                        Integer deptSubjId = deptSubjDao.create(deptSubj);
+                        deptSubj.setId(deptSubjId);
+                    } else {
+                        deptSubj = deptSubjOpt.get();
+                    }
 
-                if (!deptSubjOpt.isPresent()) {
-                    deptSubj = new DepartmentSubject();
-                    deptSubj.setDepartment(deptOpt.get());
-                    deptSubj.setSubject(subjOpt.get());
-                    Integer deptSubjId = deptSubjDao.create(deptSubj);
-                    deptSubj.setId(deptSubjId);
-                } else {
-                    deptSubj = deptSubjOpt.get();
-                }
+                    List<LecturerSubject> lecSubjsList = lecSubjDao.findByLecturerAndDepartmentSubject(foundLecturers.get(0), deptSubj);
+                    Set<String> classTypes = lecSubjsList
+                            .stream()
+                            .map(lecSubj -> lecSubj.getClassType().getName().substring(3))
+                            .collect(Collectors.toSet());
+
+                    Consumer<ClassKind> createLecSubjByKind = (kind) -> {
+                        String shortName = ClassKind.shortNameByKind(kind);
+                        if (!classTypes.contains(shortName)) {
+                            Optional<ClassType> ctOpt = classTypeDao.findByShortName(shortName);
+                            if (!ctOpt.isPresent()) {
+                                System.out.println("[error] No class type with such short name found: " + shortName);
+                                return;
+                            }
 
-                List<LecturerSubject> lecSubjsList = lecSubjDao.findByLecturerAndDepartmentSubject(foundLecturers.get(0), deptSubj);
-                Set<String> classTypes = lecSubjsList
-                        .stream()
-                        .map(lecSubj -> lecSubj.getClassType().getName().substring(3))
-                        .collect(Collectors.toSet());
-
-                Consumer<ClassKind> createLecSubjByKind = (kind) -> {
-                    String shortName = ClassKind.shortNameByKind(kind);
-                    if (!classTypes.contains(shortName)) {
-                        Optional<ClassType> ctOpt = classTypeDao.findByShortName(shortName);
-                        if (!ctOpt.isPresent()) {
-                            System.out.println("[error] No class type with such short name found: " + shortName);
-                            return;
+                            LecturerSubject lecSubj = new LecturerSubject();
+                            lecSubj.setClassType(ctOpt.get());
+                            lecSubj.setLecturer(foundLecturers.get(0));
+                            lecSubj.setDepartmentSubject(deptSubj);
+                            lecSubjects.add(lecSubj);
                         }
+                    };
 
-                        LecturerSubject lecSubj = new LecturerSubject();
-                        lecSubj.setClassType(ctOpt.get());
-                        lecSubj.setLecturer(foundLecturers.get(0));
-                        lecSubj.setDepartmentSubject(deptSubj);
-                        Integer lecSubjId = lecSubjDao.create(lecSubj);
-                        lecSubj.setId(lecSubjId);
-                    }
-                };
-
-                if (subjEntry.getKey() == LecturerSubjectEntry.ClassKind.any) {
-                    for (ClassKind kind : ClassKind.values()) {
-                        if (kind != ClassKind.any) {
-                            createLecSubjByKind.accept(kind);
+                    if (subjEntry.getKey() == LecturerSubjectEntry.ClassKind.any) {
+                        for (ClassKind kind : ClassKind.values()) {
+                            if (kind != ClassKind.any) {
+                                createLecSubjByKind.accept(kind);
+                            }
                         }
+                    } else {
+                        createLecSubjByKind.accept(subjEntry.getKey());
                     }
-                } else {
-                    createLecSubjByKind.accept(subjEntry.getKey());
                 }
+
+                unitOfWork.written();
             }
 
+            lecSubjDao.upsertAll(lecSubjects, "lecturer", "departmentSubject", "classType");
+        });
+    }
+
+    // Entries are read before the lookups, so that their keys are fetched in batches
+    private static <T, H extends CSVHeader> List<T> parseAll(CSVParser records, EntryParser<T, H> parser) {
+        List<T> entries = new ArrayList<>();
+        for (CSVRecord record : records) {
+            entries.add(parser.parse(new RecordHolder<>(record)));
         }
+
+        return entries;
     }
-}
\ No newline at end of file
+
+}
@@ -5,8 +5,10 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import ru.bmstu.schedule.csv.CSVUtils;
+import ru.bmstu.schedule.dao.CacheStatistics;
 import ru.bmstu.schedule.dao.ClassTimeDao;
 import ru.bmstu.schedule.dao.ClassTypeDao;
+import ru.bmstu.schedule.dao.DaoMetrics;
 import ru.bmstu.schedule.dao.WeekDao;
 import ru.bmstu.schedule.entity.*;
 import ru.bmstu.schedule.html.parser.ScheduleParser;
@@ -24,15 +26,29 @@ import java.util.Properties;
 public class FillSchedule {
 
     private static final String DEFAULT_CONFIG_FILE = "config.properties";
-    private static Properties props = null;
-    private static String confFile;
-    private static SessionFactory sessionFactory;
+
+    // Large references are loaded with COPY unless -Ddbfill.copy=false (see CopyLoader)
+    private static final boolean USE_COPY = Boolean.parseBoolean(System.getProperty("dbfill.copy", "true"));
+
+    private final SessionFactory sessionFactory;
+    private final String confFile;
+    private Properties props;
+
+    public FillSchedule(SessionFactory sessionFactory, String confFile) {
+        this.sessionFactory = sessionFactory;
+        this.confFile = confFile;
+    }
 
     public static void main(String[] args) {
+        SessionFactory sessionFactory = new Configuration().configure().buildSessionFactory();
         try {
-            init(args);
-            clearData();
-            fillData();
+            new FillSchedule(sessionFactory, confFileOf(args)).run();
+            System.out.println("[info] Cache statistics:");
+            System.out.print(CacheStatistics.report(sessionFactory));
+            if (DaoMetrics.isEnabled()) {
+                System.out.println("[info] DAO statistics:");
+                System.out.print(DaoMetrics.report(sessionFactory));
+            }
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -40,24 +56,29 @@ public class FillSchedule {
         }
     }
 
-    private static void init(String[] args) throws IOException, ConfigurationException {
-        sessionFactory = new Configuration().configure().buildSessionFactory();
+    // Replaces the contents of the database with the references listed in the config file
+    public void run() throws IOException, ConfigurationException, ClassNotFoundException {
+        props = loadConf(confFile);
+        PropertyKey.validateProperties(props);
+
+        clearData();
+        fillData();
+    }
 
-        if (args.length == 0) {
-            URL defaultConfUrl = FillSchedule.class.getClassLoader().getResource(DEFAULT_CONFIG_FILE);
-            if (defaultConfUrl == null) {
-                throw new RuntimeException("Default config resource not found: " + DEFAULT_CONFIG_FILE);
-            }
-            confFile = defaultConfUrl.getFile();
-        } else {
-            confFile = args[0];
+    private static String confFileOf(String[] args) {
+        if (args.length > 0) {
+            return args[0];
         }
 
-        props = loadConf(confFile);
-        PropertyKey.validateProperties(props);
+        URL defaultConfUrl = FillSchedule.class.getClassLoader().getResource(DEFAULT_CONFIG_FILE);
+        if (defaultConfUrl == null) {
+            throw new RuntimeException("Default config resource not found: " + DEFAULT_CONFIG_FILE);
+        }
+
+        return defaultConfUrl.getFile();
     }
 
-    private static void clearData() throws ClassNotFoundException {
+    private void clearData() throws ClassNotFoundException {
         removeEntities(
                 sessionFactory,
                 Classroom.class,
@@ -67,6 +88,7 @@ public class FillSchedule {
                 ScheduleItemParity.class,
                 ScheduleItem.class,
                 ScheduleDay.class,
+                PublishedSchedule.class,
                 StudyGroup.class,
                 Calendar.class,
                 LecturerSubject.class,
@@ -87,12 +109,16 @@ public class FillSchedule {
 
     }
 
-    private static void fillData() throws IOException {
+    private void fillData() throws IOException {
         // Fill common entities from csv-references & https://students.bmstu.ru/schedule/:
-        CSVUtils.fillFromCsv(new ClassTypeDao(sessionFactory), pathByKey(PropertyKey.REF_CLASS_TYPE));
+        CSVUtils.upsertFromCsv(new ClassTypeDao(sessionFactory), pathByKey(PropertyKey.REF_CLASS_TYPE), "name");
         CSVUtils.fillFromCsv(new WeekDao(sessionFactory), pathByKey(PropertyKey.REF_WEEKS));
         CSVUtils.fillFromCsv(new ClassTimeDao(sessionFactory), pathByKey(PropertyKey.REF_CLASS_TIME));
-        DBUtils.fillSpecializationsAndDegrees(sessionFactory, pathByKey(PropertyKey.REF_SPECS));
+        if (USE_COPY) {
+            CopyLoader.loadSpecializations(sessionFactory, pathByKey(PropertyKey.REF_SPECS));
+        } else {
+            DBUtils.fillSpecializationsAndDegrees(sessionFactory, pathByKey(PropertyKey.REF_SPECS));
+        }
         DBUtils.fillFaculties(sessionFactory, pathByKey(PropertyKey.REF_FACULTIES));
         DBUtils.fillDepartments(sessionFactory, pathByKey(PropertyKey.REF_DEPARTMENTS));
         DBUtils.fillClassRooms(sessionFactory, pathByKey(PropertyKey.REF_ROOMS));
@@ -102,40 +128,44 @@ public class FillSchedule {
         DBUtils.fillCalendars(sessionFactory, pathByKey(PropertyKey.REF_FOLDER_CALENDAR));
 
         // Fill lecturers after calendar filling, because in other case we haven't subjects
-        CSVUtils.fillLecturers(pathByKey(PropertyKey.REF_LECTURERS), sessionFactory);
+        if (USE_COPY) {
+            CopyLoader.loadLecturers(sessionFactory, pathByKey(PropertyKey.REF_LECTURERS));
+        } else {
+            CSVUtils.fillLecturers(pathByKey(PropertyKey.REF_LECTURERS), sessionFactory);
+        }
 
         DBUtils.fillLecturerSubjects(sessionFactory, pathByKey(PropertyKey.REF_SUBJECTS));
     }
 
     private static void removeEntities(SessionFactory sessionFactory, Class<?>... classes) {
-        Session session = sessionFactory.openSession();
-
-        session.beginTransaction();
-
-        for (Class<?> clazz : classes) {
-            try {
-                String queryStr = "delete " + clazz.getName();
-                Query query = session.createQuery(queryStr);
-                query.executeUpdate();
-            } catch (Exception e) {
-                System.out.println("[error] Unable to remove entities of type: " + clazz.getName());
-                e.printStackTrace();
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+
+            for (Class<?> clazz : classes) {
+                try {
+                    String queryStr = "delete " + clazz.getName();
+                    Query query = session.createQuery(queryStr);
+                    query.executeUpdate();
+                } catch (Exception e) {
+                    System.out.println("[error] Unable to remove entities of type: " + clazz.getName());
+                    e.printStackTrace();
+                }
             }
-        }
-
 
-        session.getTransaction().commit();
+            session.getTransaction().commit();
+        }
     }
 
     private static Properties loadConf(String confFile) throws IOException {
         Properties props = new Properties();
-        InputStream input = new FileInputStream(new File(confFile));
-        props.load(input);
+        try (InputStream input = new FileInputStream(new File(confFile))) {
+            props.load(input);
+        }
 
         return props;
     }
 
-    private static String pathByKey(String key) {
+    private String pathByKey(String key) {
         return Paths.get(confFile).getParent().toString() + props.getProperty(key);
     }
 
@@ -1,6 +1,7 @@
 package ru.bmstu.schedule.pdfgen;
 
-import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
 import com.itextpdf.kernel.font.PdfFontFactory;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
@@ -11,15 +12,16 @@ import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.property.HorizontalAlignment;
 import com.itextpdf.layout.property.TextAlignment;
-import ru.bmstu.schedule.entity.*;
+import ru.bmstu.schedule.dto.TimetableRow;
+import ru.bmstu.schedule.entity.Calendar;
+import ru.bmstu.schedule.entity.ClassTime;
+import ru.bmstu.schedule.entity.EduDegree;
+import ru.bmstu.schedule.entity.StudyGroup;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 
 public class PDFUtils {
 
@@ -30,24 +32,21 @@ public class PDFUtils {
     private static final float TABLE_MARGIN_BOTTOM = 10;
     private static final int DAYS_PER_PAGE = 3;
     private static final int NUMBER_OF_ITEMS = 7;
-    private static PdfFont font;
-
-    static {
-        try {
-            font = PdfFontFactory.createFont(FREE_SANS_FONT_PATH, "Cp1251", true);
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.exit(-1);
-        }
-    }
+    private static final String FONT_ENCODING = "Cp1251";
 
+    // Parses the font on the first call and returns the shared program afterwards.
+    // Long-running callers call it at startup instead of paying for it on the first export.
+    public static FontProgram preloadFont() {
+        return FontHolder.FONT_PROGRAM;
+    }
 
-    public static void exportToPdf(List<ClassTime> classTimes, StudyGroup group, String filePath) throws FileNotFoundException {
+    public static void exportToPdf(List<ClassTime> classTimes, StudyGroup group, List<TimetableRow> timetable, String filePath) throws FileNotFoundException {
         File outFile = new File(filePath);
 
         System.out.println("directory exists");
         PdfDocument pdfDoc = new PdfDocument(new PdfWriter(outFile));
         Document doc = new Document(pdfDoc);
+        doc.setFont(PdfFontFactory.createFont(preloadFont(), FONT_ENCODING, true));
         doc.setTextAlignment(TextAlignment.CENTER);
 
         String docTitle = String.format("Расписание %s", cipherOf(group));
@@ -55,20 +54,17 @@ public class PDFUtils {
 
         int noOfWeak = 0;
 
-        List<ScheduleDay> dayList = new ArrayList<>(group.getScheduleDays());
+        Map<Integer, List<TimetableRow>> rowsByDay = new LinkedHashMap<>();
+        for (TimetableRow row : timetable) {
+            rowsByDay.computeIfAbsent(row.getDayOfWeekId(), id -> new ArrayList<>()).add(row);
+        }
+        List<List<TimetableRow>> dayList = new ArrayList<>(rowsByDay.values());
 
         final List<String> WEEK_ORDER = Arrays.asList("ПН", "ВТ", "СР", "ЧТ", "ПТ", "СБ");
 
-        dayList.sort((d1, d2) -> {
-            int d1Idx = WEEK_ORDER.indexOf(d1.getDayOfWeek().getShortName().trim());
-            int d2Idx = WEEK_ORDER.indexOf(d2.getDayOfWeek().getShortName().trim());
-
-            return d1Idx - d2Idx;
-        });
-
-        System.out.println(dayList);
+        dayList.sort(Comparator.comparingInt(rows -> WEEK_ORDER.indexOf(rows.get(0).getDayShortName())));
 
-        for (ScheduleDay day : dayList) {
+        for (List<TimetableRow> day : dayList) {
             if (noOfWeak == DAYS_PER_PAGE)
                 doc.add(new AreaBreak());
             appendScheduleDay(classTimes, doc, day);
@@ -79,7 +75,7 @@ public class PDFUtils {
 
     }
 
-    private static void appendScheduleDay(List<ClassTime> classTimes, Document doc, ScheduleDay scheduleDay) {
+    private static void appendScheduleDay(List<ClassTime> classTimes, Document doc, List<TimetableRow> dayRows) {
         Table table = new Table(TABLE_COLUMN_WIDTHS);
         table.setWidth(TABLE_WIDTH);
         table.setHorizontalAlignment(HorizontalAlignment.CENTER);
@@ -93,8 +89,15 @@ public class PDFUtils {
 
         String parityType;
 
-        List<ScheduleItem> items = new ArrayList<>(scheduleDay.getScheduleItems());
-        items.sort(Comparator.comparing(c -> c.getClassTime().getStartsAt()));
+        // Rows of one class time make up one schedule item
+        Map<Integer, List<TimetableRow>> rowsByTime = new LinkedHashMap<>();
+        for (TimetableRow row : dayRows) {
+            if (row.getClassTimeId() != null) {
+                rowsByTime.computeIfAbsent(row.getClassTimeId(), id -> new ArrayList<>()).add(row);
+            }
+        }
+        List<List<TimetableRow>> items = new ArrayList<>(rowsByTime.values());
+        items.sort(Comparator.comparing(rows -> rows.get(0).getStartsAt()));
 
         for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
             ClassTime ct = classTimes.get(i);
@@ -103,25 +106,16 @@ public class PDFUtils {
 
             table.addCell(cellParagraph(ct.toString()));
             if (i < items.size()) {
-                ScheduleItem item = items.get(i);
-
-                List<ScheduleItemParity> parities = new ArrayList<>(item.getScheduleItemParities());
-                parities.sort((p1, p2) -> {
-                    if (p1.getDayParity().equals("ЧС") && p2.getDayParity().equals("ЗН"))
-                        return 1;
-                    else if (p1.getDayParity().equals("ЗН") && p2.getDayParity().equals("ЧС"))
-                        return -1;
-
-                    return 0;
-                });
-
-                System.out.println(item);
+                List<TimetableRow> parities = new ArrayList<>();
+                for (TimetableRow row : items.get(i)) {
+                    if (row.hasClass()) {
+                        parities.add(row);
+                    }
+                }
 
                 if (parities.size() == 1) {
-                    ScheduleItemParity parity = parities.get(0);
-                    System.out.println("\t" + parity.toString());
-
-                    parityType = parity.getDayParity().trim();
+                    TimetableRow parity = parities.get(0);
+                    parityType = parity.getDayParity();
 
                     if (parityType.equals("ЧС/ЗН")) {
                         table.addCell(mergedCell(1, 2, readableItemParity(parity)));
@@ -134,15 +128,12 @@ public class PDFUtils {
                     }
                 } else if (parities.size() == 2) {
 
-                    ScheduleItemParity parity1 = parities.get(0), parity2 = parities.get(1);
+                    TimetableRow parity1 = parities.get(0), parity2 = parities.get(1);
 
-                    System.out.println("\t" + parity1.toString());
-                    System.out.println("\t" + parity2.toString());
-
-                    if (parity1.getDayParity().trim().equals("ЧС")) {
+                    if (parity1.getDayParity().equals("ЧС")) {
                         table.addCell(cellParagraph(readableItemParity(parity1)));
                         table.addCell(cellParagraph(readableItemParity(parity2)));
-                    } else if (parity2.getDayParity().trim().equals("ЧС")) {
+                    } else if (parity2.getDayParity().equals("ЧС")) {
                         table.addCell(cellParagraph(readableItemParity(parity2)));
                         table.addCell(cellParagraph(readableItemParity(parity1)));
                     }
@@ -151,7 +142,6 @@ public class PDFUtils {
                 }
 
                 table.startNewRow();
-                System.out.println();
             } else {
                 table.addCell(mergedCell(1, 2, ""));
                 if (i < NUMBER_OF_ITEMS - 1) {
@@ -160,37 +150,30 @@ public class PDFUtils {
             }
         }
 
-        doc.add(dayHeaderParagraph(scheduleDay.getDayOfWeek().getName()));
+        doc.add(dayHeaderParagraph(dayRows.get(0).getDayName()));
         doc.add(table);
 
     }
 
-    private static String readableItemParity(ScheduleItemParity itemParity) {
+    private static String readableItemParity(TimetableRow row) {
         StringBuilder builder = new StringBuilder();
-        ClassType ct = itemParity.getClassType();
-        Classroom cr = itemParity.getClassroom();
-        LecturerSubject lecturerSubject = itemParity.getLecturerSubject();
-
-        Subject subj = lecturerSubject.getDepartmentSubject().getSubject();
-        Lecturer lec = lecturerSubject.getLecturer();
 
-        if (ct != null) {
+        if (row.getClassTypeName() != null) {
             builder.append("(")
-                    .append(ct.getName(), 0, 3)
+                    .append(row.getClassTypeName(), 0, 3)
                     .append(")  ");
         }
-        if (subj != null) {
-            builder.append(subj.getName())
+        if (row.getSubjectName() != null) {
+            builder.append(row.getSubjectName())
                     .append("  ");
         }
 
-        if (cr != null) {
-            builder.append(cr.getRoomNumber())
+        if (row.getRoomNumber() != null) {
+            builder.append(row.getRoomNumber())
                     .append("  ");
         }
 
-
-        builder.append(lec.getLastName().equals("[UNKNOWN]") ? "" : lec.getInitials());
+        builder.append(row.getLecturerInitials());
 
         return builder.toString();
     }
@@ -214,26 +197,23 @@ public class PDFUtils {
 
     private static Paragraph docHeaderParagraph(String text) {
         return new Paragraph(text)
-                .setFont(font)
                 .setFontSize(22)
                 .setBold()
                 .setMarginBottom(15);
     }
 
     private static Paragraph cellHeaderParagraph(String text) {
-        return new Paragraph(text).setFont(font).setItalic();
+        return new Paragraph(text).setItalic();
     }
 
     private static Paragraph dayHeaderParagraph(String text) {
         return new Paragraph(text)
                 .setFontSize(18)
-                .setFont(font)
                 .setBold();
     }
 
     private static Paragraph cellParagraph(String text) {
         return new Paragraph(text)
-                .setFont(font)
                 .setFontSize(8)
                 .setTextAlignment(TextAlignment.CENTER);
     }
@@ -246,4 +226,17 @@ public class PDFUtils {
         return new Paragraph("");
     }
 
+    // A PdfFont belongs to the document it was used in, so only the parsed font program is shared
+    private static final class FontHolder {
+        private static final FontProgram FONT_PROGRAM = loadFont();
+
+        private static FontProgram loadFont() {
+            try {
+                return FontProgramFactory.createFont(FREE_SANS_FONT_PATH);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to load font: " + FREE_SANS_FONT_PATH, e);
+            }
+        }
+    }
+
 }
@@ -4,6 +4,7 @@ import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import ru.bmstu.schedule.dao.ClassTimeDao;
 import ru.bmstu.schedule.dao.StudyGroupDao;
+import ru.bmstu.schedule.dto.TimetableRow;
 import ru.bmstu.schedule.entity.ClassTime;
 import ru.bmstu.schedule.entity.StudyGroup;
 
@@ -22,37 +23,40 @@ public class PdfPrinter {
             return;
         }
 
+        String outDir = args[0];
+        String groupCipher = args[1];
+
         try (SessionFactory sessionFactory = new Configuration().configure().buildSessionFactory()) {
-            StudyGroupDao groupDao = new StudyGroupDao(sessionFactory);
-            ClassTimeDao ctDao = new ClassTimeDao(sessionFactory);
-            List<ClassTime> classTimes = ctDao.findAll();
-
-            String outDir = args[0];
-            String groupCipher = args[1];
-
-            if(!groupCipher.matches(GROUP_RE)) {
-                System.err.println("Невалидное значение группы: " + groupCipher);
-                return;
-            }
-
-            Optional<StudyGroup> groupOpt = groupDao.findByCipher(groupCipher);
-
-            if (!groupOpt.isPresent()) {
-                System.err.println("Группа с таким шифром не найдена в базе: " + groupCipher);
-                return;
-            }
-
-            StudyGroup group = groupOpt.get();
-            try {
-
-                String outFile = Paths.get(outDir, String.format("%s.pdf", groupCipher)).toString();
-                PDFUtils.exportToPdf(classTimes, group, outFile);
-                System.out.printf("PDF-документ с раписаниием для группы '%s' успешно сгенерирован: %s%n", groupCipher, outFile);
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-                System.err.println("Не удалось открыть указанную директорию: " + outDir);
-            }
+            String outFile = print(sessionFactory, outDir, groupCipher);
+            System.out.printf("PDF-документ с раписаниием для группы '%s' успешно сгенерирован: %s%n", groupCipher, outFile);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+            System.err.println("Не удалось открыть указанную директорию: " + outDir);
+        }
+    }
+
+    // Renders the published timetable of the group into <outDir>/<groupCipher>.pdf, returns the path of the file
+    public static String print(SessionFactory sessionFactory, String outDir, String groupCipher)
+            throws IllegalArgumentException, FileNotFoundException {
+        if(!groupCipher.matches(GROUP_RE)) {
+            throw new IllegalArgumentException("Невалидное значение группы: " + groupCipher);
         }
+
+        StudyGroupDao groupDao = new StudyGroupDao(sessionFactory);
+        Optional<StudyGroup> groupOpt = groupDao.findByCipher(groupCipher);
+        if (!groupOpt.isPresent()) {
+            throw new IllegalArgumentException("Группа с таким шифром не найдена в базе: " + groupCipher);
+        }
+
+        List<ClassTime> classTimes = new ClassTimeDao(sessionFactory).findAll();
+        StudyGroup group = groupOpt.get();
+        List<TimetableRow> timetable = groupDao.findTimetable(group.getId());
+
+        String outFile = Paths.get(outDir, String.format("%s.pdf", groupCipher)).toString();
+        PDFUtils.exportToPdf(classTimes, group, timetable, outFile);
+        return outFile;
     }
 
 }
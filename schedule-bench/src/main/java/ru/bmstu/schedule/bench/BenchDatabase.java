@@ -0,0 +1,96 @@
+package ru.bmstu.schedule.bench;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// PostgreSQL the benchmarks run against: an embedded server started for the run, or an empty database of
+// a local server given with -Dschedule.bench.url (and -Dschedule.bench.user, -Dschedule.bench.password).
+public final class BenchDatabase implements AutoCloseable {
+
+    private static final String SCHEMA_RESOURCE = "/create_tables.sql";
+
+    private final EmbeddedPostgres embedded;
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private BenchDatabase(EmbeddedPostgres embedded, String url, String user, String password) {
+        this.embedded = embedded;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    public static BenchDatabase start() throws IOException {
+        String url = System.getProperty("schedule.bench.url");
+        if (url != null) {
+            return new BenchDatabase(null, url,
+                    System.getProperty("schedule.bench.user", "admin"),
+                    System.getProperty("schedule.bench.password", "admin"));
+        }
+
+        EmbeddedPostgres embedded = EmbeddedPostgres.builder().start();
+        return new BenchDatabase(embedded, embedded.getJdbcUrl("postgres", "postgres"), "postgres", "postgres");
+    }
+
+    public Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    // Tables, views and triggers of create_tables.sql without its CREATE DATABASE and \connect header.
+    // Fails on a database that already has them, an existing database is never cleared.
+    public void createSchema() throws IOException, SQLException {
+        String script = readSchema();
+        int connect = script.indexOf("\\connect");
+        if (connect >= 0) {
+            script = script.substring(script.indexOf('\n', connect) + 1);
+        }
+
+        try (Connection connection = connect(); Statement st = connection.createStatement()) {
+            st.execute(script);
+        }
+    }
+
+    // Hibernate configuration of the application pointed to this database
+    public SessionFactory buildSessionFactory() {
+        return new Configuration().configure()
+                .setProperty("hibernate.connection.url", url)
+                .setProperty("hibernate.connection.username", user)
+                .setProperty("hibernate.connection.password", password)
+                .buildSessionFactory();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+
+    private static String readSchema() throws IOException {
+        try (InputStream in = BenchDatabase.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Schema not found: " + SCHEMA_RESOURCE);
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
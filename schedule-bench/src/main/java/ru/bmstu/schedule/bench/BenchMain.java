@@ -0,0 +1,45 @@
+package ru.bmstu.schedule.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// JMH runner taking the usual JMH options. Unless -rff is given, results are kept as JSON in the
+// directory of -Dschedule.bench.results (./results by default), one file per run, to be compared
+// between commits.
+public class BenchMain {
+
+    public static void main(String[] args) throws RunnerException {
+        CommandLineOptions cmd;
+        try {
+            cmd = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("[error] " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResult().hasValue()) {
+            File dir = new File(System.getProperty("schedule.bench.results", "results"));
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                System.err.println("[error] Unable to create " + dir);
+                System.exit(1);
+            }
+
+            String name = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json";
+            options.result(new File(dir, name).getPath()).resultFormat(ResultFormatType.JSON);
+        }
+
+        new Runner(options.build()).run();
+    }
+
+}
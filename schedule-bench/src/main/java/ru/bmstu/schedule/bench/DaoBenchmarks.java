@@ -0,0 +1,149 @@
+package ru.bmstu.schedule.bench;
+
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.bmstu.schedule.dao.CalendarDao;
+import ru.bmstu.schedule.dao.ClassroomDao;
+import ru.bmstu.schedule.dao.DepartmentDao;
+import ru.bmstu.schedule.dao.StudyGroupDao;
+import ru.bmstu.schedule.entity.Classroom;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The queries the tools run most: cipher lookups of the parsers, calendars and hours read by the
+// generator, timetables read by the exporters and bulk inserts of dbfill. Every trial seeds a new
+// database of the scale given by the parameters (-p faculties=4 -p groups=20 on the command line).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DaoBenchmarks {
+
+    private static final int INSERTED_ROOMS = 50;
+
+    @Param("2")
+    public int faculties;
+
+    @Param("4")
+    public int departments;
+
+    @Param("8")
+    public int groups;
+
+    @Param("4")
+    public int weeks;
+
+    private BenchDatabase database;
+    private SessionFactory sessionFactory;
+
+    private DepartmentDao departmentDao;
+    private StudyGroupDao studyGroupDao;
+    private CalendarDao calendarDao;
+    private ClassroomDao classroomDao;
+
+    private List<String> departmentCiphers;
+    private List<String> facultyCiphers;
+    private List<String> groupCiphers;
+    private List<Integer> groupIds;
+    private List<int[]> calendarTerms;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchDatabase.start();
+        database.createSchema();
+        try (Connection connection = database.connect()) {
+            new SyntheticData(faculties, departments, groups, weeks).seed(connection);
+
+            departmentCiphers = SyntheticData.departmentCiphers(connection);
+            facultyCiphers = SyntheticData.facultyCiphers(connection);
+            groupCiphers = SyntheticData.groupCiphers(connection);
+            groupIds = SyntheticData.groupIds(connection);
+            calendarTerms = SyntheticData.calendarTerms(connection);
+        }
+
+        sessionFactory = database.buildSessionFactory();
+        departmentDao = new DepartmentDao(sessionFactory);
+        studyGroupDao = new StudyGroupDao(sessionFactory);
+        calendarDao = new CalendarDao(sessionFactory);
+        classroomDao = new ClassroomDao(sessionFactory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+        }
+        database.close();
+    }
+
+    @Benchmark
+    public Object departmentByCipher() {
+        return departmentDao.findByCipher(nextOf(departmentCiphers));
+    }
+
+    @Benchmark
+    public Object groupByCipher() {
+        return studyGroupDao.findByCipher(nextOf(groupCiphers));
+    }
+
+    @Benchmark
+    public Object calendarsOfFaculty() {
+        return calendarDao.findAllByFacultyOrDepartmentCipher(nextOf(facultyCiphers));
+    }
+
+    @Benchmark
+    public Object calendarSubjectHours() {
+        int[] calendarTerm = nextOf(calendarTerms);
+        return calendarDao.findSubjectHours(calendarTerm[0], calendarTerm[1]);
+    }
+
+    @Benchmark
+    public Object groupTimetable() {
+        return studyGroupDao.findTimetable(nextOf(groupIds));
+    }
+
+    @Benchmark
+    public Object semesterTimetables() {
+        return studyGroupDao.findAllTimetables(SyntheticData.SEMESTER);
+    }
+
+    // Rooms are removed again so that every invocation inserts into a table of the same size
+    @Benchmark
+    public void bulkInsertRooms(Blackhole blackhole) {
+        List<Classroom> rooms = new ArrayList<>(INSERTED_ROOMS);
+        for (int i = 1; i <= INSERTED_ROOMS; i++) {
+            Classroom room = new Classroom();
+            room.setRoomNumber("Б" + i);
+            room.setCapacity(30);
+            rooms.add(room);
+        }
+
+        List<Integer> ids = classroomDao.createAll(rooms);
+        blackhole.consume(ids);
+        classroomDao.deleteAllByIds(ids);
+    }
+
+    private <T> T nextOf(List<T> keys) {
+        return keys.get(Math.floorMod(next++, keys.size()));
+    }
+
+}
@@ -0,0 +1,234 @@
+package ru.bmstu.schedule.bench;
+
+import ru.bmstu.schedule.entity.StudyGroup;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Generated university of the given scale: faculties x departments per faculty x groups per department,
+// each group having a timetable regenerated every week for the given number of weeks, the last one published.
+// A department has one specialization, 8 subjects taught by 6 lecturers and calendars for terms 1, 3, 5 and 7,
+// so that all the groups study in the autumn semester of YEAR. Rows are generated by the database itself.
+public final class SyntheticData {
+
+    public static final int YEAR = 2024;
+    public static final int SEMESTER = StudyGroup.semesterOf(YEAR, 1);
+
+    private static final int SUBJECTS_PER_DEPARTMENT = 8;
+    private static final int LECTURERS_PER_DEPARTMENT = 6;
+    private static final int CLASSES_PER_DAY = 4;
+    // Group numbers are one digit in group ciphers ('ФАА1-31'), 9 per term and 4 terms
+    private static final int MAX_GROUPS_PER_DEPARTMENT = 36;
+
+    private final int faculties;
+    private final int departments;
+    private final int groups;
+    private final int weeks;
+
+    public SyntheticData(int faculties, int departments, int groups, int weeks) {
+        if (faculties <= 0 || departments <= 0 || groups <= 0 || weeks <= 0) {
+            throw new IllegalArgumentException("Scale must be positive");
+        }
+        if (groups > MAX_GROUPS_PER_DEPARTMENT) {
+            throw new IllegalArgumentException("At most " + MAX_GROUPS_PER_DEPARTMENT + " groups per department");
+        }
+
+        this.faculties = faculties;
+        this.departments = departments;
+        this.groups = groups;
+        this.weeks = weeks;
+    }
+
+    // Expects the empty schema of create_tables.sql
+    public void seed(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement st = connection.createStatement()) {
+            for (String sql : statements()) {
+                st.execute(sql);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("ANALYZE");
+        }
+    }
+
+    public static List<String> departmentCiphers(Connection connection) throws SQLException {
+        return strings(connection, "SELECT rtrim(f.faculty_cipher) || d.department_number " +
+                "FROM department d JOIN faculty f ON f.faculty_id = d.faculty_id ORDER BY d.department_id");
+    }
+
+    public static List<String> facultyCiphers(Connection connection) throws SQLException {
+        return strings(connection, "SELECT rtrim(faculty_cipher) FROM faculty ORDER BY faculty_id");
+    }
+
+    public static List<String> groupCiphers(Connection connection) throws SQLException {
+        return strings(connection, "SELECT rtrim(f.faculty_cipher) || d.department_number || '-' || t.term_no || g.group_number " +
+                "FROM study_group g " +
+                "JOIN term t ON t.term_id = g.term_id " +
+                "JOIN calendar c ON c.id = g.calendar_id " +
+                "JOIN department_to_specialization ds ON ds.id = c.dept_to_spec_id " +
+                "JOIN department d ON d.department_id = ds.department_id " +
+                "JOIN faculty f ON f.faculty_id = d.faculty_id " +
+                "ORDER BY g.group_id");
+    }
+
+    public static List<Integer> groupIds(Connection connection) throws SQLException {
+        return ints(connection, "SELECT group_id FROM study_group ORDER BY group_id");
+    }
+
+    // Pairs of a calendar id and the term its groups study in
+    public static List<int[]> calendarTerms(Connection connection) throws SQLException {
+        List<int[]> values = new ArrayList<>();
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, 2 * (" + YEAR + " - start_year) + 1 FROM calendar ORDER BY id")) {
+            while (rs.next()) {
+                values.add(new int[]{rs.getInt(1), rs.getInt(2)});
+            }
+        }
+
+        return values;
+    }
+
+    private List<String> statements() {
+        List<String> sql = new ArrayList<>();
+        sql.add("INSERT INTO day_of_weak (short_title, full_title) VALUES " +
+                "('ПН', 'Понедельник'), ('ВТ', 'Вторник'), ('СР', 'Среда'), " +
+                "('ЧТ', 'Четверг'), ('ПТ', 'Пятница'), ('СБ', 'Суббота')");
+        sql.add("INSERT INTO class_time (no_of_class, starts_at, ends_at) VALUES " +
+                "(1, '08:30', '10:05'), (2, '10:15', '11:50'), (3, '12:00', '13:35'), (4, '13:50', '15:25'), " +
+                "(5, '15:40', '17:15'), (6, '17:25', '19:00'), (7, '19:10', '20:45')");
+        sql.add("INSERT INTO class_type (type_name) VALUES ('лекция'), ('семинар'), ('лабораторная работа')");
+        sql.add("INSERT INTO term (term_no) SELECT generate_series(1, 12)");
+        sql.add("INSERT INTO edu_degree (degree_name, min_number_of_study_years) VALUES ('Бакалавр', 4)");
+
+        // Ciphers 'ФАА', 'ФАБ', ... made of upper case letters as the cipher patterns require
+        sql.add(String.format("INSERT INTO faculty (faculty_cipher, title) " +
+                "SELECT 'Ф' || chr(1040 + i / 32) || chr(1040 + i %% 32), 'Факультет ' || i " +
+                "FROM generate_series(0, %d) i", faculties - 1));
+        sql.add(String.format("INSERT INTO department (faculty_id, department_number, title) " +
+                "SELECT f.faculty_id, n, 'Кафедра ' || rtrim(f.faculty_cipher) || n " +
+                "FROM faculty f CROSS JOIN generate_series(1, %d) n", departments));
+
+        sql.add("INSERT INTO speciality (code, degree_id, title) " +
+                "SELECT lpad((d.department_id / 100)::TEXT, 2, '0') || '.03.' || lpad((d.department_id % 100)::TEXT, 2, '0'), " +
+                "deg.degree_id, 'Специальность ' || d.department_id " +
+                "FROM department d CROSS JOIN edu_degree deg");
+        sql.add("INSERT INTO specialization (speciality_id, number_in_speciality, title) " +
+                "SELECT id, 1, title FROM speciality");
+        sql.add("INSERT INTO department_to_specialization (department_id, specialization_id) " +
+                "SELECT d.department_id, spec.id FROM department d " +
+                "JOIN speciality st ON st.title = 'Специальность ' || d.department_id " +
+                "JOIN specialization spec ON spec.speciality_id = st.id");
+        sql.add(String.format("INSERT INTO calendar (dept_to_spec_id, start_year) " +
+                "SELECT ds.id, %d - k FROM department_to_specialization ds CROSS JOIN generate_series(0, 3) k", YEAR));
+        sql.add(String.format("INSERT INTO study_group (calendar_id, term_id, group_number, students_count) " +
+                "SELECT c.id, t.term_id, g / 4 + 1, 25 FROM calendar c " +
+                "CROSS JOIN generate_series(0, %d) g " +
+                "JOIN term t ON t.term_no = 2 * (%d - c.start_year) + 1 " +
+                "WHERE g %% 4 = %d - c.start_year", groups - 1, YEAR, YEAR));
+
+        sql.add(String.format("INSERT INTO subject (subject_name) " +
+                "SELECT 'Дисциплина ' || d.department_id || '.' || s " +
+                "FROM department d CROSS JOIN generate_series(1, %d) s", SUBJECTS_PER_DEPARTMENT));
+        sql.add("INSERT INTO department_subject (department_id, subject_id) " +
+                "SELECT d.department_id, subj.subject_id FROM department d " +
+                "JOIN subject subj ON subj.subject_name LIKE 'Дисциплина ' || d.department_id || '.%'");
+        sql.add(String.format("INSERT INTO lecturer (first_name, middle_name, last_name) " +
+                "SELECT 'Имя', 'Отчество', 'Преподаватель' || d.department_id || '_' || n " +
+                "FROM department d CROSS JOIN generate_series(1, %d) n", LECTURERS_PER_DEPARTMENT));
+        sql.add(String.format("INSERT INTO lecturer_subject (lecturer_id, subject_on_department_id, class_type_id) " +
+                "SELECT l.lecturer_id, ds.id, ct.type_id FROM department_subject ds " +
+                "CROSS JOIN class_type ct " +
+                "JOIN lecturer l ON l.last_name = 'Преподаватель' || ds.department_id || '_' || (ds.subject_id %% %d + 1)",
+                LECTURERS_PER_DEPARTMENT));
+        sql.add("INSERT INTO classroom (room_number, capacity) SELECT 'А' || group_id, 30 FROM study_group");
+
+        sql.add("INSERT INTO calendar_item (calendar_id, department_subject_id) " +
+                "SELECT c.id, ds.id FROM calendar c " +
+                "JOIN department_to_specialization dts ON dts.id = c.dept_to_spec_id " +
+                "JOIN department_subject ds ON ds.department_id = dts.department_id");
+        sql.add(String.format("INSERT INTO calendar_item_cell (calendar_item_id, term_id) " +
+                "SELECT item.calendar_item_id, t.term_id FROM calendar_item item " +
+                "JOIN calendar c ON c.id = item.calendar_id " +
+                "JOIN term t ON t.term_no = 2 * (%d - c.start_year) + 1", YEAR));
+        sql.add("INSERT INTO hours_per_class (calendar_cell_id, class_type_id, no_of_hours) " +
+                "SELECT cell.cell_id, ct.type_id, 17 FROM calendar_item_cell cell CROSS JOIN class_type ct");
+
+        // Generated timetables may put a lecturer into two rooms at once, so the occupancy triggers
+        // are off while they are written and the occupancy tables stay empty. Benchmarks do not measure
+        // publishing, swapping the occupancy of groups published together is tested in OccupancyTest.
+        sql.add("ALTER TABLE schedule_item_parity DISABLE TRIGGER USER");
+        sql.add("ALTER TABLE published_schedule DISABLE TRIGGER USER");
+        sql.add(String.format("INSERT INTO schedule_day (weak_id, group_id, schedule_version, semester) " +
+                "SELECT dow.weak_id, g.group_id, w, semester_of(c.start_year, t.term_no) FROM study_group g " +
+                "JOIN calendar c ON c.id = g.calendar_id " +
+                "JOIN term t ON t.term_id = g.term_id " +
+                "CROSS JOIN day_of_weak dow " +
+                "CROSS JOIN generate_series(1, %d) w", weeks));
+        sql.add(String.format("INSERT INTO schedule_item (day_id, class_time_id, semester) " +
+                "SELECT sd.day_id, ct.class_time_id, sd.semester FROM schedule_day sd " +
+                "JOIN class_time ct ON ct.no_of_class <= %d", CLASSES_PER_DAY));
+        sql.add(String.format("INSERT INTO schedule_item_parity " +
+                "(schedule_item_id, day_parity, classroom_id, class_type_id, lec_subj_id, semester) " +
+                "SELECT si.schedule_item_id, 'ЧС/ЗН', room.room_id, ls.class_type_id, ls.id, si.semester " +
+                "FROM schedule_item si " +
+                "JOIN schedule_day sd ON sd.day_id = si.day_id " +
+                "JOIN class_time ct ON ct.class_time_id = si.class_time_id " +
+                "JOIN study_group g ON g.group_id = sd.group_id " +
+                "JOIN calendar c ON c.id = g.calendar_id " +
+                "JOIN department_to_specialization dts ON dts.id = c.dept_to_spec_id " +
+                "JOIN classroom room ON room.room_number = 'А' || g.group_id " +
+                "CROSS JOIN LATERAL (SELECT ls.id, ls.class_type_id FROM lecturer_subject ls " +
+                "JOIN department_subject ds ON ds.id = ls.subject_on_department_id " +
+                "WHERE ds.department_id = dts.department_id " +
+                "ORDER BY ls.id OFFSET (sd.weak_id * 7 + ct.no_of_class) %% %d LIMIT 1) ls",
+                SUBJECTS_PER_DEPARTMENT * 3));
+        sql.add(String.format("INSERT INTO published_schedule (group_id, schedule_version) " +
+                "SELECT group_id, %d FROM study_group", weeks));
+        sql.add(String.format("SELECT setval('schedule_version_seq', %d)", weeks));
+        sql.add("ALTER TABLE schedule_item_parity ENABLE TRIGGER USER");
+        sql.add("ALTER TABLE published_schedule ENABLE TRIGGER USER");
+
+        return sql;
+    }
+
+    private static List<String> strings(Connection connection, String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+
+        return values;
+    }
+
+    private static List<Integer> ints(Connection connection, String sql) throws SQLException {
+        List<Integer> values = new ArrayList<>();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getInt(1));
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d faculties x %d departments x %d groups x %d weeks", faculties, departments, groups, weeks);
+    }
+
+}
@@ -0,0 +1,93 @@
+package ru.bmstu.schedule.dao;
+
+import java.util.*;
+import java.util.function.Function;
+
+// Coalesces lookups by key into one query per batch of keys (WHERE key IN (...)) instead of a query per row.
+// Keys are registered up front, e.g. while the input is read, and are fetched together by the first
+// load of a key that is not there yet. Results, missing ones included, are memoized: a loader lives
+// as long as one unit of work, so the entities it returns belong to the session of that unit.
+// Not thread-safe, like the unit of work itself.
+public class BatchLoader<K, V> {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final Function<Collection<K>, Map<K, V>> query;
+    private final int batchSize;
+    private final Map<K, V> loaded = new HashMap<>();
+    private final Set<K> missing = new HashSet<>();
+    private final Set<K> pending = new LinkedHashSet<>();
+
+    // The query returns the found values by their keys, keys without a value are absent from the map
+    public BatchLoader(Function<Collection<K>, Map<K, V>> query) {
+        this(query, DEFAULT_BATCH_SIZE);
+    }
+
+    public BatchLoader(Function<Collection<K>, Map<K, V>> query, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+
+        this.query = query;
+        this.batchSize = batchSize;
+    }
+
+    public BatchLoader<K, V> register(K key) {
+        if (key != null && !isKnown(key)) {
+            pending.add(key);
+        }
+
+        return this;
+    }
+
+    public BatchLoader<K, V> registerAll(Collection<? extends K> keys) {
+        keys.forEach(this::register);
+        return this;
+    }
+
+    // A key that is neither loaded nor registered is fetched together with the registered ones
+    public Optional<V> load(K key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+
+        if (!isKnown(key)) {
+            pending.add(key);
+        }
+        if (pending.contains(key)) {
+            dispatch();
+        }
+
+        return Optional.ofNullable(loaded.get(key));
+    }
+
+    // Remembers a value created by the caller, so that later loads of its key find it
+    public void prime(K key, V value) {
+        pending.remove(key);
+        missing.remove(key);
+        loaded.put(key, value);
+    }
+
+    public void dispatch() {
+        List<K> keys = new ArrayList<>(pending);
+        pending.clear();
+
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<K> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+            Map<K, V> found = query.apply(batch);
+            for (K key : batch) {
+                V value = found.get(key);
+                if (value == null) {
+                    missing.add(key);
+                } else {
+                    loaded.put(key, value);
+                }
+            }
+        }
+    }
+
+    private boolean isKnown(K key) {
+        return loaded.containsKey(key) || missing.contains(key);
+    }
+
+}
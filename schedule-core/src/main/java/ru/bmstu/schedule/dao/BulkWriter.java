@@ -0,0 +1,144 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.Assigned;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+// Inserts entities with plain JDBC batches. Hibernate does not batch inserts of entities with IDENTITY ids,
+// so the statement is built from the entity mapping and the generated ids are read back with RETURNING.
+// With a natural key the insert becomes INSERT ... ON CONFLICT (key) DO UPDATE, PostgreSQL only.
+class BulkWriter<PK extends Serializable, E> {
+
+    private final AbstractEntityPersister persister;
+    private final String idColumn;
+    private final boolean assignedId;
+    private final List<Integer> properties = new ArrayList<>();
+    private final List<String> columns = new ArrayList<>();
+
+    BulkWriter(SessionFactory factory, Class<E> persistentClass) {
+        persister = (AbstractEntityPersister) ((SessionFactoryImplementor) factory).getEntityPersister(persistentClass.getName());
+        idColumn = persister.getIdentifierColumnNames()[0];
+        assignedId = persister.getIdentifierGenerator() instanceof Assigned;
+
+        boolean[] insertable = persister.getPropertyInsertability();
+        for (int i = 0; i < insertable.length; i++) {
+            String[] propertyColumns = persister.getPropertyColumnNames(i);
+            // Collections have no columns of their own
+            if (insertable[i] && propertyColumns.length > 0) {
+                properties.add(i);
+                columns.addAll(Arrays.asList(propertyColumns));
+            }
+        }
+    }
+
+    // Pending changes of the session are flushed first, so that rows referenced by the entities exist.
+    // Ids are set on the entities, which stay detached.
+    @SuppressWarnings("unchecked")
+    List<PK> write(Session session, Collection<E> entities, String[] naturalKey, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+
+        session.flush();
+        SessionImplementor sessionImpl = (SessionImplementor) session;
+        String sql = insertSql(naturalKey);
+        Type[] types = persister.getPropertyTypes();
+
+        return session.doReturningWork(connection -> {
+            List<PK> ids = new ArrayList<>(entities.size());
+            List<E> batch = new ArrayList<>(batchSize);
+
+            try (PreparedStatement st = connection.prepareStatement(sql, new String[]{idColumn})) {
+                for (E entity : entities) {
+                    int index = 1;
+                    if (assignedId) {
+                        persister.getIdentifierType().nullSafeSet(st, persister.getIdentifier(entity, sessionImpl), index++, sessionImpl);
+                    }
+                    for (int property : properties) {
+                        types[property].nullSafeSet(st, persister.getPropertyValue(entity, property), index, sessionImpl);
+                        index += persister.getPropertyColumnNames(property).length;
+                    }
+                    st.addBatch();
+                    batch.add(entity);
+
+                    if (batch.size() == batchSize) {
+                        executeBatch(st, batch, ids, sessionImpl);
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    executeBatch(st, batch, ids, sessionImpl);
+                }
+            }
+
+            return ids;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void executeBatch(PreparedStatement st, List<E> batch, List<PK> ids, SessionImplementor session) throws SQLException {
+        st.executeBatch();
+        try (ResultSet keys = st.getGeneratedKeys()) {
+            for (E entity : batch) {
+                if (!keys.next()) {
+                    throw new HibernateException("No generated id returned for " + persister.getEntityName());
+                }
+
+                PK id = (PK) persister.getIdentifierType().nullSafeGet(keys, idColumn, session, null);
+                persister.setIdentifier(entity, id, session);
+                ids.add(id);
+            }
+        }
+        batch.clear();
+    }
+
+    private String insertSql(String[] naturalKey) {
+        List<String> insertColumns = new ArrayList<>();
+        if (assignedId) {
+            insertColumns.add(idColumn);
+        }
+        insertColumns.addAll(columns);
+
+        StringJoiner values = new StringJoiner(", ", "(", ")");
+        insertColumns.forEach(c -> values.add("?"));
+
+        StringBuilder sql = new StringBuilder()
+                .append("INSERT INTO ").append(persister.getTableName())
+                .append(" (").append(String.join(", ", insertColumns)).append(") VALUES ")
+                .append(values);
+
+        if (naturalKey.length > 0) {
+            Set<String> keyColumns = new LinkedHashSet<>();
+            for (String property : naturalKey) {
+                keyColumns.addAll(Arrays.asList(persister.getPropertyColumnNames(property)));
+            }
+
+            List<String> updatedColumns = new ArrayList<>(columns);
+            updatedColumns.removeAll(keyColumns);
+            // A row is returned only when it is updated, so a key-only table gets a no-op update
+            if (updatedColumns.isEmpty()) {
+                updatedColumns.add(keyColumns.iterator().next());
+            }
+
+            StringJoiner updates = new StringJoiner(", ");
+            updatedColumns.forEach(c -> updates.add(c + " = EXCLUDED." + c));
+
+            sql.append(" ON CONFLICT (").append(String.join(", ", keyColumns)).append(")")
+                    .append(" DO UPDATE SET ").append(updates);
+        }
+
+        return sql.toString();
+    }
+
+}
@@ -0,0 +1,53 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+
+// Hit and miss counters of the second-level and query caches, collected when hibernate.generate_statistics is on.
+public class CacheStatistics {
+
+    private CacheStatistics() {
+    }
+
+    public static String report(SessionFactory factory) {
+        Statistics stats = factory.getStatistics();
+        if (!stats.isStatisticsEnabled()) {
+            return "Cache statistics are disabled";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-45s %10s %10s %10s %10s%n", "region", "hits", "misses", "puts", "in memory"));
+
+        String[] regions = stats.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+        for (String region : regions) {
+            SecondLevelCacheStatistics regionStats = stats.getSecondLevelCacheStatistics(region);
+            if (regionStats == null) {
+                continue;
+            }
+
+            sb.append(String.format(
+                    "%-45s %10d %10d %10d %10d%n",
+                    region,
+                    regionStats.getHitCount(),
+                    regionStats.getMissCount(),
+                    regionStats.getPutCount(),
+                    regionStats.getElementCountInMemory()
+            ));
+        }
+
+        sb.append(String.format(
+                "%-45s %10d %10d %10d%n",
+                "queries (all regions)",
+                stats.getQueryCacheHitCount(),
+                stats.getQueryCacheMissCount(),
+                stats.getQueryCachePutCount()
+        ));
+
+        return sb.toString();
+    }
+
+}
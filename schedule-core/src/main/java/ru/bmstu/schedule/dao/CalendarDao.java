@@ -2,6 +2,8 @@ package ru.bmstu.schedule.dao;
 
 import org.hibernate.Query;
 import org.hibernate.SessionFactory;
+import ru.bmstu.schedule.dto.LecturerAssignment;
+import ru.bmstu.schedule.dto.SubjectHours;
 import ru.bmstu.schedule.entity.Calendar;
 
 import java.util.List;
@@ -13,21 +15,30 @@ public class CalendarDao extends HibernateDao<Integer, Calendar> {
         super(factory);
     }
 
+    @SuppressWarnings("unchecked")
     public Optional<Calendar> findByStartYearAndDepartmentCodeAndSpecCode(int year, String deptCipher, String specCode) {
+        Optional<Ciphers.DepartmentCipher> deptOpt = Ciphers.parseDepartment(deptCipher);
+        Optional<Ciphers.SpecializationCode> specOpt = Ciphers.parseSpecialization(specCode);
+        if (!deptOpt.isPresent() || !specOpt.isPresent()) {
+            return Optional.empty();
+        }
+
         List<Calendar> calendarList = composeInTransaction(session -> {
             Query calendarQuery = session.createQuery("SELECT c FROM Calendar c " +
-                    "LEFT OUTER JOIN c.departmentSpecialization ds " +
-                    "LEFT OUTER JOIN c.departmentSpecialization.department dept " +
-                    "LEFT OUTER JOIN c.departmentSpecialization.department.faculty fact " +
-                    "LEFT OUTER JOIN c.departmentSpecialization.specialization spec " +
-                    "LEFT OUTER JOIN c.departmentSpecialization.specialization.speciality st " +
+                    "JOIN c.departmentSpecialization ds " +
+                    "JOIN ds.department dept " +
+                    "JOIN dept.faculty fact " +
+                    "JOIN ds.specialization spec " +
+                    "JOIN spec.speciality st " +
                     "WHERE c.startYear = :startYear " +
-                    "AND CONCAT(dept.faculty.cipher, CAST(dept.number AS string)) = :department " +
-                    "AND CONCAT(st.code, '_', CAST(spec.numberInSpeciality AS string)) = :specialization");
+                    "AND fact.cipher = :faculty AND dept.number = :department " +
+                    "AND st.code = :speciality AND spec.numberInSpeciality = :specialization");
 
             calendarQuery.setParameter("startYear", year);
-            calendarQuery.setParameter("department", deptCipher);
-            calendarQuery.setParameter("specialization", specCode);
+            calendarQuery.setParameter("faculty", deptOpt.get().getFacultyCipher());
+            calendarQuery.setParameter("department", deptOpt.get().getNumber());
+            calendarQuery.setParameter("speciality", specOpt.get().getSpecialityCode());
+            calendarQuery.setParameter("specialization", specOpt.get().getNumberInSpeciality());
 
             return (List<Calendar>) calendarQuery.list();
         });
@@ -39,4 +50,70 @@ public class CalendarDao extends HibernateDao<Integer, Calendar> {
         return Optional.ofNullable(calendarList.get(0));
     }
 
+    // Cipher is either a faculty cipher (e.g. 'ИУ') or a department cipher (e.g. 'ИУ9').
+    @SuppressWarnings("unchecked")
+    public List<Calendar> findAllByFacultyOrDepartmentCipher(String cipher) {
+        Optional<Ciphers.DepartmentCipher> deptOpt = Ciphers.parseDepartment(cipher);
+
+        return composeInTransaction(session -> {
+            Query calendarQuery = session.createQuery("SELECT DISTINCT c FROM Calendar c " +
+                    "JOIN c.departmentSpecialization ds " +
+                    "JOIN ds.department dept " +
+                    "JOIN dept.faculty fact " +
+                    "WHERE fact.cipher = :faculty" +
+                    (deptOpt.isPresent() ? " AND dept.number = :department" : ""));
+
+            if (deptOpt.isPresent()) {
+                calendarQuery.setParameter("faculty", deptOpt.get().getFacultyCipher());
+                calendarQuery.setParameter("department", deptOpt.get().getNumber());
+            } else {
+                calendarQuery.setParameter("faculty", cipher);
+            }
+
+            return (List<Calendar>) calendarQuery.list();
+        });
+    }
+
+    // Solver input: flat rows instead of walking calendar items, cells and hours of the entity graph.
+    @SuppressWarnings("unchecked")
+    public List<SubjectHours> findSubjectHours(int calendarId, int term) {
+        return composeInTransaction(session -> {
+            Query query = session.createQuery("SELECT NEW ru.bmstu.schedule.dto.SubjectHours(subj.id, ds.id, ct.name, hpc.noOfHours) " +
+                    "FROM HoursPerClass hpc " +
+                    "JOIN hpc.classType ct " +
+                    "JOIN hpc.calendarItemCell cell " +
+                    "JOIN cell.term t " +
+                    "JOIN cell.calendarItem item " +
+                    "JOIN item.departmentSubject ds " +
+                    "JOIN ds.subject subj " +
+                    "WHERE item.calendar.id = :calendar AND t.number = :term");
+
+            query.setParameter("calendar", calendarId);
+            query.setParameter("term", term);
+
+            return (List<SubjectHours>) query.list();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<LecturerAssignment> findLecturerAssignments(int calendarId, int term) {
+        return composeInTransaction(session -> {
+            Query query = session.createQuery("SELECT NEW ru.bmstu.schedule.dto.LecturerAssignment(lec.id, subj.id, ds.id, ct.name) " +
+                    "FROM LecturerSubject ls " +
+                    "JOIN ls.lecturer lec " +
+                    "JOIN ls.classType ct " +
+                    "JOIN ls.departmentSubject ds " +
+                    "JOIN ds.subject subj " +
+                    "WHERE ds.id IN (" +
+                    "SELECT item.departmentSubject.id FROM CalendarItemCell cell " +
+                    "JOIN cell.calendarItem item " +
+                    "WHERE item.calendar.id = :calendar AND cell.term.number = :term)");
+
+            query.setParameter("calendar", calendarId);
+            query.setParameter("term", term);
+
+            return (List<LecturerAssignment>) query.list();
+        });
+    }
+
 }
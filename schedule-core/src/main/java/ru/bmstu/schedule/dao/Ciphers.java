@@ -0,0 +1,133 @@
+package ru.bmstu.schedule.dao;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Splits ciphers into the column values they are made of, so that lookups compare indexed columns
+// instead of concatenations computed for every row.
+final class Ciphers {
+
+    // 'ИУ9': (1) faculty cipher, (2) department number
+    private static final Pattern DEPARTMENT_PTR = Pattern.compile("(\\p{Lu}+)(\\d+)");
+    // '09.03.04_1': (1) speciality code, (2) number in speciality
+    private static final Pattern SPECIALIZATION_PTR = Pattern.compile("(\\d{2}\\.\\d{2}\\.\\d{2})_(\\d+)");
+    // 'ИУ9-52Б': (1) faculty cipher, (2) department number, (3) term number, (4) group number, (5) degree
+    private static final Pattern GROUP_PTR = Pattern.compile("(\\p{Lu}+)(\\d+)-(\\d+?)(\\d)(\\p{Lu})?");
+
+    private Ciphers() {
+    }
+
+    static Optional<DepartmentCipher> parseDepartment(String cipher) {
+        if (cipher == null)
+            return Optional.empty();
+
+        Matcher matcher = DEPARTMENT_PTR.matcher(cipher);
+        if (!matcher.matches())
+            return Optional.empty();
+
+        return Optional.of(new DepartmentCipher(matcher.group(1), Integer.parseInt(matcher.group(2))));
+    }
+
+    static Optional<SpecializationCode> parseSpecialization(String code) {
+        if (code == null)
+            return Optional.empty();
+
+        Matcher matcher = SPECIALIZATION_PTR.matcher(code);
+        if (!matcher.matches())
+            return Optional.empty();
+
+        return Optional.of(new SpecializationCode(matcher.group(1), Integer.parseInt(matcher.group(2))));
+    }
+
+    static Optional<GroupCipher> parseGroup(String cipher) {
+        if (cipher == null)
+            return Optional.empty();
+
+        Matcher matcher = GROUP_PTR.matcher(cipher);
+        if (!matcher.matches())
+            return Optional.empty();
+
+        char degreeLetter = matcher.group(5) == null ? 'Б' : matcher.group(5).charAt(0);
+        return Optional.of(new GroupCipher(
+                new DepartmentCipher(matcher.group(1), Integer.parseInt(matcher.group(2))),
+                Integer.parseInt(matcher.group(3)),
+                Integer.parseInt(matcher.group(4)),
+                degreeLetter
+        ));
+    }
+
+    static final class DepartmentCipher {
+        private final String facultyCipher;
+        private final int number;
+
+        private DepartmentCipher(String facultyCipher, int number) {
+            this.facultyCipher = facultyCipher;
+            this.number = number;
+        }
+
+        String getFacultyCipher() {
+            return facultyCipher;
+        }
+
+        int getNumber() {
+            return number;
+        }
+    }
+
+    static final class SpecializationCode {
+        private final String specialityCode;
+        private final int numberInSpeciality;
+
+        private SpecializationCode(String specialityCode, int numberInSpeciality) {
+            this.specialityCode = specialityCode;
+            this.numberInSpeciality = numberInSpeciality;
+        }
+
+        String getSpecialityCode() {
+            return specialityCode;
+        }
+
+        int getNumberInSpeciality() {
+            return numberInSpeciality;
+        }
+    }
+
+    static final class GroupCipher {
+        private final DepartmentCipher department;
+        private final int termNumber;
+        private final int groupNumber;
+        private final char degreeLetter;
+
+        private GroupCipher(DepartmentCipher department, int termNumber, int groupNumber, char degreeLetter) {
+            this.department = department;
+            this.termNumber = termNumber;
+            this.groupNumber = groupNumber;
+            this.degreeLetter = degreeLetter;
+        }
+
+        DepartmentCipher getDepartment() {
+            return department;
+        }
+
+        int getTermNumber() {
+            return termNumber;
+        }
+
+        int getGroupNumber() {
+            return groupNumber;
+        }
+
+        String getDegreeName() {
+            switch (degreeLetter) {
+                case 'А':
+                    return "Исследователь. Преподаватель-исследователь";
+                case 'М':
+                    return "Магистр";
+                default:
+                    return "Бакалавр";
+            }
+        }
+    }
+
+}
@@ -22,7 +22,7 @@ public class ClassTypeDao extends HibernateDao<Integer, ClassType> {
         }
 
         return Optional.ofNullable(composeInTransaction(session -> {
-            Query query = session.createQuery("SELECT ct FROM ClassType ct WHERE ct.name LIKE concat(:shortName, '%')");
+            Query query = createEntityQuery("SELECT ct FROM ClassType ct WHERE ct.name LIKE concat(:shortName, '%')");
             query.setParameter("shortName", shortName);
             return (ClassType) query.uniqueResult();
         }));
@@ -3,6 +3,7 @@ package ru.bmstu.schedule.dao;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.entity.Classroom;
 
+import java.util.List;
 import java.util.Optional;
 
 public class ClassroomDao extends HibernateDao<Integer, Classroom> {
@@ -15,4 +16,27 @@ public class ClassroomDao extends HibernateDao<Integer, Classroom> {
         return findUniqueByProperty("roomNumber", roomNumber);
     }
 
+    // Day parity is 'ЧС', 'ЗН' or 'ЧС/ЗН' for both weeks
+    public boolean isFree(int roomId, int dayOfWeekId, int classTimeId, String dayParity) {
+        return composeInTransaction(session ->
+                !Occupancy.isOccupied(session, Occupancy.ROOMS, "classroom_id", roomId, dayOfWeekId, classTimeId, dayParity)
+        );
+    }
+
+    // Busy rooms are read from the slot index of the occupancy instead of a join over all the schedules
+    @SuppressWarnings("unchecked")
+    public List<Classroom> findFree(int dayOfWeekId, int classTimeId, String dayParity) {
+        return composeInTransaction(session ->
+                (List<Classroom>) session.createSQLQuery("SELECT {c.*} FROM classroom c " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM " + Occupancy.ROOMS + " o WHERE o.classroom_id = c.room_id " +
+                        "AND o.weak_id = :day AND o.class_time_id = :time AND o.week_parity IN (:parities)) " +
+                        "ORDER BY c.room_number")
+                        .addEntity("c", Classroom.class)
+                        .setParameter("day", dayOfWeekId)
+                        .setParameter("time", classTimeId)
+                        .setParameterList("parities", Occupancy.weekParities(dayParity))
+                        .list()
+        );
+    }
+
 }
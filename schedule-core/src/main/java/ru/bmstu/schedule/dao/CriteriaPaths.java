@@ -0,0 +1,70 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.sql.JoinType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Resolves property paths of a specification to Criteria aliases, joining each association once.
+public final class CriteriaPaths {
+
+    // Identifier of a to-one association is its foreign key column, no join is needed to compare it
+    private static final String ID_PROPERTY = "id";
+
+    private final Join join;
+    private final Map<String, String> aliases = new HashMap<>();
+
+    CriteriaPaths(DetachedCriteria criteria) {
+        this.join = (associationPath, alias) -> criteria.createAlias(associationPath, alias, JoinType.LEFT_OUTER_JOIN);
+    }
+
+    CriteriaPaths(Criteria criteria) {
+        this.join = (associationPath, alias) -> criteria.createAlias(associationPath, alias, JoinType.LEFT_OUTER_JOIN);
+    }
+
+    public String resolve(String path) {
+        String[] parts = path.split("\\.");
+        int noOfJoins = parts.length - 1;
+        if (noOfJoins > 0 && parts[parts.length - 1].equals(ID_PROPERTY)) {
+            noOfJoins--;
+        }
+
+        String alias = null;
+        StringBuilder associationPath = new StringBuilder();
+        for (int i = 0; i < noOfJoins; i++) {
+            if (i > 0) {
+                associationPath.append('.');
+            }
+            associationPath.append(parts[i]);
+
+            String joinAlias = aliases.get(associationPath.toString());
+            if (joinAlias == null) {
+                joinAlias = "j" + aliases.size();
+                join.create(alias == null ? parts[i] : alias + "." + parts[i], joinAlias);
+                aliases.put(associationPath.toString(), joinAlias);
+            }
+            alias = joinAlias;
+        }
+
+        StringBuilder property = new StringBuilder(alias == null ? "" : alias);
+        for (int i = noOfJoins; i < parts.length; i++) {
+            if (property.length() > 0) {
+                property.append('.');
+            }
+            property.append(parts[i]);
+        }
+
+        return property.toString();
+    }
+
+    boolean hasJoins() {
+        return !aliases.isEmpty();
+    }
+
+    private interface Join {
+        void create(String associationPath, String alias);
+    }
+
+}
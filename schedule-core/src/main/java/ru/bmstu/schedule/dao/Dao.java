@@ -2,6 +2,7 @@ package ru.bmstu.schedule.dao;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.List;
 
 public interface Dao<PK extends Serializable, E> {
 
@@ -11,10 +12,16 @@ public interface Dao<PK extends Serializable, E> {
 
     PK create(E entity);
 
+    List<PK> createAll(Collection<E> entities);
+
+    List<PK> upsertAll(Collection<E> entities, String... naturalKey);
+
     void update(E entity);
 
     void delete(E entity);
 
     void deleteAll();
 
+    int deleteAllByIds(Collection<PK> keys);
+
 }
@@ -0,0 +1,274 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Calls, latencies, returned rows and SQL statements of DAO methods, collected when -Dschedule.metrics=true.
+// An operation is the outermost DAO call or unit of work of a thread, nested calls are counted as its part.
+// Operations slower than -Dschedule.metrics.slowMillis (500 by default) are logged. With
+// -Dschedule.metrics.similarQueries=K an operation issuing more than K statements of the same SQL is
+// reported as a probable N+1 problem: lazy associations loaded one by one instead of being fetched in a query.
+public final class DaoMetrics {
+
+    // Latency buckets in ms: up to 1, 2, 4, ... 4096 and more
+    private static final int NO_OF_BUCKETS = 14;
+    // IN lists of different lengths are the same statement
+    private static final Pattern PARAMETER_LIST_PTR = Pattern.compile("\\(\\?(\\s*,\\s*\\?)*\\)");
+
+    private static volatile boolean enabled = Boolean.getBoolean("schedule.metrics");
+    private static volatile long slowMillis = Long.getLong("schedule.metrics.slowMillis", 500);
+    private static volatile int similarQueries = Integer.getInteger("schedule.metrics.similarQueries", 0);
+
+    private static final Map<String, MethodStats> METHODS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Operation> CURRENT = new ThreadLocal<>();
+
+    private DaoMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        DaoMetrics.enabled = enabled;
+    }
+
+    public static void setSlowMillis(long slowMillis) {
+        DaoMetrics.slowMillis = slowMillis;
+    }
+
+    // 0 turns the N+1 detection off
+    public static void setSimilarQueries(int similarQueries) {
+        DaoMetrics.similarQueries = similarQueries;
+    }
+
+    public static void reset() {
+        METHODS.clear();
+    }
+
+    static <T> T measure(Supplier<String> operationName, Supplier<T> work) {
+        if (!enabled || CURRENT.get() != null) {
+            return work.get();
+        }
+
+        Operation operation = new Operation(operationName.get());
+        CURRENT.set(operation);
+        long start = System.nanoTime();
+        T result = null;
+        try {
+            result = work.get();
+            return result;
+        } finally {
+            CURRENT.remove();
+            operation.finish(System.nanoTime() - start, rowsOf(result));
+        }
+    }
+
+    // Called by StatementCounter for every statement Hibernate prepares
+    static void statementPrepared(String sql) {
+        Operation operation = CURRENT.get();
+        if (operation != null) {
+            operation.statementPrepared(PARAMETER_LIST_PTR.matcher(sql).replaceAll("(?)"));
+        }
+    }
+
+    // Deepest method of the given DAO class on the stack, that is the one called from outside
+    static String daoMethod(Class<?> daoClass) {
+        String method = null;
+        for (StackTraceElement frame : Thread.currentThread().getStackTrace()) {
+            if (isDaoFrame(frame, daoClass)) {
+                method = frame.getMethodName();
+            }
+        }
+
+        return daoClass.getSimpleName() + "." + (method == null ? "?" : methodName(method));
+    }
+
+    // Method that called into the given class
+    static String callerOf(Class<?> calledClass) {
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        for (int i = stack.length - 2; i >= 0; i--) {
+            if (stack[i].getClassName().equals(calledClass.getName())) {
+                StackTraceElement caller = stack[i + 1];
+                String className = caller.getClassName();
+                return className.substring(className.lastIndexOf('.') + 1) + "." + methodName(caller.getMethodName());
+            }
+        }
+
+        return calledClass.getSimpleName() + ".?";
+    }
+
+    private static boolean isDaoFrame(StackTraceElement frame, Class<?> daoClass) {
+        for (Class<?> c = daoClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (c.getName().equals(frame.getClassName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // 'lambda$findFree$3' is a part of findFree
+    private static String methodName(String frameMethod) {
+        if (frameMethod.startsWith("lambda$")) {
+            int end = frameMethod.indexOf('$', "lambda$".length());
+            return end < 0 ? frameMethod : frameMethod.substring("lambda$".length(), end);
+        }
+
+        return frameMethod;
+    }
+
+    private static long rowsOf(Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        } else if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+
+        return 1;
+    }
+
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-50s %8s %8s %8s %9s %9s %9s %9s%n",
+                "method", "calls", "rows", "queries", "avg ms", "p50 ms", "p95 ms", "max ms"));
+
+        List<String> methods = new ArrayList<>(METHODS.keySet());
+        Collections.sort(methods);
+        for (String method : methods) {
+            MethodStats stats = METHODS.get(method);
+            long calls = stats.calls.sum();
+            if (calls == 0) {
+                continue;
+            }
+
+            sb.append(String.format("%-50s %8d %8d %8d %9.1f %9s %9s %9.1f%n",
+                    method,
+                    calls,
+                    stats.rows.sum(),
+                    stats.queries.sum(),
+                    toMillis(stats.nanos.sum()) / calls,
+                    stats.percentile(0.5),
+                    stats.percentile(0.95),
+                    toMillis(stats.maxNanos.get())
+            ));
+        }
+
+        return sb.toString();
+    }
+
+    // Counters of the whole session factory, collected when hibernate.generate_statistics is on
+    public static String report(SessionFactory factory) {
+        Statistics stats = factory.getStatistics();
+        if (!stats.isStatisticsEnabled()) {
+            return report();
+        }
+
+        return report() + String.format(
+                "statements: %d prepared, %d queries (slowest %d ms: %s)%n" +
+                        "entities: %d loaded, %d fetched; collections: %d loaded, %d fetched%n" +
+                        "second-level cache: %d hits, %d misses, %d puts%n",
+                stats.getPrepareStatementCount(),
+                stats.getQueryExecutionCount(),
+                stats.getQueryExecutionMaxTime(),
+                stats.getQueryExecutionMaxTimeQueryString(),
+                stats.getEntityLoadCount(),
+                stats.getEntityFetchCount(),
+                stats.getCollectionLoadCount(),
+                stats.getCollectionFetchCount(),
+                stats.getSecondLevelCacheHitCount(),
+                stats.getSecondLevelCacheMissCount(),
+                stats.getSecondLevelCachePutCount()
+        );
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static final class Operation {
+        private final String name;
+        private final Map<String, Integer> statements = new HashMap<>();
+        private int queries;
+        private boolean similarReported;
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        private void statementPrepared(String sql) {
+            queries++;
+            int count = statements.merge(sql, 1, Integer::sum);
+            int limit = similarQueries;
+            if (limit > 0 && count > limit && !similarReported) {
+                similarReported = true;
+                System.err.printf("[warn] %s issued more than %d similar statements, probably N+1: %s%n", name, limit, sql);
+            }
+        }
+
+        private void finish(long nanos, long rows) {
+            METHODS.computeIfAbsent(name, n -> new MethodStats()).add(nanos, rows, queries);
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            if (millis >= slowMillis) {
+                System.err.printf("[warn] slow DAO call %s: %d ms, %d rows, %d statements%n", name, millis, rows, queries);
+            }
+        }
+    }
+
+    private static final class MethodStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(NO_OF_BUCKETS);
+
+        private void add(long callNanos, long callRows, int callQueries) {
+            calls.increment();
+            rows.add(callRows);
+            queries.add(callQueries);
+            nanos.add(callNanos);
+            maxNanos.accumulate(callNanos);
+            buckets.incrementAndGet(bucketOf(callNanos));
+        }
+
+        private static int bucketOf(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = millis <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(millis - 1);
+            return Math.min(bucket, NO_OF_BUCKETS - 1);
+        }
+
+        // Upper bound of the bucket the percentile falls into
+        private String percentile(double p) {
+            long total = 0;
+            for (int i = 0; i < NO_OF_BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+
+            long seen = 0;
+            for (int i = 0; i < NO_OF_BUCKETS - 1; i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.ceil(total * p)) {
+                    return "<=" + (1L << i);
+                }
+            }
+
+            return ">" + (1L << (NO_OF_BUCKETS - 2));
+        }
+    }
+
+}
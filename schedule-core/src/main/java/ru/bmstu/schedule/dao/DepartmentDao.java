@@ -4,11 +4,7 @@ import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.entity.Department;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.*;
 
 public class DepartmentDao extends HibernateDao<Integer, Department> {
 
@@ -34,32 +30,73 @@ public class DepartmentDao extends HibernateDao<Integer, Department> {
         if (cipher == null)
             return Optional.empty();
 
-        Pattern cipherPtr = Pattern.compile("(\\p{Lu}+)(\\d+)?");
-        Matcher cipherMatcher = cipherPtr.matcher(cipher);
+        if (DEPARTMENTS_WITHOUT_FACULTIES.containsKey(cipher))
+            return findByTitle(DEPARTMENTS_WITHOUT_FACULTIES.get(cipher));
 
-        if (!cipherMatcher.matches() || cipherMatcher.groupCount() != 2)
+        Optional<Ciphers.DepartmentCipher> deptCipherOpt = Ciphers.parseDepartment(cipher);
+        if (!deptCipherOpt.isPresent())
             return Optional.empty();
 
-        if (cipherMatcher.group(2) == null) {
-            String deptCode = cipherMatcher.group(1);
-            if (!DEPARTMENTS_WITHOUT_FACULTIES.containsKey(deptCode))
-                return Optional.empty();
-            String deptName = DEPARTMENTS_WITHOUT_FACULTIES.get(deptCode);
-
-            return findByTitle(deptName);
-        }
-
+        Ciphers.DepartmentCipher deptCipher = deptCipherOpt.get();
         return Optional.ofNullable(
                 composeInTransaction(session -> {
-                    Query query = session.createQuery(
+                    Query query = createEntityQuery(
                             "SELECT dept FROM Department dept " +
-                                    "LEFT JOIN dept.faculty fact " +
-                                    "WHERE CONCAT(fact.cipher, CAST(dept.number AS string)) = :cipher"
+                                    "JOIN dept.faculty fact " +
+                                    "WHERE fact.cipher = :faculty AND dept.number = :number"
                     );
-                    query.setParameter("cipher", cipher);
+                    query.setParameter("faculty", deptCipher.getFacultyCipher());
+                    query.setParameter("number", deptCipher.getNumber());
                     return (Department) query.uniqueResult();
                 })
         );
     }
 
+    // Departments of all the ciphers in one query, keyed by cipher; ciphers of unknown format are skipped
+    @SuppressWarnings("unchecked")
+    public Map<String, Department> findAllByCiphers(Collection<String> ciphers) {
+        Set<String> faculties = new HashSet<>();
+        Set<Integer> numbers = new HashSet<>();
+        Map<String, String> titles = new HashMap<>();
+        for (String cipher : ciphers) {
+            if (DEPARTMENTS_WITHOUT_FACULTIES.containsKey(cipher)) {
+                titles.put(DEPARTMENTS_WITHOUT_FACULTIES.get(cipher), cipher);
+                continue;
+            }
+
+            Ciphers.parseDepartment(cipher).ifPresent(deptCipher -> {
+                faculties.add(deptCipher.getFacultyCipher());
+                numbers.add(deptCipher.getNumber());
+            });
+        }
+
+        Map<String, Department> found = new HashMap<>();
+        for (Department dept : mapByProperty("title", titles.keySet(), Department::getTitle).values()) {
+            found.put(titles.get(dept.getTitle()), dept);
+        }
+        if (faculties.isEmpty()) {
+            return found;
+        }
+
+        // Faculties and numbers are matched separately, combinations that were not asked for are dropped
+        List<Department> depts = composeInTransaction(session -> {
+            Query query = createEntityQuery(
+                    "SELECT dept FROM Department dept " +
+                            "JOIN FETCH dept.faculty fact " +
+                            "WHERE fact.cipher IN (:faculties) AND dept.number IN (:numbers)"
+            );
+            query.setParameterList("faculties", faculties);
+            query.setParameterList("numbers", numbers);
+            return (List<Department>) query.list();
+        });
+
+        for (Department dept : depts) {
+            if (ciphers.contains(dept.getCipher())) {
+                found.put(dept.getCipher(), dept);
+            }
+        }
+
+        return found;
+    }
+
 }
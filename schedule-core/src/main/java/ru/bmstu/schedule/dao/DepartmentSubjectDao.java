@@ -29,15 +29,21 @@ public class DepartmentSubjectDao extends HibernateDao<Integer, DepartmentSubjec
     }
 
     public Optional<DepartmentSubject> findByDepartmentCipherAndSubjectName(String departmentCipher, String subjectName) {
+        Optional<Ciphers.DepartmentCipher> deptCipherOpt = Ciphers.parseDepartment(departmentCipher);
+        if (!deptCipherOpt.isPresent())
+            return Optional.empty();
+
+        Ciphers.DepartmentCipher deptCipher = deptCipherOpt.get();
         return Optional.ofNullable(
                 composeInTransaction(session -> {
                     Query query = session.createQuery("SELECT deptSpec FROM DepartmentSubject deptSpec " +
-                            "LEFT JOIN  deptSpec.department dept " +
-                            "LEFT JOIN deptSpec.department.faculty fact " +
-                            "LEFT JOIN deptSpec.subject subj " +
-                            "WHERE CONCAT(fact.cipher, CAST(dept.number AS string)) = :department " +
+                            "JOIN deptSpec.department dept " +
+                            "JOIN dept.faculty fact " +
+                            "JOIN deptSpec.subject subj " +
+                            "WHERE fact.cipher = :faculty AND dept.number = :department " +
                             "AND subj.name = :subject ");
-                    query.setParameter("department", departmentCipher);
+                    query.setParameter("faculty", deptCipher.getFacultyCipher());
+                    query.setParameter("department", deptCipher.getNumber());
                     query.setParameter("subject", subjectName);
 
                     return (DepartmentSubject) query.uniqueResult();
@@ -3,6 +3,8 @@ package ru.bmstu.schedule.dao;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.entity.EduDegree;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 public class EduDegreeDao extends HibernateDao<Integer, EduDegree> {
@@ -15,4 +17,8 @@ public class EduDegreeDao extends HibernateDao<Integer, EduDegree> {
         return findUniqueByProperty("name", degreeName);
     }
 
+    public Map<String, EduDegree> findAllByNames(Collection<String> names) {
+        return mapByProperty("name", names, EduDegree::getName);
+    }
+
 }
@@ -0,0 +1,74 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Forward-only cursor over query results. The rows are fetched from the database batchSize at a time,
+// and the session is flushed and cleared before every next batch, so the memory held by the session
+// does not grow with the size of the table. Entities are loaded read-only and bypass the second-level cache.
+class EntityCursor<E> implements Iterator<E>, AutoCloseable {
+
+    static final int DEFAULT_FETCH_SIZE = 500;
+
+    private final Session session;
+    private final ScrollableResults results;
+    private final int batchSize;
+    private int readInBatch;
+    private Boolean hasNext;
+
+    EntityCursor(Session session, Criteria criteria, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+
+        this.session = session;
+        this.batchSize = batchSize;
+        criteria.setFetchSize(batchSize);
+        criteria.setReadOnly(true);
+        criteria.setCacheable(false);
+        criteria.setCacheMode(CacheMode.IGNORE);
+        results = criteria.scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (hasNext == null) {
+            if (readInBatch == batchSize) {
+                session.flush();
+                session.clear();
+                readInBatch = 0;
+            }
+            hasNext = results.next();
+        }
+
+        return hasNext;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        hasNext = null;
+        readInBatch++;
+        return (E) results.get(0);
+    }
+
+    boolean isBatchComplete() {
+        return readInBatch == batchSize;
+    }
+
+    @Override
+    public void close() {
+        results.close();
+    }
+
+}
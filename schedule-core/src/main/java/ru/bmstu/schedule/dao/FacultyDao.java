@@ -3,6 +3,8 @@ package ru.bmstu.schedule.dao;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.entity.Faculty;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 public class FacultyDao extends HibernateDao<Integer, Faculty> {
@@ -15,4 +17,8 @@ public class FacultyDao extends HibernateDao<Integer, Faculty> {
         return findUniqueByProperty("cipher", facultyCipher);
     }
 
+    public Map<String, Faculty> findAllByCiphers(Collection<String> ciphers) {
+        return mapByProperty("cipher", ciphers, Faculty::getCipher);
+    }
+
 }
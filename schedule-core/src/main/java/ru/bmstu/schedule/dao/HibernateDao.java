@@ -1,25 +1,52 @@
 package ru.bmstu.schedule.dao;
 
 import org.hibernate.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
 
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// DAOs keep no state besides the session factory and may be shared between threads.
+// Every thread works with its own current session: it is opened by the first call on that thread
+// and closed when the transaction ends, so returned entities are detached and must not be shared
+// between threads while being modified.
 public abstract class HibernateDao<PK extends Serializable, E> implements Dao<PK, E> {
 
+    private static final String QUERY_CACHE_REGION_PREFIX = "query.";
+    // Ids per DELETE statement of deleteAllByIds
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
     private final Class<E> persistentClass;
+    private final boolean cacheable;
     private SessionFactory sessionFactory;
 
     @SuppressWarnings("unchecked")
     public HibernateDao(SessionFactory factory) {
         persistentClass = (Class<E>) ((ParameterizedType) this.getClass().getGenericSuperclass()).getActualTypeArguments()[1];
+        cacheable = persistentClass.isAnnotationPresent(Cache.class);
         sessionFactory = factory;
     }
 
@@ -42,6 +69,125 @@ public abstract class HibernateDao<PK extends Serializable, E> implements Dao<PK
         );
     }
 
+    // Associations are lazy, the fetch profile names what has to be loaded with the entity in the same query
+    public Optional<E> findByKey(PK primaryKey, String fetchProfile) {
+        return composeWithFetchProfile(fetchProfile, session ->
+                Optional.ofNullable(session.get(persistentClass, primaryKey))
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<E> findAllByKeys(Collection<PK> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return composeInTransaction(session -> {
+            Criteria criteria = createEntityCriteria();
+            criteria.add(Restrictions.in(identifierProperty(), keys));
+            criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+            return (List<E>) criteria.list();
+        });
+    }
+
+    public List<E> findAllByKeys(Collection<PK> keys, String fetchProfile) {
+        return composeWithFetchProfile(fetchProfile, session -> findAllByKeys(keys));
+    }
+
+    // Specifications are executed by the database, only matching rows are loaded
+    @SuppressWarnings("unchecked")
+    public List<E> findAll(Specification<E> spec) {
+        return composeInTransaction(session ->
+                (List<E>) createSpecCriteria(spec, null).list()
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<E> findAll(Specification<E> spec, Page page) {
+        return composeInTransaction(session -> {
+            Criteria criteria = createSpecCriteria(spec, page.getOrders());
+            criteria.setFirstResult(page.getOffset());
+            criteria.setMaxResults(page.getSize());
+            return (List<E>) criteria.list();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    public Optional<E> findOne(Specification<E> spec) {
+        return composeInTransaction(session -> {
+            try {
+                return Optional.ofNullable((E) createSpecCriteria(spec, null).uniqueResult());
+            } catch (HibernateException e) {
+                e.printStackTrace();
+                return Optional.empty();
+            }
+        });
+    }
+
+    public long count(Specification<E> spec) {
+        return composeInTransaction(session -> {
+            DetachedCriteria matching = DetachedCriteria.forClass(persistentClass);
+            CriteriaPaths paths = new CriteriaPaths(matching);
+            matching.add(spec.toCriterion(paths));
+            matching.setProjection(paths.hasJoins() ? Projections.countDistinct(identifierProperty()) : Projections.rowCount());
+            return ((Number) withQueryCache(matching.getExecutableCriteria(session)).uniqueResult()).longValue();
+        });
+    }
+
+    // Full-table work in constant memory: the rows are read through a forward-only cursor and
+    // the session is cleared after every batch, so entities of earlier batches become detached
+    public void forEachBatch(int batchSize, Consumer<List<E>> consumer) {
+        forEachBatch(Specification.all(), batchSize, consumer);
+    }
+
+    public void forEachBatch(Specification<E> spec, int batchSize, Consumer<List<E>> consumer) {
+        consumeInTransaction(session -> {
+            try (EntityCursor<E> cursor = new EntityCursor<>(session, createSpecCriteria(spec, Collections.emptyList()), batchSize)) {
+                List<E> batch = new ArrayList<>(batchSize);
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (cursor.isBatchComplete()) {
+                        consumer.accept(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    consumer.accept(batch);
+                }
+            }
+        });
+    }
+
+    public Stream<E> stream() {
+        return stream(Specification.all(), EntityCursor.DEFAULT_FETCH_SIZE);
+    }
+
+    // The stream keeps the cursor and the transaction open until it is closed,
+    // so it must be consumed in try-with-resources
+    public Stream<E> stream(Specification<E> spec, int batchSize) {
+        Session session = getSession();
+        Transaction transaction = UnitOfWork.isActive(sessionFactory) ? null : session.beginTransaction();
+
+        EntityCursor<E> cursor;
+        try {
+            cursor = new EntityCursor<>(session, createSpecCriteria(spec, Collections.emptyList()), batchSize);
+        } catch (RuntimeException e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw e;
+        }
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    cursor.close();
+                    if (transaction != null && transaction.getStatus() == TransactionStatus.ACTIVE) {
+                        transaction.commit();
+                    }
+                });
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public PK create(E entity) {
@@ -50,6 +196,47 @@ public abstract class HibernateDao<PK extends Serializable, E> implements Dao<PK
         );
     }
 
+    @Override
+    public List<PK> createAll(Collection<E> entities) {
+        return createAll(entities, UnitOfWork.DEFAULT_BATCH_SIZE);
+    }
+
+    public List<PK> createAll(Collection<E> entities, int batchSize) {
+        return writeAll(entities, new String[0], batchSize);
+    }
+
+    // Rows with the same natural key (names of the properties of a unique constraint) are updated in place
+    @Override
+    public List<PK> upsertAll(Collection<E> entities, String... naturalKey) {
+        return upsertAll(entities, UnitOfWork.DEFAULT_BATCH_SIZE, naturalKey);
+    }
+
+    public List<PK> upsertAll(Collection<E> entities, int batchSize, String... naturalKey) {
+        if (naturalKey.length == 0) {
+            throw new IllegalArgumentException("Natural key of " + persistentClass.getSimpleName() + " is not specified");
+        }
+
+        return writeAll(entities, naturalKey, batchSize);
+    }
+
+    private List<PK> writeAll(Collection<E> entities, String[] naturalKey, int batchSize) {
+        if (entities.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<PK> ids = composeInTransaction(session ->
+                new BulkWriter<PK, E>(sessionFactory, persistentClass).write(session, entities, naturalKey, batchSize)
+        );
+
+        // The rows were written past the session, cached entities and queries may be stale
+        if (cacheable) {
+            sessionFactory.getCache().evictEntityRegion(persistentClass);
+            sessionFactory.getCache().evictQueryRegion(queryCacheRegion());
+        }
+
+        return ids;
+    }
+
     @Override
     public void update(E entity) {
         consumeInTransaction(session -> session.update(entity));
@@ -68,7 +255,28 @@ public abstract class HibernateDao<PK extends Serializable, E> implements Dao<PK
         });
     }
 
-    protected SessionFactory getSessionFactory() {
+    // Bulk delete, cascades of the mapping are not applied
+    @Override
+    public int deleteAllByIds(Collection<PK> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        List<PK> keyList = new ArrayList<>(keys);
+        return composeInTransaction(session -> {
+            Query query = session.createQuery("delete from " + getPersistentClass().getSimpleName() +
+                    " where " + identifierProperty() + " in (:ids)");
+            int deleted = 0;
+            for (int from = 0; from < keyList.size(); from += DELETE_CHUNK_SIZE) {
+                query.setParameterList("ids", keyList.subList(from, Math.min(from + DELETE_CHUNK_SIZE, keyList.size())));
+                deleted += query.executeUpdate();
+            }
+
+            return deleted;
+        });
+    }
+
+    public SessionFactory getSessionFactory() {
         return sessionFactory;
     }
 
@@ -81,6 +289,16 @@ public abstract class HibernateDao<PK extends Serializable, E> implements Dao<PK
         });
     }
 
+    // Entities having one of the values of the property, keyed by that value; for BatchLoader queries
+    protected <K> Map<K, E> mapByProperty(String propertyName, Collection<K> values, Function<E, K> keyOf) {
+        Map<K, E> found = new HashMap<>();
+        for (E entity : findAll(Specification.in(propertyName, values))) {
+            found.put(keyOf.apply(entity), entity);
+        }
+
+        return found;
+    }
+
     @SuppressWarnings("unchecked")
     protected Optional<E> findUniqueByProperty(String propertyName, Object value) {
         return composeInTransaction(session -> {
@@ -95,7 +313,8 @@ public abstract class HibernateDao<PK extends Serializable, E> implements Dao<PK
         });
     }
 
-    protected Stream<E> filter(Predicate<E> predicate) {
+    // Loads the whole table and filters it in memory, only for conditions a Specification can't express
+    protected Stream<E> filterInMemory(Predicate<E> predicate) {
         return findAll().stream().filter(predicate);
     }
 
@@ -106,24 +325,115 @@ public abstract class HibernateDao<PK extends Serializable, E> implements Dao<PK
         });
     }
 
+    protected <T> T composeWithFetchProfile(String fetchProfile, Function<Session, T> func) throws HibernateException {
+        return composeInTransaction(session -> {
+            if (session.isFetchProfileEnabled(fetchProfile)) {
+                return func.apply(session);
+            }
+
+            session.enableFetchProfile(fetchProfile);
+            try {
+                return func.apply(session);
+            } finally {
+                session.disableFetchProfile(fetchProfile);
+            }
+        });
+    }
+
     protected Session getSession() {
         return sessionFactory.getCurrentSession();
     }
 
+    // Queries of entities stored in the second-level cache are cached too, in a region of their own
     protected Criteria createEntityCriteria() {
-        return getSession().createCriteria(persistentClass);
+        return withQueryCache(getSession().createCriteria(persistentClass));
     }
 
-    protected <T> T composeInTransaction(Function<Session, T> func) throws HibernateException {
-        T entity;
-        Session session = getSession();
-        session.beginTransaction();
+    private Criteria withQueryCache(Criteria criteria) {
+        if (cacheable) {
+            criteria.setCacheable(true);
+            criteria.setCacheRegion(queryCacheRegion());
+        }
+
+        return criteria;
+    }
+
+    private Criteria createSpecCriteria(Specification<E> spec, List<Order> orders) {
+        DetachedCriteria matching = DetachedCriteria.forClass(persistentClass);
+        CriteriaPaths paths = new CriteriaPaths(matching);
+        matching.add(spec.toCriterion(paths));
+
+        Criteria criteria;
+        if (paths.hasJoins()) {
+            // Joins of collections repeat the root rows, so the entities are selected by the ids of the matching ones
+            matching.setProjection(Projections.distinct(Projections.id()));
+            criteria = createEntityCriteria().add(Subqueries.propertyIn(identifierProperty(), matching));
+        } else {
+            criteria = withQueryCache(matching.getExecutableCriteria(getSession()));
+        }
+
+        if (orders != null) {
+            // Orders get joins of their own, the joins of the specification belong to the id subquery
+            CriteriaPaths orderPaths = new CriteriaPaths(criteria);
+            for (Order order : orders) {
+                criteria.addOrder(resolveOrder(order, orderPaths));
+            }
+            if (orders.isEmpty()) {
+                criteria.addOrder(Order.asc(identifierProperty()));
+            }
+        }
 
-        entity = func.apply(session);
+        return criteria;
+    }
+
+    // Paths through to-one associations are joined, a path through a collection would repeat the rows
+    private Order resolveOrder(Order order, CriteriaPaths paths) {
+        String path = order.getPropertyName();
+        if (path.indexOf('.') < 0) {
+            return order;
+        }
+
+        ClassMetadata metadata = sessionFactory.getClassMetadata(persistentClass);
+        String[] parts = path.split("\\.");
+        for (int i = 0; i < parts.length - 1; i++) {
+            Type type = metadata.getPropertyType(parts[i]);
+            if (!type.isEntityType()) {
+                throw new IllegalArgumentException("Rows of " + persistentClass.getSimpleName() +
+                        " cannot be ordered by " + path + ": " + parts[i] + " is not a to-one association");
+            }
+            metadata = sessionFactory.getClassMetadata(((EntityType) type).getAssociatedEntityName());
+        }
+
+        String property = paths.resolve(path);
+        Order resolved = order.isAscending() ? Order.asc(property) : Order.desc(property);
+        return order.isIgnoreCase() ? resolved.ignoreCase() : resolved;
+    }
+
+    private String identifierProperty() {
+        return sessionFactory.getClassMetadata(persistentClass).getIdentifierPropertyName();
+    }
+
+    protected Query createEntityQuery(String hql) {
+        Query query = getSession().createQuery(hql);
+        if (cacheable) {
+            query.setCacheable(true);
+            query.setCacheRegion(queryCacheRegion());
+        }
+
+        return query;
+    }
 
-        session.getTransaction().commit();
-        return entity;
+    private String queryCacheRegion() {
+        return QUERY_CACHE_REGION_PREFIX + persistentClass.getSimpleName();
     }
 
+    // Joins the transaction of an enclosing UnitOfWork, if any
+    protected <T> T composeInTransaction(Function<Session, T> func) throws HibernateException {
+        if (!DaoMetrics.isEnabled()) {
+            return UnitOfWork.inTransaction(sessionFactory, func);
+        }
+
+        return DaoMetrics.measure(() -> DaoMetrics.daoMethod(getClass()), () -> UnitOfWork.inTransaction(sessionFactory, func));
+    }
 
 }
@@ -1,71 +1,113 @@
 package ru.bmstu.schedule.dao;
 
-import org.hibernate.Criteria;
 import org.hibernate.SessionFactory;
-import org.hibernate.criterion.Restrictions;
 import ru.bmstu.schedule.entity.Lecturer;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class LecturerDao extends HibernateDao<Integer, Lecturer> {
 
     private static final String UNKNOWN_LEC_NAME = "[UNKNOWN]";
+    private static final Object UNKNOWN_LEC_LOCK = new Object();
+    private static final Pattern INITIALS_PTR = Pattern.compile("(\\p{Lu}\\p{L}+) (\\p{Lu})[.] (\\p{Lu})[.]");
 
     public LecturerDao(SessionFactory factory) {
         super(factory);
     }
 
-    @SuppressWarnings("unchecked")
     public List<Lecturer> findByInitials(String initials) {
+        return initialsSpec(initials).map(this::findAll).orElse(Collections.emptyList());
+    }
+
+    public Optional<Lecturer> findFirstByInitials(String initials) {
+        return initialsSpec(initials)
+                .map(spec -> findAll(spec, Page.of(0, 1)))
+                .flatMap(found -> found.stream().findFirst());
+    }
+
+    // Lecturers of all the initials in one query, keyed by initials; initials may be shared by several lecturers
+    public Map<String, List<Lecturer>> findAllByInitials(Collection<String> initials) {
+        Set<String> lastNames = new HashSet<>();
+        for (String lecInitials : initials) {
+            Matcher matcher = INITIALS_PTR.matcher(lecInitials);
+            if (matcher.matches()) {
+                lastNames.add(matcher.group(1));
+            }
+        }
+
+        Map<String, List<Lecturer>> found = new HashMap<>();
+        if (lastNames.isEmpty()) {
+            return found;
+        }
+
+        for (Lecturer lecturer : findAll(Specification.in("lastName", lastNames))) {
+            if (initials.contains(lecturer.getInitials())) {
+                found.computeIfAbsent(lecturer.getInitials(), key -> new ArrayList<>()).add(lecturer);
+            }
+        }
+
+        return found;
+    }
+
+    private Optional<Specification<Lecturer>> initialsSpec(String initials) {
         if (initials == null)
-            return Collections.emptyList();
+            return Optional.empty();
 
-        Pattern ptr = Pattern.compile("(\\p{Lu}\\p{L}+) (\\p{Lu})[.] (\\p{Lu})[.]");
-        Matcher matcher = ptr.matcher(initials);
+        Matcher matcher = INITIALS_PTR.matcher(initials);
 
         if (matcher.matches() && matcher.groupCount() == 3) {
             String lastName = matcher.group(1);
             String fnLetter = matcher.group(2);
             String mnLetter = matcher.group(3);
 
-            return composeInTransaction(session -> {
-                Criteria criteria = createEntityCriteria();
-                criteria.add(Restrictions.eq("lastName", lastName));
-                criteria.add(Restrictions.like("firstName", fnLetter + "%"));
-                criteria.add(Restrictions.like("middleName", mnLetter + "%"));
-
-                return (List<Lecturer>) criteria.list();
-            });
+            return Optional.of(Specification.<Lecturer>eq("lastName", lastName)
+                    .and(Specification.startsWith("firstName", fnLetter))
+                    .and(Specification.startsWith("middleName", mnLetter)));
 
         } else {
-            return Collections.emptyList();
+            return Optional.empty();
         }
     }
 
-    public Optional<Lecturer> findFirstByInitials(String initials) {
-        List<Lecturer> found = findByInitials(initials);
-        return Optional.ofNullable(found.size() > 0 ? found.get(0) : null);
+    // Day parity is 'ЧС', 'ЗН' or 'ЧС/ЗН' for both weeks. The placeholder lecturer is always free.
+    public boolean isFree(int lecturerId, int dayOfWeekId, int classTimeId, String dayParity) {
+        return composeInTransaction(session ->
+                !Occupancy.isOccupied(session, Occupancy.LECTURERS, "lecturer_id", lecturerId, dayOfWeekId, classTimeId, dayParity)
+        );
+    }
+
+    // Classes of the lecturer in the numerator and the denominator weeks together,
+    // a class attended by several groups is counted once
+    public int countClasses(int lecturerId) {
+        return composeInTransaction(session ->
+                ((Number) session.createSQLQuery("SELECT count(*) FROM " + Occupancy.LECTURERS + " WHERE lecturer_id = :lecturer")
+                        .setParameter("lecturer", lecturerId)
+                        .uniqueResult()).intValue()
+        );
     }
 
+    // Serialized, so that parallel workers do not create the placeholder lecturer twice
     public Lecturer fetchUnknownLecturer() {
-        Optional<Lecturer> lecOpt = findUniqueByProperty("lastName", UNKNOWN_LEC_NAME);
-        Lecturer lec;
-        if(!lecOpt.isPresent()) {
-            lec = new Lecturer();
-            lec.setLastName(UNKNOWN_LEC_NAME);
-            lec.setMiddleName(UNKNOWN_LEC_NAME);
-            lec.setFirstName(UNKNOWN_LEC_NAME);
-            Integer lecId = create(lec);
-            lec.setId(lecId);
-        } else {
-            lec = lecOpt.get();
-        }
+        synchronized (UNKNOWN_LEC_LOCK) {
+            return composeInTransaction(session -> {
+                Optional<Lecturer> lecOpt = findUniqueByProperty("lastName", UNKNOWN_LEC_NAME);
+                Lecturer lec;
+                if (!lecOpt.isPresent()) {
+                    lec = new Lecturer();
+                    lec.setLastName(UNKNOWN_LEC_NAME);
+                    lec.setMiddleName(UNKNOWN_LEC_NAME);
+                    lec.setFirstName(UNKNOWN_LEC_NAME);
+                    Integer lecId = create(lec);
+                    lec.setId(lecId);
+                } else {
+                    lec = lecOpt.get();
+                }
 
-        return lec;
+                return lec;
+            });
+        }
     }
 
 }
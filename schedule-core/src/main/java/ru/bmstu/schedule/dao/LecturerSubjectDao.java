@@ -1,11 +1,9 @@
 package ru.bmstu.schedule.dao;
 
-import org.hibernate.Criteria;
-import org.hibernate.HibernateException;
 import org.hibernate.SessionFactory;
-import org.hibernate.criterion.Restrictions;
 import ru.bmstu.schedule.entity.*;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -16,33 +14,27 @@ public class LecturerSubjectDao extends HibernateDao<Integer, LecturerSubject> {
         super(factory);
     }
 
-    @SuppressWarnings("unchecked")
     public List<LecturerSubject> findByLecturerAndDepartmentSubject(Lecturer lecturer, DepartmentSubject departmentSubject) {
         if (lecturer == null || departmentSubject == null) {
             return Collections.emptyList();
         }
 
-        return composeInTransaction(session -> {
-            Criteria criteria = session.createCriteria(LecturerSubject.class);
-            criteria.add(Restrictions.eq("lecturer", lecturer));
-            criteria.add(Restrictions.eq("departmentSubject", departmentSubject));
-            return (List<LecturerSubject>) criteria.list();
-        });
+        return findAll(Specification.<LecturerSubject>eq("lecturer", lecturer)
+                .and(Specification.eq("departmentSubject", departmentSubject)));
+    }
+
+    public List<LecturerSubject> findAllByDepartmentSubjectIds(Collection<Integer> departmentSubjectIds) {
+        if (departmentSubjectIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return findAll(Specification.in("departmentSubject.id", departmentSubjectIds));
     }
 
     public Optional<LecturerSubject> findByLecturerAndDepartmentSubjectAndClassType(Lecturer lecturer, DepartmentSubject subject, ClassType classType) {
-        return Optional.ofNullable(composeInTransaction(session -> {
-            try {
-                Criteria criteria = session.createCriteria(LecturerSubject.class);
-                criteria.add(Restrictions.eq("lecturer", lecturer));
-                criteria.add(Restrictions.eq("departmentSubject", subject));
-                criteria.add(Restrictions.eq("classType", classType));
-
-                return (LecturerSubject) criteria.uniqueResult();
-            } catch (HibernateException e) {
-                return null;
-            }
-        }));
+        return findOne(Specification.<LecturerSubject>eq("lecturer", lecturer)
+                .and(Specification.eq("departmentSubject", subject))
+                .and(Specification.eq("classType", classType)));
     }
 
 }
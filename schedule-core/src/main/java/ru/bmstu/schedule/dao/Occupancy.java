@@ -0,0 +1,50 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.Session;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Lookups in the occupancy tables kept up to date by triggers (see create_tables.sql).
+// The tables hold one row per week, a class held every week takes both of them.
+final class Occupancy {
+
+    static final String ROOMS = "room_occupancy";
+    static final String LECTURERS = "lecturer_occupancy";
+
+    private static final String EVERY_WEEK = "ЧС/ЗН";
+    private static final List<String> WEEKS = Arrays.asList("ЧС", "ЗН");
+
+    private Occupancy() {
+    }
+
+    static List<String> weekParities(String dayParity) {
+        if (dayParity == null) {
+            throw new IllegalArgumentException("Day parity is required");
+        }
+
+        String parity = dayParity.trim();
+        if (parity.equals(EVERY_WEEK)) {
+            return WEEKS;
+        }
+        if (!WEEKS.contains(parity)) {
+            throw new IllegalArgumentException("Unknown day parity: " + dayParity);
+        }
+
+        return Collections.singletonList(parity);
+    }
+
+    // A primary key lookup per week
+    static boolean isOccupied(Session session, String table, String column, int id,
+                              int dayOfWeekId, int classTimeId, String dayParity) {
+        return session.createSQLQuery("SELECT 1 FROM " + table + " WHERE " + column + " = :id " +
+                "AND weak_id = :day AND class_time_id = :time AND week_parity IN (:parities) LIMIT 1")
+                .setParameter("id", id)
+                .setParameter("day", dayOfWeekId)
+                .setParameter("time", classTimeId)
+                .setParameterList("parities", weekParities(dayParity))
+                .uniqueResult() != null;
+    }
+
+}
@@ -0,0 +1,53 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.criterion.Order;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Window of query results. Without an explicit order the rows are ordered by identifier,
+// so that consecutive pages do not overlap.
+public final class Page {
+
+    private final int offset;
+    private final int size;
+    private final List<Order> orders;
+
+    private Page(int offset, int size, List<Order> orders) {
+        this.offset = offset;
+        this.size = size;
+        this.orders = orders;
+    }
+
+    public static Page of(int pageNumber, int pageSize) {
+        if (pageNumber < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid page: number %d, size %d", pageNumber, pageSize));
+        }
+
+        return new Page(pageNumber * pageSize, pageSize, Collections.emptyList());
+    }
+
+    public Page orderBy(Order order) {
+        List<Order> newOrders = new ArrayList<>(orders);
+        newOrders.add(order);
+        return new Page(offset, size, newOrders);
+    }
+
+    public Page next() {
+        return new Page(offset + size, size, orders);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public List<Order> getOrders() {
+        return Collections.unmodifiableList(orders);
+    }
+
+}
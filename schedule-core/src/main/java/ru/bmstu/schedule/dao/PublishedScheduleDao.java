@@ -0,0 +1,105 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.SessionFactory;
+import ru.bmstu.schedule.entity.PublishedSchedule;
+import ru.bmstu.schedule.entity.StudyGroup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class PublishedScheduleDao extends HibernateDao<Integer, PublishedSchedule> {
+
+    public PublishedScheduleDao(SessionFactory factory) {
+        super(factory);
+    }
+
+    public int nextVersion() {
+        return composeInTransaction(session ->
+                ((Number) session.createSQLQuery("SELECT nextval('schedule_version_seq')").uniqueResult()).intValue()
+        );
+    }
+
+    // Switches all the groups to the given version at once, a newer published version is never replaced.
+    public void publish(Collection<StudyGroup> groups, int version) {
+        if (groups.isEmpty()) {
+            return;
+        }
+
+        List<Integer> groupIds = new ArrayList<>();
+        for (StudyGroup group : groups) {
+            groupIds.add(group.getId());
+        }
+
+        consumeInTransaction(session ->
+                session.createSQLQuery("INSERT INTO published_schedule (group_id, schedule_version) " +
+                        "SELECT group_id, :version FROM study_group WHERE group_id IN (:groups) " +
+                        "ON CONFLICT (group_id) DO UPDATE SET schedule_version = EXCLUDED.schedule_version " +
+                        "WHERE published_schedule.schedule_version < EXCLUDED.schedule_version")
+                        .setParameter("version", version)
+                        .setParameterList("groups", groupIds)
+                        .executeUpdate()
+        );
+    }
+
+    // Removes the rows of an unpublished version of the given groups, e.g. when its publishing has failed.
+    // Returns the number of removed days.
+    public int deleteVersion(Collection<StudyGroup> groups, int version) {
+        if (groups.isEmpty()) {
+            return 0;
+        }
+
+        List<Integer> groupIds = new ArrayList<>();
+        for (StudyGroup group : groups) {
+            groupIds.add(group.getId());
+        }
+
+        return composeInTransaction(session -> {
+            session.createSQLQuery("DELETE FROM schedule_item_parity sip " +
+                    "USING schedule_item si, schedule_day sd " +
+                    "WHERE sip.schedule_item_id = si.schedule_item_id AND si.day_id = sd.day_id " +
+                    "AND sip.semester = si.semester AND si.semester = sd.semester " +
+                    "AND sd.group_id IN (:groups) AND sd.schedule_version = :version")
+                    .setParameterList("groups", groupIds)
+                    .setParameter("version", version)
+                    .executeUpdate();
+            session.createSQLQuery("DELETE FROM schedule_item si " +
+                    "USING schedule_day sd " +
+                    "WHERE si.day_id = sd.day_id AND si.semester = sd.semester " +
+                    "AND sd.group_id IN (:groups) AND sd.schedule_version = :version")
+                    .setParameterList("groups", groupIds)
+                    .setParameter("version", version)
+                    .executeUpdate();
+
+            return session.createSQLQuery("DELETE FROM schedule_day sd " +
+                    "WHERE sd.group_id IN (:groups) AND sd.schedule_version = :version")
+                    .setParameterList("groups", groupIds)
+                    .setParameter("version", version)
+                    .executeUpdate();
+        });
+    }
+
+    // Removes the schedule rows older than the published version of their group, returns the number of removed days.
+    // Rows are joined on the semester as well, which lets partitioned tables be joined partition by partition.
+    public int deleteObsoleteVersions() {
+        return composeInTransaction(session -> {
+            session.createSQLQuery("DELETE FROM schedule_item_parity sip " +
+                    "USING schedule_item si, schedule_day sd, published_schedule ps " +
+                    "WHERE sip.schedule_item_id = si.schedule_item_id AND si.day_id = sd.day_id " +
+                    "AND sip.semester = si.semester AND si.semester = sd.semester " +
+                    "AND sd.group_id = ps.group_id AND sd.schedule_version < ps.schedule_version")
+                    .executeUpdate();
+            session.createSQLQuery("DELETE FROM schedule_item si " +
+                    "USING schedule_day sd, published_schedule ps " +
+                    "WHERE si.day_id = sd.day_id AND si.semester = sd.semester " +
+                    "AND sd.group_id = ps.group_id AND sd.schedule_version < ps.schedule_version")
+                    .executeUpdate();
+
+            return session.createSQLQuery("DELETE FROM schedule_day sd " +
+                    "USING published_schedule ps " +
+                    "WHERE sd.group_id = ps.group_id AND sd.schedule_version < ps.schedule_version")
+                    .executeUpdate();
+        });
+    }
+
+}
@@ -3,10 +3,74 @@ package ru.bmstu.schedule.dao;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.entity.ScheduleDay;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
 public class ScheduleDayDao extends HibernateDao<Integer, ScheduleDay> {
 
     public ScheduleDayDao(SessionFactory factory) {
         super(factory);
     }
 
+    // Creates the missing partitions of the semesters in a transaction of its own, so it must not be called
+    // inside a UnitOfWork; a unit writing the schedules of a new semester calls it before it starts.
+    public void preparePartitions(Collection<Integer> semesters) throws IllegalStateException {
+        if (UnitOfWork.isActive(getSessionFactory())) {
+            throw new IllegalStateException("Partitions of the schedule tables cannot be created inside a unit of work");
+        }
+
+        SchedulePartitions.prepare(getSessionFactory(), semesters);
+    }
+
+    // Saves days with their items and parities in one transaction using JDBC batches.
+    // Ids come from pooled sequences, so Hibernate batches the inserts itself and applies the cascades.
+    // Inside a UnitOfWork the partitions of the semesters have to be prepared beforehand (see preparePartitions).
+    @Override
+    public List<Integer> createAll(Collection<ScheduleDay> scheduleDays, int batchSize) {
+        Set<Integer> semesters = new TreeSet<>();
+        for (ScheduleDay scheduleDay : scheduleDays) {
+            semesters.add(scheduleDay.getSemester());
+        }
+        if (UnitOfWork.isActive(getSessionFactory())) {
+            SchedulePartitions.checkPrepared(getSession(), semesters);
+        } else {
+            SchedulePartitions.prepare(getSessionFactory(), semesters);
+        }
+
+        UnitOfWork unitOfWork = new UnitOfWork(getSessionFactory(), batchSize);
+        return unitOfWork.call(session -> {
+            List<Integer> ids = new ArrayList<>(scheduleDays.size());
+            for (ScheduleDay scheduleDay : scheduleDays) {
+                ids.add((Integer) session.save(scheduleDay));
+                unitOfWork.written();
+            }
+
+            return ids;
+        });
+    }
+
+    // Removes the schedules of a past semester, returns the number of removed days.
+    // Partitioned tables drop the partitions of the semester, plain ones delete its rows.
+    public int deleteSemester(int semester) {
+        return composeInTransaction(session -> {
+            if (SchedulePartitions.isPartitioned(session)) {
+                return SchedulePartitions.drop(session, semester);
+            }
+
+            session.createSQLQuery("DELETE FROM schedule_item_parity WHERE semester = :semester")
+                    .setParameter("semester", semester)
+                    .executeUpdate();
+            session.createSQLQuery("DELETE FROM schedule_item WHERE semester = :semester")
+                    .setParameter("semester", semester)
+                    .executeUpdate();
+
+            return session.createSQLQuery("DELETE FROM schedule_day WHERE semester = :semester")
+                    .setParameter("semester", semester)
+                    .executeUpdate();
+        });
+    }
+
 }
@@ -0,0 +1,74 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.util.Collection;
+
+// Partitions of the schedule tables by semester, present when the database was converted with
+// partition_schedule.sql. Without them the tables are plain and the semester is an ordinary column.
+final class SchedulePartitions {
+
+    private SchedulePartitions() {
+    }
+
+    static boolean isPartitioned(Session session) {
+        return (Boolean) session.createSQLQuery("SELECT EXISTS (SELECT 1 FROM pg_partitioned_table " +
+                "WHERE partrelid = to_regclass('schedule_day'))")
+                .uniqueResult();
+    }
+
+    // Missing partitions are created in a short transaction of their own: attaching a partition locks
+    // the referenced tables until commit, which must not wait for the schedules written afterwards.
+    static void prepare(SessionFactory factory, Collection<Integer> semesters) {
+        if (semesters.isEmpty()) {
+            return;
+        }
+
+        try (Session session = factory.openSession()) {
+            if (!isPartitioned(session)) {
+                return;
+            }
+
+            Transaction transaction = session.beginTransaction();
+            try {
+                for (Integer semester : semesters) {
+                    session.createSQLQuery("SELECT 1 FROM create_schedule_partitions(:semester)")
+                            .setParameter("semester", semester)
+                            .uniqueResult();
+                }
+                transaction.commit();
+            } catch (RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Inside an open transaction the partitions can only be checked: attaching one needs locks on the tables
+    // referenced by the schedule, which the transaction may already hold, so prepare() would wait for itself.
+    static void checkPrepared(Session session, Collection<Integer> semesters) {
+        if (semesters.isEmpty() || !isPartitioned(session)) {
+            return;
+        }
+
+        for (Integer semester : semesters) {
+            boolean exists = (Boolean) session.createSQLQuery("SELECT to_regclass('schedule_item_parity_' || :semester) IS NOT NULL")
+                    .setParameter("semester", semester)
+                    .uniqueResult();
+            if (!exists) {
+                throw new IllegalStateException("Partitions of semester " + semester + " are not created, " +
+                        "they have to be prepared before the transaction that writes the schedules");
+            }
+        }
+    }
+
+    // Returns the number of removed days
+    static int drop(Session session, int semester) {
+        return ((Number) session.createSQLQuery("SELECT drop_schedule_partitions(:semester)")
+                .setParameter("semester", semester)
+                .uniqueResult()).intValue();
+    }
+
+}
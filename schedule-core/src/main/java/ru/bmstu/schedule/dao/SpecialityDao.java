@@ -3,6 +3,8 @@ package ru.bmstu.schedule.dao;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.entity.Speciality;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 public class SpecialityDao extends HibernateDao<Integer, Speciality> {
@@ -15,4 +17,8 @@ public class SpecialityDao extends HibernateDao<Integer, Speciality> {
         return findUniqueByProperty("code", specCode);
     }
 
+    public Map<String, Speciality> findAllByCodes(Collection<String> codes) {
+        return mapByProperty("code", codes, Speciality::getCode);
+    }
+
 }
@@ -4,7 +4,7 @@ import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.entity.Specialization;
 
-import java.util.Optional;
+import java.util.*;
 
 public class SpecializationDao extends HibernateDao<Integer, Specialization> {
 
@@ -13,16 +13,59 @@ public class SpecializationDao extends HibernateDao<Integer, Specialization> {
     }
 
     public Optional<Specialization> findByCode(String specializationCode) {
+        Optional<Ciphers.SpecializationCode> specCodeOpt = Ciphers.parseSpecialization(specializationCode);
+        if (!specCodeOpt.isPresent())
+            return Optional.empty();
+
+        Ciphers.SpecializationCode specCode = specCodeOpt.get();
         return Optional.ofNullable(
                 composeInTransaction(session -> {
                     Query specQuery = session.createQuery(
-                            "SELECT s FROM Specialization s JOIN FETCH s.speciality " +
-                                    "WHERE CONCAT(s.speciality.code, '_', CAST(s.numberInSpeciality AS string)) = :code"
+                            "SELECT s FROM Specialization s JOIN FETCH s.speciality st " +
+                                    "WHERE st.code = :code AND s.numberInSpeciality = :number"
                     );
-                    specQuery.setParameter("code", specializationCode);
+                    specQuery.setParameter("code", specCode.getSpecialityCode());
+                    specQuery.setParameter("number", specCode.getNumberInSpeciality());
                     return (Specialization) specQuery.uniqueResult();
                 })
         );
     }
 
+    // Specializations of all the codes in one query, keyed by code ('09.03.04_1')
+    @SuppressWarnings("unchecked")
+    public Map<String, Specialization> findAllByCodes(Collection<String> specializationCodes) {
+        Set<String> specialityCodes = new HashSet<>();
+        Set<Integer> numbers = new HashSet<>();
+        for (String code : specializationCodes) {
+            Ciphers.parseSpecialization(code).ifPresent(specCode -> {
+                specialityCodes.add(specCode.getSpecialityCode());
+                numbers.add(specCode.getNumberInSpeciality());
+            });
+        }
+
+        Map<String, Specialization> found = new HashMap<>();
+        if (specialityCodes.isEmpty()) {
+            return found;
+        }
+
+        List<Specialization> specs = composeInTransaction(session -> {
+            Query specQuery = session.createQuery(
+                    "SELECT s FROM Specialization s JOIN FETCH s.speciality st " +
+                            "WHERE st.code IN (:codes) AND s.numberInSpeciality IN (:numbers)"
+            );
+            specQuery.setParameterList("codes", specialityCodes);
+            specQuery.setParameterList("numbers", numbers);
+            return (List<Specialization>) specQuery.list();
+        });
+
+        for (Specialization spec : specs) {
+            String code = spec.getSpeciality().getCode() + "_" + spec.getNumberInSpeciality();
+            if (specializationCodes.contains(code)) {
+                found.put(code, spec);
+            }
+        }
+
+        return found;
+    }
+
 }
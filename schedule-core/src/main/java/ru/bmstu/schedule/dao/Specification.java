@@ -0,0 +1,61 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Restrictions;
+
+import java.util.Collection;
+
+// Condition on entities of type E, translated to a Criteria restriction and executed by the database.
+// Paths may go through associations, e.g. "departmentSubject.department.faculty.cipher": every
+// association on the way is joined once per query.
+@FunctionalInterface
+public interface Specification<E> {
+
+    Criterion toCriterion(CriteriaPaths paths);
+
+    default Specification<E> and(Specification<E> other) {
+        return paths -> Restrictions.and(toCriterion(paths), other.toCriterion(paths));
+    }
+
+    default Specification<E> or(Specification<E> other) {
+        return paths -> Restrictions.or(toCriterion(paths), other.toCriterion(paths));
+    }
+
+    static <E> Specification<E> not(Specification<E> spec) {
+        return paths -> Restrictions.not(spec.toCriterion(paths));
+    }
+
+    static <E> Specification<E> all() {
+        return paths -> Restrictions.sqlRestriction("1=1");
+    }
+
+    static <E> Specification<E> eq(String path, Object value) {
+        if (value == null) {
+            return isNull(path);
+        }
+
+        return paths -> Restrictions.eq(paths.resolve(path), value);
+    }
+
+    static <E> Specification<E> like(String path, String pattern) {
+        return paths -> Restrictions.like(paths.resolve(path), pattern);
+    }
+
+    static <E> Specification<E> startsWith(String path, String prefix) {
+        return paths -> Restrictions.like(paths.resolve(path), prefix, MatchMode.START);
+    }
+
+    static <E> Specification<E> in(String path, Collection<?> values) {
+        if (values.isEmpty()) {
+            return paths -> Restrictions.sqlRestriction("1=0");
+        }
+
+        return paths -> Restrictions.in(paths.resolve(path), values);
+    }
+
+    static <E> Specification<E> isNull(String path) {
+        return paths -> Restrictions.isNull(paths.resolve(path));
+    }
+
+}
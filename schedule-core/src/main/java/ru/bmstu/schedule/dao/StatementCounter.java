@@ -0,0 +1,16 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Registered in hibernate.cfg.xml, counts the statements of the running DAO operation (see DaoMetrics)
+public class StatementCounter implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String inspect(String sql) {
+        DaoMetrics.statementPrepared(sql);
+        return sql;
+    }
+
+}
@@ -2,11 +2,15 @@ package ru.bmstu.schedule.dao;
 
 import org.hibernate.Query;
 import org.hibernate.SessionFactory;
+import ru.bmstu.schedule.dto.TimetableRow;
 import ru.bmstu.schedule.entity.StudyGroup;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class StudyGroupDao extends HibernateDao<Integer, StudyGroup> {
 
@@ -15,54 +19,111 @@ public class StudyGroupDao extends HibernateDao<Integer, StudyGroup> {
     }
 
     public Optional<StudyGroup> findByCipher(String cipher) {
-        // (1) facultyCipher,  (2) department number,  (3) term number,  (4) group number,  (5) degree
-        Pattern ptr = Pattern.compile("(\\p{Lu}+)(\\d+)?-(\\d+?)(\\d)(\\p{Lu})?");
-        Matcher matcher = ptr.matcher(cipher);
-
-        if (!matcher.matches() || matcher.groupCount() != 5 || matcher.group(1) == null || matcher.group(3) == null || matcher.group(4) == null)
+        Optional<Ciphers.GroupCipher> grCipherOpt = Ciphers.parseGroup(cipher);
+        if (!grCipherOpt.isPresent())
             return Optional.empty();
 
+        Ciphers.GroupCipher grCipher = grCipherOpt.get();
         return Optional.ofNullable(composeInTransaction(session -> {
             Query query = session.createQuery(
                     "SELECT gr FROM StudyGroup gr " +
-                            "LEFT JOIN gr.calendar c " +
-                            "LEFT JOIN gr.term t " +
-                            "LEFT JOIN gr.calendar.departmentSpecialization ds " +
-                            "LEFT JOIN gr.calendar.departmentSpecialization.department dept " +
-                            "LEFT JOIN gr.calendar.departmentSpecialization.department.faculty fact " +
-                            "LEFT JOIN gr.calendar.departmentSpecialization.specialization.speciality " +
-                            "LEFT JOIN gr.calendar.departmentSpecialization.specialization.speciality.degree deg " +
-                            "WHERE CONCAT(fact.cipher, CAST(dept.number AS string), '-', CAST(t.number AS string), gr.number) = :group " +
+                            "JOIN gr.term t " +
+                            "JOIN gr.calendar c " +
+                            "JOIN c.departmentSpecialization ds " +
+                            "JOIN ds.department dept " +
+                            "JOIN dept.faculty fact " +
+                            "JOIN ds.specialization spec " +
+                            "JOIN spec.speciality st " +
+                            "JOIN st.degree deg " +
+                            "WHERE fact.cipher = :faculty AND dept.number = :department " +
+                            "AND t.number = :term AND gr.number = :group " +
                             "AND deg.name = :degree"
             );
-            String grCipher;
-            String degreeName;
-            char degreeLetter;
-            if (matcher.group(5) == null) {
-                grCipher = matcher.group();
-                degreeLetter = 'Б';
-            } else {
-                String grCipherWithDegree = matcher.group();
-                grCipher = grCipherWithDegree.substring(0, grCipherWithDegree.length() - 1);
-                degreeLetter = matcher.group(5).charAt(0);
-            }
-
-            switch (degreeLetter) {
-                case 'А':
-                    degreeName = "Исследователь. Преподаватель-исследователь";
-                    break;
-                case 'М':
-                    degreeName = "Магистр";
-                    break;
-                default:
-                    degreeName = "Бакалавр";
-                    break;
-            }
-            query.setParameter("group", grCipher);
-            query.setParameter("degree", degreeName);
+            query.setParameter("faculty", grCipher.getDepartment().getFacultyCipher());
+            query.setParameter("department", grCipher.getDepartment().getNumber());
+            query.setParameter("term", grCipher.getTermNumber());
+            query.setParameter("group", grCipher.getGroupNumber());
+            query.setParameter("degree", grCipher.getDegreeName());
 
             return (StudyGroup) query.uniqueResult();
         }));
     }
 
+    public List<TimetableRow> findTimetable(int groupId) {
+        return findTimetable(Collections.singletonList(groupId));
+    }
+
+    // Published timetables of the groups in one query, ordered by group, day, class time and parity.
+    // The semesters of the groups are looked up first, so that only their partitions are read.
+    @SuppressWarnings("unchecked")
+    public List<TimetableRow> findTimetable(Collection<Integer> groupIds) {
+        if (groupIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return composeInTransaction(session -> {
+            Query semesterQuery = session.createQuery(
+                    "SELECT DISTINCT c.startYear, t.number FROM StudyGroup gr " +
+                            "JOIN gr.calendar c " +
+                            "JOIN gr.term t " +
+                            "WHERE gr.id IN (:groups)"
+            );
+            semesterQuery.setParameterList("groups", groupIds);
+
+            Set<Integer> semesters = new TreeSet<>();
+            for (Object[] row : (List<Object[]>) semesterQuery.list()) {
+                semesters.add(StudyGroup.semesterOf((Integer) row[0], (Integer) row[1]));
+            }
+            if (semesters.isEmpty()) {
+                return Collections.<TimetableRow>emptyList();
+            }
+
+            Query query = session.createQuery(timetableHql("WHERE gr.id IN (:groups) AND sd.semester IN (:semesters) AND "));
+            query.setParameterList("groups", groupIds);
+            query.setParameterList("semesters", semesters);
+
+            return (List<TimetableRow>) query.list();
+        });
+    }
+
+    // Published timetables of all the groups, e.g. to build a ScheduleIndex
+    @SuppressWarnings("unchecked")
+    public List<TimetableRow> findAllTimetables() {
+        return composeInTransaction(session ->
+                (List<TimetableRow>) session.createQuery(timetableHql("WHERE ")).list()
+        );
+    }
+
+    // Published timetables of the groups of one semester, e.g. of the live term (see StudyGroup.getSemester)
+    @SuppressWarnings("unchecked")
+    public List<TimetableRow> findAllTimetables(int semester) {
+        return composeInTransaction(session ->
+                (List<TimetableRow>) session.createQuery(timetableHql("WHERE sd.semester = :semester AND "))
+                        .setParameter("semester", semester)
+                        .list()
+        );
+    }
+
+    private static String timetableHql(String groupCondition) {
+        return "SELECT NEW ru.bmstu.schedule.dto.TimetableRow(" +
+                "gr.id, dow.id, dow.name, dow.shortName, ct.id, ct.noOfClass, ct.startsAt, ct.endsAt, sip.dayParity, " +
+                "subj.name, lec.id, lec.lastName, lec.firstName, lec.middleName, cr.id, cr.roomNumber, ctype.name) " +
+                "FROM ScheduleDay sd " +
+                "JOIN sd.studyGroup gr " +
+                "JOIN sd.dayOfWeek dow " +
+                "LEFT JOIN sd.scheduleItems si WITH si.semester = sd.semester " +
+                "LEFT JOIN si.classTime ct " +
+                "LEFT JOIN si.scheduleItemParities sip WITH sip.semester = si.semester " +
+                "LEFT JOIN sip.lecturerSubject ls " +
+                "LEFT JOIN ls.departmentSubject ds " +
+                "LEFT JOIN ds.subject subj " +
+                "LEFT JOIN ls.lecturer lec " +
+                "LEFT JOIN sip.classroom cr " +
+                "LEFT JOIN sip.classType ctype " +
+                groupCondition +
+                "sd.scheduleVersion = COALESCE(" +
+                "(SELECT ps.scheduleVersion FROM PublishedSchedule ps WHERE ps.groupId = gr.id), 0) " +
+                "ORDER BY gr.id, dow.id, ct.startsAt, sip.dayParity";
+    }
+
 }
@@ -3,6 +3,8 @@ package ru.bmstu.schedule.dao;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.entity.Subject;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 public class SubjectDao extends HibernateDao<Integer, Subject> {
@@ -15,4 +17,8 @@ public class SubjectDao extends HibernateDao<Integer, Subject> {
         return findUniqueByProperty("name", name);
     }
 
+    public Map<String, Subject> findAllByNames(Collection<String> names) {
+        return mapByProperty("name", names, Subject::getName);
+    }
+
 }
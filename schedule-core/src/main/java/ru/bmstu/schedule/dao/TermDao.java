@@ -3,6 +3,8 @@ package ru.bmstu.schedule.dao;
 import org.hibernate.SessionFactory;
 import ru.bmstu.schedule.entity.Term;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 public class TermDao extends HibernateDao<Integer, Term> {
@@ -15,4 +17,8 @@ public class TermDao extends HibernateDao<Integer, Term> {
         return findUniqueByProperty("number", number);
     }
 
+    public Map<Integer, Term> findAllByNumbers(Collection<Integer> numbers) {
+        return mapByProperty("number", numbers, Term::getNumber);
+    }
+
 }
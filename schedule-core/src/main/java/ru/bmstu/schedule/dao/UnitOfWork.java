@@ -0,0 +1,91 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Runs several DAO calls in one session and transaction. DAO methods called inside the unit
+// join its transaction instead of committing on their own, so everything is committed once.
+// A unit belongs to the thread that runs it; parallel workers create a unit each.
+public class UnitOfWork {
+
+    // Same as hibernate.jdbc.batch_size
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final SessionFactory sessionFactory;
+    private final int batchSize;
+    private int pendingWrites;
+
+    public UnitOfWork(SessionFactory factory) {
+        this(factory, DEFAULT_BATCH_SIZE);
+    }
+
+    public UnitOfWork(SessionFactory factory, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+
+        this.sessionFactory = factory;
+        this.batchSize = batchSize;
+    }
+
+    public void run(Consumer<Session> work) throws HibernateException {
+        call(session -> {
+            work.accept(session);
+            return null;
+        });
+    }
+
+    public <T> T call(Function<Session, T> work) throws HibernateException {
+        if (!DaoMetrics.isEnabled()) {
+            return inTransaction(sessionFactory, work);
+        }
+
+        return DaoMetrics.measure(() -> DaoMetrics.callerOf(UnitOfWork.class), () -> inTransaction(sessionFactory, work));
+    }
+
+    // Counts one written entity and flushes the session once a whole JDBC batch is pending.
+    // The session is cleared as well, so entities saved before become detached.
+    public void written() {
+        if (++pendingWrites < batchSize) {
+            return;
+        }
+
+        Session session = sessionFactory.getCurrentSession();
+        session.flush();
+        session.clear();
+        pendingWrites = 0;
+    }
+
+    public static boolean isActive(SessionFactory factory) {
+        Transaction transaction = factory.getCurrentSession().getTransaction();
+        return transaction != null && transaction.getStatus() == TransactionStatus.ACTIVE;
+    }
+
+    // Joins the transaction of the current session if there is one, otherwise begins and commits
+    // a new one. Failed work rolls back only the transaction it has begun itself.
+    static <T> T inTransaction(SessionFactory factory, Function<Session, T> work) throws HibernateException {
+        Session session = factory.getCurrentSession();
+        if (isActive(factory)) {
+            return work.apply(session);
+        }
+
+        Transaction transaction = session.beginTransaction();
+        try {
+            T result = work.apply(session);
+            transaction.commit();
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (transaction.getStatus().canRollback()) {
+                transaction.rollback();
+            }
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package ru.bmstu.schedule.dto;
+
+import java.util.Objects;
+
+// Lecturer who may give classes of the given type on a subject of a department.
+public class LecturerAssignment {
+
+    private final int lecturerId;
+    private final int subjectId;
+    private final int departmentSubjectId;
+    private final String classTypeName;
+
+    public LecturerAssignment(int lecturerId, int subjectId, int departmentSubjectId, String classTypeName) {
+        this.lecturerId = lecturerId;
+        this.subjectId = subjectId;
+        this.departmentSubjectId = departmentSubjectId;
+        this.classTypeName = classTypeName;
+    }
+
+    public int getLecturerId() {
+        return lecturerId;
+    }
+
+    public int getSubjectId() {
+        return subjectId;
+    }
+
+    public int getDepartmentSubjectId() {
+        return departmentSubjectId;
+    }
+
+    public String getClassTypeName() {
+        return classTypeName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LecturerAssignment that = (LecturerAssignment) o;
+        return lecturerId == that.lecturerId &&
+                subjectId == that.subjectId &&
+                departmentSubjectId == that.departmentSubjectId &&
+                Objects.equals(classTypeName, that.classTypeName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lecturerId, subjectId, departmentSubjectId, classTypeName);
+    }
+
+}
@@ -0,0 +1,52 @@
+package ru.bmstu.schedule.dto;
+
+import java.util.Objects;
+
+// Hours of one class type of a subject in a term of a calendar.
+public class SubjectHours {
+
+    private final int subjectId;
+    private final int departmentSubjectId;
+    private final String classTypeName;
+    private final int noOfHours;
+
+    public SubjectHours(int subjectId, int departmentSubjectId, String classTypeName, int noOfHours) {
+        this.subjectId = subjectId;
+        this.departmentSubjectId = departmentSubjectId;
+        this.classTypeName = classTypeName;
+        this.noOfHours = noOfHours;
+    }
+
+    public int getSubjectId() {
+        return subjectId;
+    }
+
+    public int getDepartmentSubjectId() {
+        return departmentSubjectId;
+    }
+
+    public String getClassTypeName() {
+        return classTypeName;
+    }
+
+    public int getNoOfHours() {
+        return noOfHours;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SubjectHours that = (SubjectHours) o;
+        return subjectId == that.subjectId &&
+                departmentSubjectId == that.departmentSubjectId &&
+                noOfHours == that.noOfHours &&
+                Objects.equals(classTypeName, that.classTypeName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(subjectId, departmentSubjectId, classTypeName, noOfHours);
+    }
+
+}
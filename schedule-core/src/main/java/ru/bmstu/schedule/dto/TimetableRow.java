@@ -0,0 +1,163 @@
+package ru.bmstu.schedule.dto;
+
+import java.sql.Time;
+import java.util.Objects;
+
+// One class of a group's published timetable. Days and items without classes come as rows
+// without parity; fields of missing associations are null.
+public class TimetableRow {
+
+    private static final String UNKNOWN_LEC_NAME = "[UNKNOWN]";
+
+    private final int groupId;
+    private final int dayOfWeekId;
+    private final String dayName;
+    private final String dayShortName;
+    private final Integer classTimeId;
+    private final Integer classNumber;
+    private final Time startsAt;
+    private final Time endsAt;
+    private final String dayParity;
+    private final String subjectName;
+    private final Integer lecturerId;
+    private final String lecturerLastName;
+    private final String lecturerFirstName;
+    private final String lecturerMiddleName;
+    private final Integer classroomId;
+    private final String roomNumber;
+    private final String classTypeName;
+
+    public TimetableRow(int groupId, int dayOfWeekId, String dayName, String dayShortName,
+                        Integer classTimeId, Integer classNumber, Time startsAt, Time endsAt, String dayParity,
+                        String subjectName, Integer lecturerId,
+                        String lecturerLastName, String lecturerFirstName, String lecturerMiddleName,
+                        Integer classroomId, String roomNumber, String classTypeName) {
+        this.groupId = groupId;
+        this.dayOfWeekId = dayOfWeekId;
+        // Day titles and parities are bpchar columns padded with spaces
+        this.dayName = trim(dayName);
+        this.dayShortName = trim(dayShortName);
+        this.classTimeId = classTimeId;
+        this.classNumber = classNumber;
+        this.startsAt = startsAt;
+        this.endsAt = endsAt;
+        this.dayParity = trim(dayParity);
+        this.subjectName = subjectName;
+        this.lecturerId = lecturerId;
+        this.lecturerLastName = lecturerLastName;
+        this.lecturerFirstName = lecturerFirstName;
+        this.lecturerMiddleName = lecturerMiddleName;
+        this.classroomId = classroomId;
+        this.roomNumber = roomNumber;
+        this.classTypeName = classTypeName;
+    }
+
+    private static String trim(String s) {
+        return s == null ? null : s.trim();
+    }
+
+    public int getGroupId() {
+        return groupId;
+    }
+
+    public int getDayOfWeekId() {
+        return dayOfWeekId;
+    }
+
+    public String getDayName() {
+        return dayName;
+    }
+
+    public String getDayShortName() {
+        return dayShortName;
+    }
+
+    public Integer getClassTimeId() {
+        return classTimeId;
+    }
+
+    public Integer getClassNumber() {
+        return classNumber;
+    }
+
+    public Time getStartsAt() {
+        return startsAt;
+    }
+
+    public Time getEndsAt() {
+        return endsAt;
+    }
+
+    public String getDayParity() {
+        return dayParity;
+    }
+
+    public String getSubjectName() {
+        return subjectName;
+    }
+
+    public Integer getLecturerId() {
+        return lecturerId;
+    }
+
+    public Integer getClassroomId() {
+        return classroomId;
+    }
+
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+
+    public String getClassTypeName() {
+        return classTypeName;
+    }
+
+    public boolean hasClass() {
+        return dayParity != null;
+    }
+
+    // False for a missing lecturer and for the placeholder of subjects without lecturers
+    public boolean hasLecturer() {
+        return lecturerLastName != null && !lecturerLastName.equals(UNKNOWN_LEC_NAME);
+    }
+
+    // Same format as Lecturer.getInitials(), empty for a missing or unknown lecturer
+    public String getLecturerInitials() {
+        if (!hasLecturer()) {
+            return "";
+        }
+
+        return String.format(
+                "%s %s. %s.",
+                lecturerLastName,
+                lecturerFirstName.toUpperCase().charAt(0),
+                lecturerMiddleName.toUpperCase().charAt(0)
+        );
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimetableRow that = (TimetableRow) o;
+        return groupId == that.groupId &&
+                dayOfWeekId == that.dayOfWeekId &&
+                Objects.equals(classTimeId, that.classTimeId) &&
+                Objects.equals(classNumber, that.classNumber) &&
+                Objects.equals(dayParity, that.dayParity) &&
+                Objects.equals(subjectName, that.subjectName) &&
+                Objects.equals(lecturerId, that.lecturerId) &&
+                Objects.equals(lecturerLastName, that.lecturerLastName) &&
+                Objects.equals(lecturerFirstName, that.lecturerFirstName) &&
+                Objects.equals(lecturerMiddleName, that.lecturerMiddleName) &&
+                Objects.equals(classroomId, that.classroomId) &&
+                Objects.equals(roomNumber, that.roomNumber) &&
+                Objects.equals(classTypeName, that.classTypeName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(groupId, dayOfWeekId, classTimeId, dayParity, subjectName, lecturerLastName, roomNumber, classTypeName);
+    }
+
+}
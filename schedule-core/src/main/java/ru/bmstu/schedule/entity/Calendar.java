@@ -1,5 +1,9 @@
 package ru.bmstu.schedule.entity;
 
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.FetchProfile;
+import org.hibernate.annotations.FetchProfiles;
+
 import javax.persistence.*;
 import java.util.HashSet;
 import java.util.Objects;
@@ -7,8 +11,21 @@ import java.util.Set;
 
 @Entity
 @Table(name = "calendar")
+@FetchProfiles({
+        @FetchProfile(name = Calendar.SOLVER_INPUT, fetchOverrides = {
+                @FetchProfile.FetchOverride(entity = Calendar.class, association = "studyGroups", mode = FetchMode.JOIN)
+        }),
+        @FetchProfile(name = Calendar.IMPORT_DEDUP, fetchOverrides = {
+                @FetchProfile.FetchOverride(entity = Calendar.class, association = "calendarItems", mode = FetchMode.JOIN)
+        })
+})
 public class Calendar {
 
+    // Groups of the calendar, the rest of the solver input is loaded by projection queries
+    public static final String SOLVER_INPUT = "solver-input";
+    // Existing items of the calendar, so that an import does not add the same subject twice
+    public static final String IMPORT_DEDUP = "import-dedup";
+
     private int id;
     private int startYear;
     private DepartmentSpecialization departmentSpecialization;
@@ -48,7 +65,7 @@ public class Calendar {
         this.departmentSpecialization = departmentSpecialization;
     }
 
-    @OneToMany(mappedBy = "calendar", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "calendar", cascade = CascadeType.ALL)
     public Set<CalendarItem> getCalendarItems() {
         return calendarItems;
     }
@@ -57,7 +74,7 @@ public class Calendar {
         this.calendarItems = calendarItems;
     }
 
-    @OneToMany(mappedBy = "calendar", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "calendar", cascade = CascadeType.ALL)
     public Set<StudyGroup> getStudyGroups() {
         return studyGroups;
     }
@@ -45,7 +45,7 @@ public class CalendarItem {
         this.departmentSubject = subject;
     }
 
-    @OneToMany(mappedBy = "calendarItem", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "calendarItem", cascade = CascadeType.ALL)
     public Set<CalendarItemCell> getCalendarItemCells() {
         return calendarItemCells;
     }
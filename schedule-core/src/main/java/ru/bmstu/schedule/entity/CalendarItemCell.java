@@ -57,7 +57,7 @@ public class CalendarItemCell {
         this.term = term;
     }
 
-    @OneToMany(mappedBy = "calendarItemCell", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "calendarItemCell", cascade = CascadeType.ALL)
     public Set<HoursPerClass> getHoursPerClasses() {
         return hoursPerClasses;
     }
@@ -1,11 +1,15 @@
 package ru.bmstu.schedule.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.sql.Time;
 import java.util.Collection;
 import java.util.Objects;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @Table(name = "class_time")
 public class ClassTime {
     private int id;
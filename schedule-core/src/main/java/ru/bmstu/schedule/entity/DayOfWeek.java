@@ -1,9 +1,13 @@
 package ru.bmstu.schedule.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.Objects;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @Table(name = "day_of_weak")
 public class DayOfWeek {
     private int id;
@@ -1,5 +1,8 @@
 package ru.bmstu.schedule.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.HashSet;
 import java.util.List;
@@ -8,6 +11,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(name = "department")
 public class Department {
 
@@ -119,7 +123,7 @@ public class Department {
         return Objects.hash(id, number, title);
     }
 
-    @OneToMany(mappedBy = "department", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "department", cascade = CascadeType.ALL)
     Set<DepartmentSpecialization> getDepartmentSpecializations() {
         return departmentSpecializations;
     }
@@ -53,7 +53,7 @@ public class DepartmentSubject {
         this.subject = subject;
     }
 
-    @OneToMany(mappedBy = "departmentSubject", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "departmentSubject", cascade = CascadeType.ALL)
     public Set<LecturerSubject> getLecturerSubjects() {
         return lecturerSubjects;
     }
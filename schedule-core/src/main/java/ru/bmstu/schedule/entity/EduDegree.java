@@ -1,10 +1,14 @@
 package ru.bmstu.schedule.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.Collection;
 import java.util.Objects;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(name = "edu_degree")
 public class EduDegree {
 
@@ -60,7 +64,7 @@ public class EduDegree {
         return Objects.hash(id, name, minNumberOfStudyYears);
     }
 
-    @OneToMany(mappedBy = "degree", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "degree", cascade = CascadeType.ALL)
     public Collection<Speciality> getSpecialities() {
         return specialities;
     }
@@ -0,0 +1,48 @@
+package ru.bmstu.schedule.entity;
+
+import javax.persistence.*;
+import java.util.Objects;
+
+// Version of the schedule rows of a study group that readers currently see.
+@Entity
+@Table(name = "published_schedule")
+public class PublishedSchedule {
+
+    private int groupId;
+    private int scheduleVersion;
+
+    @Id
+    @Column(name = "group_id", nullable = false)
+    public int getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(int groupId) {
+        this.groupId = groupId;
+    }
+
+    @Basic
+    @Column(name = "schedule_version", nullable = false)
+    public int getScheduleVersion() {
+        return scheduleVersion;
+    }
+
+    public void setScheduleVersion(int scheduleVersion) {
+        this.scheduleVersion = scheduleVersion;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PublishedSchedule that = (PublishedSchedule) o;
+        return groupId == that.groupId &&
+                scheduleVersion == that.scheduleVersion;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(groupId, scheduleVersion);
+    }
+
+}
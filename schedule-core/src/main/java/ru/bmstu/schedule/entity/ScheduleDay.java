@@ -1,5 +1,8 @@
 package ru.bmstu.schedule.entity;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 import java.util.HashSet;
 import java.util.Objects;
@@ -11,11 +14,22 @@ public class ScheduleDay {
     private int id;
     private DayOfWeek dayOfWeek;
     private StudyGroup studyGroup;
+    private int scheduleVersion;
+    private int semester;
     private Set<ScheduleItem> scheduleItems = new HashSet<>();
 
     @Id
     @Column(name = "day_id", nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "scheduleDaySeq")
+    @GenericGenerator(
+            name = "scheduleDaySeq",
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "schedule_day_day_id_seq"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            }
+    )
     public int getId() {
         return id;
     }
@@ -30,13 +44,35 @@ public class ScheduleDay {
         if (o == null || getClass() != o.getClass()) return false;
         ScheduleDay that = (ScheduleDay) o;
         return id == that.id &&
+                scheduleVersion == that.scheduleVersion &&
                 Objects.equals(dayOfWeek, that.dayOfWeek) &&
                 Objects.equals(studyGroup, that.studyGroup);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, dayOfWeek, studyGroup);
+        return Objects.hash(id, scheduleVersion, dayOfWeek, studyGroup);
+    }
+
+    @Basic
+    @Column(name = "schedule_version", nullable = false)
+    public int getScheduleVersion() {
+        return scheduleVersion;
+    }
+
+    public void setScheduleVersion(int scheduleVersion) {
+        this.scheduleVersion = scheduleVersion;
+    }
+
+    // Partition key of the schedule tables, the semester of the group (see StudyGroup.getSemester)
+    @Basic
+    @Column(name = "semester", nullable = false)
+    public int getSemester() {
+        return semester;
+    }
+
+    public void setSemester(int semester) {
+        this.semester = semester;
     }
 
     @ManyToOne
@@ -59,7 +95,7 @@ public class ScheduleDay {
         this.studyGroup = studyGroup;
     }
 
-    @OneToMany(mappedBy = "scheduleDay", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "scheduleDay", cascade = CascadeType.ALL)
     public Set<ScheduleItem> getScheduleItems() {
         return scheduleItems;
     }
@@ -68,8 +104,13 @@ public class ScheduleDay {
         this.scheduleItems = scheduleItems;
     }
 
+    // Items and their parities are stored in the partition of the day
     public void addScheduleItem(ScheduleItem item) {
         item.setScheduleDay(this);
+        item.setSemester(semester);
+        for (ScheduleItemParity itemParity : item.getScheduleItemParities()) {
+            itemParity.setSemester(semester);
+        }
         getScheduleItems().add(item);
     }
 }
@@ -1,5 +1,8 @@
 package ru.bmstu.schedule.entity;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 import java.util.HashSet;
 import java.util.Objects;
@@ -12,11 +15,21 @@ public class ScheduleItem {
     private int id;
     private ScheduleDay scheduleDay;
     private ClassTime classTime;
+    private int semester;
     private Set<ScheduleItemParity> scheduleItemParities = new HashSet<>();
 
     @Id
     @Column(name = "schedule_item_id", nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "scheduleItemSeq")
+    @GenericGenerator(
+            name = "scheduleItemSeq",
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "schedule_item_schedule_item_id_seq"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            }
+    )
     public int getId() {
         return id;
     }
@@ -36,6 +49,16 @@ public class ScheduleItem {
         this.scheduleDay = scheduleDay;
     }
 
+    @Basic
+    @Column(name = "semester", nullable = false)
+    public int getSemester() {
+        return semester;
+    }
+
+    public void setSemester(int semester) {
+        this.semester = semester;
+    }
+
     @ManyToOne
     @JoinColumn(name = "class_time_id", referencedColumnName = "class_time_id")
     public ClassTime getClassTime() {
@@ -46,7 +69,7 @@ public class ScheduleItem {
         this.classTime = classTime;
     }
 
-    @OneToMany(mappedBy = "scheduleItem", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "scheduleItem", cascade = CascadeType.ALL)
     public Set<ScheduleItemParity> getScheduleItemParities() {
         return scheduleItemParities;
     }
@@ -57,6 +80,7 @@ public class ScheduleItem {
 
     public void addItemParity(ScheduleItemParity itemParity) {
         itemParity.setScheduleItem(this);
+        itemParity.setSemester(semester);
         getScheduleItemParities().add(itemParity);
     }
 
@@ -1,5 +1,8 @@
 package ru.bmstu.schedule.entity;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 import java.util.Objects;
 
@@ -13,10 +16,20 @@ public class ScheduleItemParity {
     private LecturerSubject lecturerSubject;
     private Classroom classroom;
     private ClassType classType;
+    private int semester;
 
     @Id
     @Column(name = "schedule_item_parity_id", nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "scheduleItemParitySeq")
+    @GenericGenerator(
+            name = "scheduleItemParitySeq",
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "schedule_item_parity_schedule_item_parity_id_seq"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            }
+    )
     public int getId() {
         return id;
     }
@@ -35,6 +48,16 @@ public class ScheduleItemParity {
         this.dayParity = dayParity;
     }
 
+    @Basic
+    @Column(name = "semester", nullable = false)
+    public int getSemester() {
+        return semester;
+    }
+
+    public void setSemester(int semester) {
+        this.semester = semester;
+    }
+
     @ManyToOne
     @JoinColumn(name = "schedule_item_id", referencedColumnName = "schedule_item_id")
     public ScheduleItem getScheduleItem() {
@@ -1,5 +1,9 @@
 package ru.bmstu.schedule.entity;
 
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.FetchProfile;
+import org.hibernate.annotations.Where;
+
 import javax.persistence.*;
 import java.util.HashSet;
 import java.util.Objects;
@@ -7,8 +11,16 @@ import java.util.Set;
 
 @Entity
 @Table(name = "study_group")
+@FetchProfile(name = StudyGroup.SCHEDULE_EXPORT, fetchOverrides = {
+        @FetchProfile.FetchOverride(entity = StudyGroup.class, association = "scheduleDays", mode = FetchMode.JOIN),
+        @FetchProfile.FetchOverride(entity = ScheduleDay.class, association = "scheduleItems", mode = FetchMode.JOIN),
+        @FetchProfile.FetchOverride(entity = ScheduleItem.class, association = "scheduleItemParities", mode = FetchMode.JOIN)
+})
 public class StudyGroup {
 
+    // Published schedule of the group with its items and parities as entities; exporters read StudyGroupDao.findTimetable instead
+    public static final String SCHEDULE_EXPORT = "schedule-export";
+
     private int id;
     private int number;
     private Integer studentsCount;
@@ -64,7 +76,10 @@ public class StudyGroup {
         return Objects.hash(id, number, studentsCount, calendar, term);
     }
 
-    @OneToMany(mappedBy = "studyGroup", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    // Only the published version is visible, groups without a published version show the initial one.
+    @OneToMany(mappedBy = "studyGroup", cascade = CascadeType.ALL)
+    @Where(clause = "schedule_version = COALESCE(" +
+            "(SELECT ps.schedule_version FROM published_schedule ps WHERE ps.group_id = group_id), 0)")
     public Set<ScheduleDay> getScheduleDays() {
         return scheduleDays;
     }
@@ -75,9 +90,26 @@ public class StudyGroup {
 
     public void addScheduleDay(ScheduleDay day) {
         day.setStudyGroup(this);
+        day.setSemester(getSemester());
         getScheduleDays().add(day);
     }
 
+    // Semester the schedules of the group belong to, see semesterOf
+    @Transient
+    public int getSemester() {
+        return semesterOf(getCalendar().getStartYear(), getTerm().getNumber());
+    }
+
+    // Academic year and its half: 20241 is the autumn of 2024/2025, 20242 its spring.
+    // Odd terms are taught in autumn, term 1 in the autumn of the calendar start year.
+    public static int semesterOf(int startYear, int termNumber) {
+        if (termNumber <= 0) {
+            throw new IllegalArgumentException("Term number must be positive: " + termNumber);
+        }
+
+        return (startYear + (termNumber - 1) / 2) * 10 + (termNumber - 1) % 2 + 1;
+    }
+
     @ManyToOne
     @JoinColumn(name = "calendar_id", referencedColumnName = "id")
     public Calendar getCalendar() {
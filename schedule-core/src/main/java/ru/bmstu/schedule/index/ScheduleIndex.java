@@ -0,0 +1,258 @@
+package ru.bmstu.schedule.index;
+
+import ru.bmstu.schedule.dto.TimetableRow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Occupancy of rooms, lecturers and groups by the published timetables, kept in memory as bitsets.
+// A week of 6 days with 7 classes a day fits into one long, bit (day * 7 + class) is set when the
+// resource is busy; every resource has a long for the numerator ('ЧС') and the denominator ('ЗН') week.
+// Conflict checks are single bit tests and free slots of several resources are found with bitwise ops.
+// Rows are counted per slot, so that groups attending the same class can be removed one by one.
+// Not thread-safe: it is built and updated by one thread, or guarded by the caller.
+public class ScheduleIndex {
+
+    public static final int NO_OF_DAYS = 6;
+    public static final int NO_OF_CLASSES = 7;
+    public static final int NUMERATOR = 0;
+    public static final int DENOMINATOR = 1;
+
+    // All the slots of a week
+    public static final long WEEK = (1L << NO_OF_DAYS * NO_OF_CLASSES) - 1;
+
+    private static final String EVERY_WEEK = "ЧС/ЗН";
+    private static final String[] WEEK_PARITIES = {"ЧС", "ЗН"};
+    private static final List<String> DAY_SHORT_NAMES = Arrays.asList("ПН", "ВТ", "СР", "ЧТ", "ПТ", "СБ");
+
+    public enum Resource {
+        room, lecturer, group
+    }
+
+    private final IntObjectMap<Slots> rooms = new IntObjectMap<>();
+    private final IntObjectMap<Slots> lecturers = new IntObjectMap<>();
+    private final IntObjectMap<Slots> groups = new IntObjectMap<>();
+    private final IntObjectMap<List<TimetableRow>> rowsByGroup = new IntObjectMap<>();
+
+    public static ScheduleIndex build(Collection<TimetableRow> rows) {
+        ScheduleIndex index = new ScheduleIndex();
+        for (TimetableRow row : rows) {
+            index.add(row);
+        }
+
+        return index;
+    }
+
+    // Rows without a class or with a day or class number outside the grid are ignored
+    public void add(TimetableRow row) {
+        int bit = bitOf(row);
+        if (bit < 0) {
+            return;
+        }
+
+        int[] weeks = weeksOf(row.getDayParity());
+        rowsByGroup.computeIfAbsent(row.getGroupId(), id -> new ArrayList<>()).add(row);
+        for (int week : weeks) {
+            update(row, week, bit, 1);
+        }
+    }
+
+    public void remove(TimetableRow row) {
+        List<TimetableRow> groupRows = rowsByGroup.get(row.getGroupId());
+        if (groupRows == null || !groupRows.remove(row)) {
+            return;
+        }
+
+        int bit = bitOf(row);
+        for (int week : weeksOf(row.getDayParity())) {
+            update(row, week, bit, -1);
+        }
+    }
+
+    // A newly published timetable of the group replaces the previous one
+    public void replaceGroup(int groupId, Collection<TimetableRow> rows) {
+        List<TimetableRow> previous = rowsByGroup.get(groupId);
+        if (previous != null) {
+            for (TimetableRow row : new ArrayList<>(previous)) {
+                remove(row);
+            }
+        }
+
+        for (TimetableRow row : rows) {
+            if (row.getGroupId() != groupId) {
+                throw new IllegalArgumentException("Row of group " + row.getGroupId() + " given for group " + groupId);
+            }
+            add(row);
+        }
+    }
+
+    // Day and class are indices from 0, day parity is 'ЧС', 'ЗН' or 'ЧС/ЗН' for both weeks
+    public boolean isFree(Resource resource, int id, int day, int classIndex, String dayParity) {
+        long bit = 1L << bitOf(day, classIndex);
+        for (int week : weeksOf(dayParity)) {
+            if ((busySlots(resource, id, week) & bit) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public long busySlots(Resource resource, int id, int week) {
+        Slots slots = mapOf(resource).get(id);
+        return slots == null ? 0 : slots.bits[week];
+    }
+
+    public long freeSlots(Resource resource, int id, int week) {
+        return ~busySlots(resource, id, week) & WEEK;
+    }
+
+    // Slots where none of the resources is busy, e.g. of a group together with its lecturer and room
+    public static long freeOf(long... busySlots) {
+        long busy = 0;
+        for (long slots : busySlots) {
+            busy |= slots;
+        }
+
+        return ~busy & WEEK;
+    }
+
+    // Bits set in the mask, in ascending order
+    public static int[] slotsOf(long mask) {
+        int[] slots = new int[Long.bitCount(mask)];
+        for (int n = 0; mask != 0; mask &= mask - 1) {
+            slots[n++] = Long.numberOfTrailingZeros(mask);
+        }
+
+        return slots;
+    }
+
+    // Candidates free at the slot, in the order given
+    public int[] freeRooms(int[] candidateRoomIds, int day, int classIndex, String dayParity) {
+        int[] free = new int[candidateRoomIds.length];
+        int n = 0;
+        for (int roomId : candidateRoomIds) {
+            if (isFree(Resource.room, roomId, day, classIndex, dayParity)) {
+                free[n++] = roomId;
+            }
+        }
+
+        return Arrays.copyOf(free, n);
+    }
+
+    // Busy slots in the numerator and the denominator weeks together, a class of several groups is counted once
+    public int load(Resource resource, int id) {
+        return Long.bitCount(busySlots(resource, id, NUMERATOR)) + Long.bitCount(busySlots(resource, id, DENOMINATOR));
+    }
+
+    // Ids of the resources having at least one class
+    public int[] ids(Resource resource) {
+        return mapOf(resource).keys();
+    }
+
+    public static int bitOf(int day, int classIndex) {
+        if (day < 0 || day >= NO_OF_DAYS || classIndex < 0 || classIndex >= NO_OF_CLASSES) {
+            throw new IllegalArgumentException("No such slot: day " + day + ", class " + classIndex);
+        }
+
+        return day * NO_OF_CLASSES + classIndex;
+    }
+
+    public static int dayOf(int bit) {
+        return bit / NO_OF_CLASSES;
+    }
+
+    public static int classIndexOf(int bit) {
+        return bit % NO_OF_CLASSES;
+    }
+
+    // Index of a day by its short name ('ПН' is 0), -1 for unknown names
+    public static int dayIndex(String shortName) {
+        return shortName == null ? -1 : DAY_SHORT_NAMES.indexOf(shortName.trim());
+    }
+
+    private static int bitOf(TimetableRow row) {
+        if (!row.hasClass() || row.getClassNumber() == null) {
+            return -1;
+        }
+
+        int day = dayIndex(row.getDayShortName());
+        int classIndex = row.getClassNumber() - 1;
+        if (day < 0 || classIndex < 0 || classIndex >= NO_OF_CLASSES) {
+            return -1;
+        }
+
+        return bitOf(day, classIndex);
+    }
+
+    private static int[] weeksOf(String dayParity) {
+        if (dayParity == null) {
+            throw new IllegalArgumentException("Day parity is required");
+        }
+
+        String parity = dayParity.trim();
+        if (parity.equals(EVERY_WEEK)) {
+            return new int[]{NUMERATOR, DENOMINATOR};
+        }
+        for (int week = 0; week < WEEK_PARITIES.length; week++) {
+            if (WEEK_PARITIES[week].equals(parity)) {
+                return new int[]{week};
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown day parity: " + dayParity);
+    }
+
+    private void update(TimetableRow row, int week, int bit, int delta) {
+        count(groups, row.getGroupId(), week, bit, delta);
+        if (row.getClassroomId() != null) {
+            count(rooms, row.getClassroomId(), week, bit, delta);
+        }
+        // The placeholder lecturer is not a real person and is never busy
+        if (row.hasLecturer() && row.getLecturerId() != null) {
+            count(lecturers, row.getLecturerId(), week, bit, delta);
+        }
+    }
+
+    private static void count(IntObjectMap<Slots> map, int id, int week, int bit, int delta) {
+        Slots slots = map.computeIfAbsent(id, key -> new Slots());
+        slots.count(week, bit, delta);
+        if (slots.isEmpty()) {
+            map.remove(id);
+        }
+    }
+
+    private IntObjectMap<Slots> mapOf(Resource resource) {
+        switch (resource) {
+            case room:
+                return rooms;
+            case lecturer:
+                return lecturers;
+            default:
+                return groups;
+        }
+    }
+
+    private static final class Slots {
+        private final long[] bits = new long[WEEK_PARITIES.length];
+        private final short[] counts = new short[WEEK_PARITIES.length * NO_OF_DAYS * NO_OF_CLASSES];
+
+        private void count(int week, int bit, int delta) {
+            int i = week * NO_OF_DAYS * NO_OF_CLASSES + bit;
+            counts[i] += delta;
+            if (counts[i] > 0) {
+                bits[week] |= 1L << bit;
+            } else {
+                counts[i] = 0;
+                bits[week] &= ~(1L << bit);
+            }
+        }
+
+        private boolean isEmpty() {
+            return bits[NUMERATOR] == 0 && bits[DENOMINATOR] == 0;
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package ru.bmstu.schedule.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLoaderTest {
+
+    private final List<Collection<String>> queries = new ArrayList<>();
+
+    // Finds keys starting with 'k' and returns them in upper case
+    private Map<String, String> query(Collection<String> keys) {
+        queries.add(new ArrayList<>(keys));
+        Map<String, String> found = new HashMap<>();
+        for (String key : keys) {
+            if (key.startsWith("k")) {
+                found.put(key, key.toUpperCase());
+            }
+        }
+
+        return found;
+    }
+
+    @Test
+    void registeredKeysAreFetchedInBatches() {
+        BatchLoader<String, String> loader = new BatchLoader<>(this::query, 2);
+        loader.registerAll(Arrays.asList("k1", "k2", "x3", "k1"));
+
+        assertEquals(Optional.of("K1"), loader.load("k1"));
+        assertEquals(2, queries.size());
+        assertEquals(Arrays.asList("k1", "k2"), queries.get(0));
+        assertEquals(Collections.singletonList("x3"), queries.get(1));
+
+        assertEquals(Optional.of("K2"), loader.load("k2"));
+        assertEquals(Optional.empty(), loader.load("x3"));
+        assertEquals(2, queries.size());
+    }
+
+    @Test
+    void unregisteredKeyIsFetchedOnLoad() {
+        BatchLoader<String, String> loader = new BatchLoader<>(this::query);
+
+        assertEquals(Optional.of("K4"), loader.load("k4"));
+        assertEquals(Optional.of("K4"), loader.load("k4"));
+        assertEquals(1, queries.size());
+        assertEquals(Optional.empty(), loader.load(null));
+    }
+
+    @Test
+    void primedValueIsNotFetched() {
+        BatchLoader<String, String> loader = new BatchLoader<>(this::query);
+        loader.register("x5");
+        loader.prime("x5", "created");
+
+        assertEquals(Optional.of("created"), loader.load("x5"));
+        assertTrue(queries.isEmpty());
+    }
+
+    @Test
+    void batchSizeMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchLoader<>(this::query, 0));
+    }
+
+}
@@ -0,0 +1,59 @@
+package ru.bmstu.schedule.dao;
+
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.entity.Classroom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkWriteTest extends DatabaseAccessTest {
+
+    private static final int NO_OF_ROOMS = 7;
+
+    private static List<Classroom> rooms(int capacity) {
+        List<Classroom> rooms = new ArrayList<>();
+        for (int i = 0; i < NO_OF_ROOMS; i++) {
+            Classroom room = new Classroom();
+            room.setRoomNumber("BLK-" + i);
+            room.setCapacity(capacity);
+            rooms.add(room);
+        }
+
+        return rooms;
+    }
+
+    @Test
+    void createUpsertAndDeleteInBulk() {
+        ClassroomDao roomDao = new ClassroomDao(getSessionFactory());
+
+        List<Classroom> created = rooms(10);
+        List<Integer> ids = roomDao.createAll(created, 3);
+        assertEquals(NO_OF_ROOMS, ids.size());
+        for (int i = 0; i < NO_OF_ROOMS; i++) {
+            assertEquals(ids.get(i).intValue(), created.get(i).getId());
+        }
+
+        try {
+            List<Integer> upsertedIds = roomDao.upsertAll(rooms(20), 3, "roomNumber");
+            assertEquals(ids, upsertedIds);
+            for (Integer id : ids) {
+                assertEquals(Integer.valueOf(20), roomDao.findByKey(id).getCapacity());
+            }
+        } finally {
+            assertEquals(NO_OF_ROOMS, roomDao.deleteAllByIds(ids));
+        }
+
+        for (Integer id : ids) {
+            assertNull(roomDao.findByKey(id));
+        }
+    }
+
+    @Test
+    void upsertRequiresNaturalKey() {
+        ClassroomDao roomDao = new ClassroomDao(getSessionFactory());
+        assertThrows(IllegalArgumentException.class, () -> roomDao.upsertAll(rooms(10)));
+    }
+
+}
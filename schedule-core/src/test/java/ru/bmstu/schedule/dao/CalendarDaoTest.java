@@ -1,15 +1,22 @@
 package ru.bmstu.schedule.dao;
 
+import org.hibernate.Hibernate;
 import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.dto.LecturerAssignment;
+import ru.bmstu.schedule.dto.SubjectHours;
 import ru.bmstu.schedule.entity.Calendar;
+import ru.bmstu.schedule.entity.CalendarItem;
 import ru.bmstu.schedule.entity.Department;
 import ru.bmstu.schedule.entity.DepartmentSpecialization;
 import ru.bmstu.schedule.entity.Specialization;
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,6 +25,8 @@ class CalendarDaoTest extends DatabaseAccessTest {
     private static final String VALID_SPEC_CODE = "01.03.02_1";
     private static final String INVALID_SPEC_CODE = "01.03.02_156";
     private static final String VALID_DEPT_CIPHER = "ИУ9";
+    private static final String VALID_FACULTY_CIPHER = "ИУ";
+    private static final String INVALID_DEPT_CIPHER = "ИУ99";
     private static final int VALID_ENROLLMENT_YEAR = 2018;
 
     private static Calendar VALID_CALENDAR;
@@ -77,6 +86,64 @@ class CalendarDaoTest extends DatabaseAccessTest {
         assertFalse(invalidCalendarOpt.isPresent());
     }
 
+    @Test
+    void findAllByFacultyOrDepartmentCipher() {
+        CalendarDao calendarDao = new CalendarDao(getSessionFactory());
+
+        List<Calendar> deptCalendars = calendarDao.findAllByFacultyOrDepartmentCipher(VALID_DEPT_CIPHER);
+        assertTrue(deptCalendars.contains(VALID_CALENDAR));
+
+        List<Calendar> facultyCalendars = calendarDao.findAllByFacultyOrDepartmentCipher(VALID_FACULTY_CIPHER);
+        assertTrue(facultyCalendars.containsAll(deptCalendars));
+
+        assertTrue(calendarDao.findAllByFacultyOrDepartmentCipher(INVALID_DEPT_CIPHER).isEmpty());
+    }
+
+    @Test
+    void findSubjectHoursAndLecturerAssignments() {
+        CalendarDao calendarDao = new CalendarDao(getSessionFactory());
+
+        assertTrue(calendarDao.findSubjectHours(VALID_CALENDAR.getId(), 1).isEmpty());
+        assertTrue(calendarDao.findLecturerAssignments(VALID_CALENDAR.getId(), 1).isEmpty());
+
+        for (Calendar found : calendarDao.findAllByFacultyOrDepartmentCipher(VALID_DEPT_CIPHER)) {
+            Optional<Calendar> calendarOpt = calendarDao.findByKey(found.getId(), Calendar.IMPORT_DEDUP);
+            assertTrue(calendarOpt.isPresent());
+            Calendar calendar = calendarOpt.get();
+
+            Set<Integer> deptSubjIds = new HashSet<>();
+            for (CalendarItem item : calendar.getCalendarItems()) {
+                deptSubjIds.add(item.getDepartmentSubject().getId());
+            }
+
+            for (SubjectHours hours : calendarDao.findSubjectHours(calendar.getId(), 1)) {
+                assertTrue(deptSubjIds.contains(hours.getDepartmentSubjectId()));
+            }
+
+            for (LecturerAssignment assignment : calendarDao.findLecturerAssignments(calendar.getId(), 1)) {
+                assertTrue(deptSubjIds.contains(assignment.getDepartmentSubjectId()));
+            }
+        }
+    }
+
+    @Test
+    void associationsAreLoadedByFetchProfiles() {
+        CalendarDao calendarDao = new CalendarDao(getSessionFactory());
+
+        Calendar lazyCalendar = calendarDao.findByKey(VALID_CALENDAR.getId());
+        assertFalse(Hibernate.isInitialized(lazyCalendar.getStudyGroups()));
+        assertFalse(Hibernate.isInitialized(lazyCalendar.getCalendarItems()));
+
+        Optional<Calendar> solverCalendar = calendarDao.findByKey(VALID_CALENDAR.getId(), Calendar.SOLVER_INPUT);
+        assertTrue(solverCalendar.isPresent());
+        assertTrue(Hibernate.isInitialized(solverCalendar.get().getStudyGroups()));
+        assertFalse(Hibernate.isInitialized(solverCalendar.get().getCalendarItems()));
+
+        Optional<Calendar> importCalendar = calendarDao.findByKey(VALID_CALENDAR.getId(), Calendar.IMPORT_DEDUP);
+        assertTrue(importCalendar.isPresent());
+        assertTrue(Hibernate.isInitialized(importCalendar.get().getCalendarItems()));
+    }
+
     @AfterAll
     static void removeCalendars() {
         SessionFactory factory = getSessionFactory();
@@ -0,0 +1,41 @@
+package ru.bmstu.schedule.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CiphersTest {
+
+    @Test
+    void parseGroup() {
+        Optional<Ciphers.GroupCipher> grOpt = Ciphers.parseGroup("ИБМ7-82Б");
+        assertTrue(grOpt.isPresent());
+        assertEquals("ИБМ", grOpt.get().getDepartment().getFacultyCipher());
+        assertEquals(7, grOpt.get().getDepartment().getNumber());
+        assertEquals(8, grOpt.get().getTermNumber());
+        assertEquals(2, grOpt.get().getGroupNumber());
+        assertEquals("Бакалавр", grOpt.get().getDegreeName());
+
+        Optional<Ciphers.GroupCipher> masterOpt = Ciphers.parseGroup("ИУ9-112М");
+        assertTrue(masterOpt.isPresent());
+        assertEquals(11, masterOpt.get().getTermNumber());
+        assertEquals(2, masterOpt.get().getGroupNumber());
+        assertEquals("Магистр", masterOpt.get().getDegreeName());
+
+        assertFalse(Ciphers.parseGroup("ФВ-11").isPresent());
+        assertFalse(Ciphers.parseGroup(null).isPresent());
+    }
+
+    @Test
+    void parseSpecialization() {
+        Optional<Ciphers.SpecializationCode> specOpt = Ciphers.parseSpecialization("09.03.04_1");
+        assertTrue(specOpt.isPresent());
+        assertEquals("09.03.04", specOpt.get().getSpecialityCode());
+        assertEquals(1, specOpt.get().getNumberInSpeciality());
+
+        assertFalse(Ciphers.parseSpecialization("09.03.04").isPresent());
+    }
+
+}
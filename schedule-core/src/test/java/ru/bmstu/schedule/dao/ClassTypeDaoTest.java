@@ -1,5 +1,6 @@
 package ru.bmstu.schedule.dao;
 
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import ru.bmstu.schedule.entity.ClassType;
 
@@ -20,4 +21,20 @@ class ClassTypeDaoTest extends DatabaseAccessTest {
         assertFalse(invalidShortName.isPresent());
     }
 
+    @Test
+    void repeatedLookupIsServedFromCache() {
+        ClassTypeDao ctDao = new ClassTypeDao(getSessionFactory());
+        Statistics stats = getSessionFactory().getStatistics();
+
+        Optional<ClassType> first = ctDao.findByName("семинар");
+        stats.clear();
+        Optional<ClassType> second = ctDao.findByName("семинар");
+
+        assertTrue(first.isPresent());
+        assertEquals(first, second);
+        assertEquals(1, stats.getQueryCacheHitCount());
+        assertEquals(0, stats.getQueryCacheMissCount());
+        assertEquals(0, stats.getPrepareStatementCount());
+    }
+
 }
\ No newline at end of file
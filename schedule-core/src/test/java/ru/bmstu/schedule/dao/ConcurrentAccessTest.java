@@ -0,0 +1,77 @@
+package ru.bmstu.schedule.dao;
+
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.entity.Lecturer;
+import ru.bmstu.schedule.entity.Subject;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentAccessTest extends DatabaseAccessTest {
+
+    private static final int NO_OF_WORKERS = 8;
+    private static final int SUBJECTS_PER_WORKER = 25;
+    private static final String SUBJECT_PREFIX = "Параллельный тестовый предмет ";
+
+    @Test
+    void parallelWorkersShareDaos() throws InterruptedException, ExecutionException {
+        SubjectDao subjDao = new SubjectDao(getSessionFactory());
+        ClassTypeDao ctDao = new ClassTypeDao(getSessionFactory());
+        ExecutorService executor = Executors.newFixedThreadPool(NO_OF_WORKERS);
+
+        List<Future<List<Integer>>> futures = new ArrayList<>();
+        for (int w = 0; w < NO_OF_WORKERS; w++) {
+            int worker = w;
+            futures.add(executor.submit(() -> new UnitOfWork(getSessionFactory()).call(session -> {
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < SUBJECTS_PER_WORKER; i++) {
+                    assertTrue(ctDao.findByName("семинар").isPresent());
+                    ids.add(subjDao.create(new Subject(SUBJECT_PREFIX + worker + "-" + i)));
+                }
+                return ids;
+            })));
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        try {
+            for (Future<List<Integer>> future : futures) {
+                ids.addAll(future.get(1, TimeUnit.MINUTES));
+            }
+        } catch (TimeoutException e) {
+            fail("Workers did not finish in time");
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(NO_OF_WORKERS * SUBJECTS_PER_WORKER, ids.size());
+
+        List<Subject> created = subjDao.findAllByKeys(ids);
+        assertEquals(ids.size(), created.size());
+        new UnitOfWork(getSessionFactory()).run(session -> created.forEach(subjDao::delete));
+    }
+
+    @Test
+    void unknownLecturerIsCreatedOnce() throws InterruptedException, ExecutionException {
+        LecturerDao lecDao = new LecturerDao(getSessionFactory());
+        ExecutorService executor = Executors.newFixedThreadPool(NO_OF_WORKERS);
+
+        List<Callable<Lecturer>> tasks = new ArrayList<>();
+        for (int w = 0; w < NO_OF_WORKERS; w++) {
+            tasks.add(lecDao::fetchUnknownLecturer);
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        try {
+            for (Future<Lecturer> future : executor.invokeAll(tasks)) {
+                ids.add(future.get().getId());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, ids.size());
+    }
+
+}
@@ -0,0 +1,43 @@
+package ru.bmstu.schedule.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DaoMetricsTest extends DatabaseAccessTest {
+
+    @BeforeEach
+    void enable() {
+        DaoMetrics.reset();
+        DaoMetrics.setEnabled(true);
+    }
+
+    @AfterEach
+    void disable() {
+        DaoMetrics.setEnabled(false);
+        DaoMetrics.reset();
+    }
+
+    @Test
+    void callsAreReportedByDaoMethod() {
+        LecturerDao lecturerDao = new LecturerDao(getSessionFactory());
+        lecturerDao.findAll();
+        lecturerDao.findFirstByInitials("Иванов И. И.");
+
+        String report = DaoMetrics.report();
+        assertTrue(report.contains("LecturerDao.findAll "));
+        // The nested findAll(spec, page) is a part of the outer call
+        assertTrue(report.contains("LecturerDao.findFirstByInitials "));
+        assertTrue(DaoMetrics.report(getSessionFactory()).contains("second-level cache"));
+    }
+
+    @Test
+    void unitOfWorkIsReportedByCaller() {
+        new UnitOfWork(getSessionFactory()).run(session -> new ClassTypeDao(getSessionFactory()).findAll());
+        assertTrue(DaoMetrics.report().contains("DaoMetricsTest.unitOfWorkIsReportedByCaller "));
+        assertFalse(DaoMetrics.report().contains("ClassTypeDao.findAll"));
+    }
+
+}
@@ -6,6 +6,7 @@ import ru.bmstu.schedule.entity.Department;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DepartmentDaoTest extends DatabaseAccessTest {
@@ -22,4 +23,16 @@ class DepartmentDaoTest extends DatabaseAccessTest {
         assertEquals(dept2.get().getTitle(), "Юриспруденция, интеллектуальная собственность и судебная экспертиза");
     }
 
-}
\ No newline at end of file
+    @Test
+    void findByNumberedCipher() {
+        DepartmentDao deptDao = new DepartmentDao(getSessionFactory());
+        Optional<Department> dept = deptDao.findByCipher("ИУ9");
+        assertTrue(dept.isPresent());
+        assertEquals(9, dept.get().getNumber());
+        assertEquals("ИУ", dept.get().getFaculty().getCipher().trim());
+
+        assertFalse(deptDao.findByCipher("ИУ").isPresent());
+        assertFalse(deptDao.findByCipher("9ИУ").isPresent());
+    }
+
+}
@@ -3,6 +3,7 @@ package ru.bmstu.schedule.dao;
 import org.junit.jupiter.api.Test;
 import ru.bmstu.schedule.entity.*;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,4 +34,21 @@ class LecturerSubjectDaoTest extends DatabaseAccessTest {
         assertEquals(lecSubjOpt.get().getLecturer(), lecturers.get(0));
     }
 
-}
\ No newline at end of file
+    @Test
+    void findAllByDepartmentSubjectIds() {
+        LecturerSubjectDao lecSubjDao = new LecturerSubjectDao(getSessionFactory());
+        DepartmentSubjectDao deptSubjDao = new DepartmentSubjectDao(getSessionFactory());
+
+        Optional<DepartmentSubject> deptSubj = deptSubjDao.findByDepartmentCipherAndSubjectName("ИУ9","Основы информатики");
+        assertTrue(deptSubj.isPresent());
+
+        List<LecturerSubject> lecSubjects = lecSubjDao.findAllByDepartmentSubjectIds(Collections.singletonList(deptSubj.get().getId()));
+        assertFalse(lecSubjects.isEmpty());
+        for (LecturerSubject lecSubj : lecSubjects) {
+            assertEquals(deptSubj.get().getId(), lecSubj.getDepartmentSubject().getId());
+        }
+
+        assertTrue(lecSubjDao.findAllByDepartmentSubjectIds(Collections.emptyList()).isEmpty());
+    }
+
+}
@@ -0,0 +1,205 @@
+package ru.bmstu.schedule.dao;
+
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.entity.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyTest extends DatabaseAccessTest {
+
+    @Test
+    void roomsOfPublishedClassesAreBusy() {
+        StudyGroupDao groupDao = new StudyGroupDao(getSessionFactory());
+        ClassroomDao roomDao = new ClassroomDao(getSessionFactory());
+        Optional<StudyGroup> grOpt = groupDao.findByCipher("ИБМ7-82Б")
+                .flatMap(gr -> groupDao.findByKey(gr.getId(), StudyGroup.SCHEDULE_EXPORT));
+        assertTrue(grOpt.isPresent());
+
+        for (ScheduleDay day : grOpt.get().getScheduleDays()) {
+            int dayId = day.getDayOfWeek().getId();
+            for (ScheduleItem item : day.getScheduleItems()) {
+                int classTimeId = item.getClassTime().getId();
+                for (ScheduleItemParity parity : item.getScheduleItemParities()) {
+                    if (parity.getClassroom() == null) {
+                        continue;
+                    }
+
+                    int roomId = parity.getClassroom().getId();
+                    assertFalse(roomDao.isFree(roomId, dayId, classTimeId, parity.getDayParity()));
+                    assertFalse(roomDao.isFree(roomId, dayId, classTimeId, "ЧС/ЗН"));
+
+                    List<Classroom> freeRooms = roomDao.findFree(dayId, classTimeId, parity.getDayParity());
+                    assertTrue(freeRooms.stream().noneMatch(room -> room.getId() == roomId));
+                }
+            }
+        }
+    }
+
+    @Test
+    void unusedResourcesAreFree() {
+        ClassroomDao roomDao = new ClassroomDao(getSessionFactory());
+        LecturerDao lecturerDao = new LecturerDao(getSessionFactory());
+        int dayId = new WeekDao(getSessionFactory()).findAll().get(0).getId();
+        int classTimeId = new ClassTimeDao(getSessionFactory()).findAll().get(0).getId();
+
+        Classroom room = new Classroom();
+        room.setRoomNumber("OCC-1");
+        room.setCapacity(10);
+        room.setId(roomDao.create(room));
+
+        Lecturer lecturer = lecturerDao.fetchUnknownLecturer();
+        try {
+            assertTrue(roomDao.isFree(room.getId(), dayId, classTimeId, "ЧС/ЗН"));
+            assertTrue(roomDao.findFree(dayId, classTimeId, "ЗН").stream().anyMatch(r -> r.getId() == room.getId()));
+
+            // The placeholder lecturer of subjects without lecturers never takes a slot
+            assertTrue(lecturerDao.isFree(lecturer.getId(), dayId, classTimeId, "ЧС/ЗН"));
+            assertEquals(0, lecturerDao.countClasses(lecturer.getId()));
+        } finally {
+            roomDao.delete(room);
+        }
+    }
+
+    @Test
+    void groupsRepublishedTogetherSwapTheirSlots() {
+        StudyGroupDao groupDao = new StudyGroupDao(getSessionFactory());
+        ClassroomDao roomDao = new ClassroomDao(getSessionFactory());
+        ScheduleDayDao dayDao = new ScheduleDayDao(getSessionFactory());
+        PublishedScheduleDao publishedDao = new PublishedScheduleDao(getSessionFactory());
+
+        List<StudyGroup> groups = groupDao.findAll(Specification.all(), Page.of(0, 2));
+        assertEquals(2, groups.size());
+        DayOfWeek day = new WeekDao(getSessionFactory()).findAll().get(0);
+        List<ClassTime> classTimes = new ClassTimeDao(getSessionFactory()).findAll();
+        ClassTime first = classTimes.get(0), second = classTimes.get(1);
+        ClassType classType = new ClassTypeDao(getSessionFactory()).findAll().get(0);
+
+        Classroom room = new Classroom();
+        room.setRoomNumber("OCC-2");
+        room.setCapacity(10);
+        room.setId(roomDao.create(room));
+
+        List<PublishedSchedule> previous = new ArrayList<>();
+        for (StudyGroup group : groups) {
+            previous.add(publishedDao.findByKey(group.getId()));
+        }
+        int oldVersion = publishedDao.nextVersion();
+        int newVersion = publishedDao.nextVersion();
+        try {
+            // New class of each group takes the slot of the old class of the other one
+            dayDao.createAll(Arrays.asList(
+                    classDay(groups.get(0), day, first, room, classType, oldVersion),
+                    classDay(groups.get(1), day, second, room, classType, oldVersion),
+                    classDay(groups.get(0), day, second, room, classType, newVersion),
+                    classDay(groups.get(1), day, first, room, classType, newVersion)
+            ));
+            publishedDao.publish(groups, oldVersion);
+            publishedDao.publish(groups, newVersion);
+
+            assertFalse(roomDao.isFree(room.getId(), day.getId(), first.getId(), "ЧС/ЗН"));
+            assertFalse(roomDao.isFree(room.getId(), day.getId(), second.getId(), "ЧС/ЗН"));
+        } finally {
+            for (int i = 0; i < groups.size(); i++) {
+                PublishedSchedule published = publishedDao.findByKey(groups.get(i).getId());
+                if (published == null) {
+                    continue;
+                }
+                if (previous.get(i) == null) {
+                    publishedDao.delete(published);
+                } else {
+                    published.setScheduleVersion(previous.get(i).getScheduleVersion());
+                    publishedDao.update(published);
+                }
+            }
+            publishedDao.deleteVersion(groups, oldVersion);
+            publishedDao.deleteVersion(groups, newVersion);
+            roomDao.delete(room);
+        }
+    }
+
+    @Test
+    void firstPublishReplacesVersionZero() {
+        StudyGroupDao groupDao = new StudyGroupDao(getSessionFactory());
+        ClassroomDao roomDao = new ClassroomDao(getSessionFactory());
+        ScheduleDayDao dayDao = new ScheduleDayDao(getSessionFactory());
+        PublishedScheduleDao publishedDao = new PublishedScheduleDao(getSessionFactory());
+
+        Optional<StudyGroup> grOpt = groupDao.findAll(Specification.all(), Page.of(0, 50)).stream()
+                .filter(gr -> publishedDao.findByKey(gr.getId()) == null)
+                .findFirst();
+        assertTrue(grOpt.isPresent());
+        List<StudyGroup> groups = Collections.singletonList(grOpt.get());
+        DayOfWeek day = new WeekDao(getSessionFactory()).findAll().get(0);
+        List<ClassTime> classTimes = new ClassTimeDao(getSessionFactory()).findAll();
+        ClassTime first = classTimes.get(0), second = classTimes.get(1);
+        ClassType classType = new ClassTypeDao(getSessionFactory()).findAll().get(0);
+
+        Classroom room = new Classroom();
+        room.setRoomNumber("OCC-3");
+        room.setCapacity(10);
+        room.setId(roomDao.create(room));
+
+        // Schedules of unpublished groups written before the versions are visible as version 0
+        ScheduleDay unversioned = classDay(grOpt.get(), day, first, room, classType, 0);
+        int version = publishedDao.nextVersion();
+        try {
+            dayDao.createAll(Arrays.asList(
+                    unversioned,
+                    classDay(grOpt.get(), day, second, room, classType, version)
+            ));
+            assertFalse(roomDao.isFree(room.getId(), day.getId(), first.getId(), "ЧС/ЗН"));
+            assertTrue(roomDao.isFree(room.getId(), day.getId(), second.getId(), "ЧС/ЗН"));
+
+            publishedDao.publish(groups, version);
+            assertTrue(roomDao.isFree(room.getId(), day.getId(), first.getId(), "ЧС/ЗН"));
+            assertFalse(roomDao.isFree(room.getId(), day.getId(), second.getId(), "ЧС/ЗН"));
+
+            publishedDao.delete(publishedDao.findByKey(grOpt.get().getId()));
+            assertFalse(roomDao.isFree(room.getId(), day.getId(), first.getId(), "ЧС/ЗН"));
+            assertTrue(roomDao.isFree(room.getId(), day.getId(), second.getId(), "ЧС/ЗН"));
+        } finally {
+            PublishedSchedule published = publishedDao.findByKey(grOpt.get().getId());
+            if (published != null) {
+                publishedDao.delete(published);
+            }
+            publishedDao.deleteVersion(groups, version);
+            if (unversioned.getId() != 0) {
+                dayDao.delete(unversioned);
+            }
+            roomDao.delete(room);
+        }
+    }
+
+    @Test
+    void unknownDayParity() {
+        ClassroomDao roomDao = new ClassroomDao(getSessionFactory());
+        assertThrows(IllegalArgumentException.class, () -> roomDao.isFree(1, 1, 1, "ЧТ"));
+    }
+
+    private static ScheduleDay classDay(StudyGroup group, DayOfWeek dayOfWeek, ClassTime classTime,
+                                        Classroom room, ClassType classType, int version) {
+        ScheduleItemParity parity = new ScheduleItemParity();
+        parity.setDayParity("ЧС/ЗН");
+        parity.setClassroom(room);
+        parity.setClassType(classType);
+
+        ScheduleItem item = new ScheduleItem();
+        item.setClassTime(classTime);
+        item.addItemParity(parity);
+
+        ScheduleDay day = new ScheduleDay();
+        day.setStudyGroup(group);
+        day.setDayOfWeek(dayOfWeek);
+        day.setSemester(group.getSemester());
+        day.setScheduleVersion(version);
+        day.addScheduleItem(item);
+        return day;
+    }
+
+}
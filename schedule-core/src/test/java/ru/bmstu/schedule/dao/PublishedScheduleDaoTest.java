@@ -0,0 +1,70 @@
+package ru.bmstu.schedule.dao;
+
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.entity.PublishedSchedule;
+import ru.bmstu.schedule.entity.ScheduleDay;
+import ru.bmstu.schedule.entity.StudyGroup;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublishedScheduleDaoTest extends DatabaseAccessTest {
+
+    @Test
+    void nextVersion() {
+        PublishedScheduleDao publishedDao = new PublishedScheduleDao(getSessionFactory());
+        int version = publishedDao.nextVersion();
+        assertTrue(publishedDao.nextVersion() > version);
+    }
+
+    @Test
+    void publish() {
+        PublishedScheduleDao publishedDao = new PublishedScheduleDao(getSessionFactory());
+        StudyGroupDao groupDao = new StudyGroupDao(getSessionFactory());
+        Optional<StudyGroup> grOpt = groupDao.findByCipher("ИБМ7-82Б");
+        assertTrue(grOpt.isPresent());
+
+        StudyGroup group = grOpt.get();
+        PublishedSchedule previous = publishedDao.findByKey(group.getId());
+        int version = publishedDao.nextVersion();
+
+        try {
+            publishedDao.publish(Collections.singletonList(group), version);
+            assertEquals(version, publishedDao.findByKey(group.getId()).getScheduleVersion());
+
+            publishedDao.publish(Collections.singletonList(group), version - 1);
+            assertEquals(version, publishedDao.findByKey(group.getId()).getScheduleVersion());
+        } finally {
+            PublishedSchedule published = publishedDao.findByKey(group.getId());
+            if (previous == null) {
+                publishedDao.delete(published);
+            } else {
+                published.setScheduleVersion(previous.getScheduleVersion());
+                publishedDao.update(published);
+            }
+        }
+    }
+
+    @Test
+    void deleteVersion() {
+        PublishedScheduleDao publishedDao = new PublishedScheduleDao(getSessionFactory());
+        ScheduleDayDao dayDao = new ScheduleDayDao(getSessionFactory());
+        Optional<StudyGroup> grOpt = new StudyGroupDao(getSessionFactory()).findByCipher("ИБМ7-82Б");
+        assertTrue(grOpt.isPresent());
+
+        StudyGroup group = grOpt.get();
+        int version = publishedDao.nextVersion();
+        ScheduleDay day = new ScheduleDay();
+        day.setStudyGroup(group);
+        day.setDayOfWeek(new WeekDao(getSessionFactory()).findAll().get(0));
+        day.setSemester(group.getSemester());
+        day.setScheduleVersion(version);
+        int dayId = dayDao.createAll(Collections.singletonList(day)).get(0);
+
+        assertEquals(1, publishedDao.deleteVersion(Collections.singletonList(group), version));
+        assertNull(dayDao.findByKey(dayId));
+    }
+
+}
@@ -0,0 +1,95 @@
+package ru.bmstu.schedule.dao;
+
+import org.hibernate.criterion.Order;
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.entity.DepartmentSubject;
+import ru.bmstu.schedule.entity.LecturerSubject;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpecificationTest extends DatabaseAccessTest {
+
+    @Test
+    void conditionsOnJoinedAssociations() {
+        LecturerSubjectDao lecSubjDao = new LecturerSubjectDao(getSessionFactory());
+
+        Specification<LecturerSubject> spec = Specification.<LecturerSubject>eq("departmentSubject.department.faculty.cipher", "ИУ")
+                .and(Specification.eq("departmentSubject.department.number", 9));
+        List<LecturerSubject> lecSubjects = lecSubjDao.findAll(spec);
+
+        assertFalse(lecSubjects.isEmpty());
+        assertEquals(lecSubjects.size(), lecSubjDao.count(spec));
+        for (LecturerSubject lecSubj : lecSubjects) {
+            assertEquals(9, lecSubj.getDepartmentSubject().getDepartment().getNumber());
+        }
+    }
+
+    @Test
+    void joinedCollectionsDoNotRepeatEntities() {
+        DepartmentSubjectDao deptSubjDao = new DepartmentSubjectDao(getSessionFactory());
+
+        Specification<DepartmentSubject> spec = Specification.eq("lecturerSubjects.lecturer.lastName", "Дубанов");
+        List<DepartmentSubject> deptSubjects = deptSubjDao.findAll(spec);
+
+        assertFalse(deptSubjects.isEmpty());
+        Set<Integer> ids = new HashSet<>();
+        deptSubjects.forEach(ds -> ids.add(ds.getId()));
+        assertEquals(deptSubjects.size(), ids.size());
+        assertEquals(deptSubjects.size(), deptSubjDao.count(spec));
+    }
+
+    @Test
+    void pagesCoverAllMatchingRows() {
+        LecturerSubjectDao lecSubjDao = new LecturerSubjectDao(getSessionFactory());
+
+        Specification<LecturerSubject> spec = Specification.all();
+        long total = lecSubjDao.count(spec);
+        Set<Integer> seen = new HashSet<>();
+
+        Page page = Page.of(0, 7);
+        List<LecturerSubject> found;
+        while (!(found = lecSubjDao.findAll(spec, page)).isEmpty()) {
+            assertTrue(found.size() <= page.getSize());
+            for (LecturerSubject lecSubj : found) {
+                assertTrue(seen.add(lecSubj.getId()));
+            }
+            page = page.next();
+        }
+
+        assertEquals(total, seen.size());
+        assertEquals(0, lecSubjDao.count(Specification.in("id", new HashSet<>())));
+    }
+
+    @Test
+    void pagesOrderedByJoinedPath() {
+        LecturerSubjectDao lecSubjDao = new LecturerSubjectDao(getSessionFactory());
+
+        Specification<LecturerSubject> spec = Specification.eq("departmentSubject.department.faculty.cipher", "ИУ");
+        Page page = Page.of(0, 20)
+                .orderBy(Order.desc("departmentSubject.department.number"))
+                .orderBy(Order.asc("id"));
+        List<LecturerSubject> found = lecSubjDao.findAll(spec, page);
+
+        assertFalse(found.isEmpty());
+        for (int i = 1; i < found.size(); i++) {
+            assertTrue(found.get(i - 1).getDepartmentSubject().getDepartment().getNumber()
+                    >= found.get(i).getDepartmentSubject().getDepartment().getNumber());
+        }
+
+        // Without joins in the specification the order path is joined as well
+        assertFalse(lecSubjDao.findAll(Specification.all(), page).isEmpty());
+    }
+
+    @Test
+    void ordersThroughCollectionsAreRejected() {
+        DepartmentSubjectDao deptSubjDao = new DepartmentSubjectDao(getSessionFactory());
+
+        Page page = Page.of(0, 10).orderBy(Order.asc("lecturerSubjects.id"));
+        assertThrows(IllegalArgumentException.class, () -> deptSubjDao.findAll(Specification.all(), page));
+    }
+
+}
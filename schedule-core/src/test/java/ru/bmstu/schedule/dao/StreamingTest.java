@@ -0,0 +1,44 @@
+package ru.bmstu.schedule.dao;
+
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.entity.Lecturer;
+import ru.bmstu.schedule.entity.LecturerSubject;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingTest extends DatabaseAccessTest {
+
+    @Test
+    void forEachBatchVisitsEveryRowOnce() {
+        LecturerSubjectDao lecSubjDao = new LecturerSubjectDao(getSessionFactory());
+        long total = lecSubjDao.count(Specification.all());
+        Set<Integer> seen = new HashSet<>();
+
+        lecSubjDao.forEachBatch(16, batch -> {
+            assertTrue(batch.size() <= 16);
+            for (LecturerSubject lecSubj : batch) {
+                assertTrue(seen.add(lecSubj.getId()));
+            }
+        });
+
+        assertEquals(total, seen.size());
+    }
+
+    @Test
+    void streamClosesItsTransaction() {
+        LecturerDao lecDao = new LecturerDao(getSessionFactory());
+        long total = lecDao.count(Specification.all());
+
+        try (Stream<Lecturer> lecturers = lecDao.stream()) {
+            assertEquals(total, lecturers.count());
+            assertTrue(UnitOfWork.isActive(getSessionFactory()));
+        }
+
+        assertFalse(UnitOfWork.isActive(getSessionFactory()));
+    }
+
+}
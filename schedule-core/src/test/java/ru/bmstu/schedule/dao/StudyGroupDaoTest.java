@@ -1,8 +1,13 @@
 package ru.bmstu.schedule.dao;
 
 import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.dto.TimetableRow;
+import ru.bmstu.schedule.entity.ScheduleDay;
+import ru.bmstu.schedule.entity.ScheduleItem;
 import ru.bmstu.schedule.entity.StudyGroup;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -16,4 +21,56 @@ class StudyGroupDaoTest extends DatabaseAccessTest {
         assertTrue(grOpt.isPresent());
     }
 
-}
\ No newline at end of file
+    @Test
+    void timetableRowsMatchScheduleEntities() {
+        StudyGroupDao groupDao = new StudyGroupDao(getSessionFactory());
+        Optional<StudyGroup> grOpt = groupDao.findByCipher("ИБМ7-82Б")
+                .flatMap(gr -> groupDao.findByKey(gr.getId(), StudyGroup.SCHEDULE_EXPORT));
+        assertTrue(grOpt.isPresent());
+
+        int noOfParities = 0;
+        for (ScheduleDay day : grOpt.get().getScheduleDays()) {
+            for (ScheduleItem item : day.getScheduleItems()) {
+                noOfParities += item.getScheduleItemParities().size();
+            }
+        }
+
+        List<TimetableRow> timetable = groupDao.findTimetable(grOpt.get().getId());
+        assertEquals(noOfParities, timetable.stream().filter(TimetableRow::hasClass).count());
+        assertEquals(grOpt.get().getScheduleDays().size(), timetable.stream().mapToInt(TimetableRow::getDayOfWeekId).distinct().count());
+        for (TimetableRow row : timetable) {
+            assertEquals(grOpt.get().getId(), row.getGroupId());
+        }
+
+        assertTrue(groupDao.findTimetable(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    void timetablesOfSemesterIncludeItsGroups() {
+        StudyGroupDao groupDao = new StudyGroupDao(getSessionFactory());
+        Optional<StudyGroup> grOpt = groupDao.findByCipher("ИБМ7-82Б")
+                .flatMap(gr -> groupDao.findByKey(gr.getId(), StudyGroup.SCHEDULE_EXPORT));
+        assertTrue(grOpt.isPresent());
+
+        int groupId = grOpt.get().getId();
+        int semester = grOpt.get().getSemester();
+        for (ScheduleDay day : grOpt.get().getScheduleDays()) {
+            assertEquals(semester, day.getSemester());
+        }
+
+        List<TimetableRow> timetable = groupDao.findTimetable(groupId);
+        List<TimetableRow> semesterTimetables = groupDao.findAllTimetables(semester);
+        assertEquals(timetable.size(), semesterTimetables.stream().filter(row -> row.getGroupId() == groupId).count());
+        assertTrue(groupDao.findAllTimetables(semester - 10).stream().noneMatch(row -> row.getGroupId() == groupId));
+    }
+
+    @Test
+    void semesterOfTerm() {
+        assertEquals(20241, StudyGroup.semesterOf(2024, 1));
+        assertEquals(20242, StudyGroup.semesterOf(2024, 2));
+        assertEquals(20251, StudyGroup.semesterOf(2024, 3));
+        assertEquals(20272, StudyGroup.semesterOf(2024, 8));
+        assertThrows(IllegalArgumentException.class, () -> StudyGroup.semesterOf(2024, 0));
+    }
+
+}
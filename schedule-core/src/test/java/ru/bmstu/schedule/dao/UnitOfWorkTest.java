@@ -0,0 +1,44 @@
+package ru.bmstu.schedule.dao;
+
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.entity.Subject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitOfWorkTest extends DatabaseAccessTest {
+
+    private static final String SUBJECT_NAME = "Тестовый предмет единицы работы";
+
+    @Test
+    void daoCallsJoinOuterTransaction() {
+        SubjectDao subjDao = new SubjectDao(getSessionFactory());
+        UnitOfWork unitOfWork = new UnitOfWork(getSessionFactory());
+
+        Integer id = unitOfWork.call(session -> {
+            Integer subjId = subjDao.create(new Subject(SUBJECT_NAME));
+            assertTrue(UnitOfWork.isActive(getSessionFactory()));
+            assertTrue(subjDao.findByName(SUBJECT_NAME).isPresent());
+            return subjId;
+        });
+
+        assertFalse(UnitOfWork.isActive(getSessionFactory()));
+        Subject subj = subjDao.findByKey(id);
+        assertNotNull(subj);
+        subjDao.delete(subj);
+    }
+
+    @Test
+    void failedUnitIsRolledBack() {
+        SubjectDao subjDao = new SubjectDao(getSessionFactory());
+        UnitOfWork unitOfWork = new UnitOfWork(getSessionFactory());
+
+        assertThrows(IllegalStateException.class, () -> unitOfWork.run(session -> {
+            subjDao.create(new Subject(SUBJECT_NAME));
+            throw new IllegalStateException("rollback");
+        }));
+
+        assertFalse(UnitOfWork.isActive(getSessionFactory()));
+        assertFalse(subjDao.findByName(SUBJECT_NAME).isPresent());
+    }
+
+}
@@ -0,0 +1,33 @@
+package ru.bmstu.schedule.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+
+    @Test
+    void putGetRemove() {
+        IntObjectMap<String> map = new IntObjectMap<>(2);
+        for (int key = -100; key <= 1000; key++) {
+            map.put(key, "v" + key);
+        }
+        assertEquals(1101, map.size());
+
+        for (int key = -100; key <= 1000; key += 3) {
+            assertEquals("v" + key, map.remove(key));
+        }
+        for (int key = -100; key <= 1000; key++) {
+            assertEquals((key + 100) % 3 != 0, map.containsKey(key), "key " + key);
+        }
+
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertEquals(map.size(), keys.length);
+        assertEquals(-99, keys[0]);
+        assertNull(map.remove(-100));
+    }
+
+}
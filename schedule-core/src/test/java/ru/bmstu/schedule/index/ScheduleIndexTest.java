@@ -0,0 +1,73 @@
+package ru.bmstu.schedule.index;
+
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.dto.TimetableRow;
+import ru.bmstu.schedule.index.ScheduleIndex.Resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleIndexTest {
+
+    private static final int ROOM = 101;
+    private static final int LECTURER = 7;
+
+    private static TimetableRow row(int groupId, String day, int classNumber, String parity, Integer roomId, String lecturer) {
+        return new TimetableRow(groupId, 1, day, day, classNumber, classNumber, null, null, parity,
+                "Математический анализ", LECTURER, lecturer, "Иван", "Иванович", roomId, "218л", "лекция");
+    }
+
+    @Test
+    void conflictsAndFreeSlots() {
+        ScheduleIndex index = ScheduleIndex.build(Arrays.asList(
+                row(1, "СР", 3, "ЧС", ROOM, "Иванов"),
+                row(1, "ПН", 1, "ЧС/ЗН", null, "Иванов"),
+                row(2, "ПН", 2, null, ROOM, "Иванов")
+        ));
+        int wed3 = ScheduleIndex.bitOf(ScheduleIndex.dayIndex("СР"), 2);
+
+        assertFalse(index.isFree(Resource.room, ROOM, 2, 2, "ЧС"));
+        assertTrue(index.isFree(Resource.room, ROOM, 2, 2, "ЗН"));
+        assertFalse(index.isFree(Resource.room, ROOM, 2, 2, "ЧС/ЗН"));
+        assertFalse(index.isFree(Resource.lecturer, LECTURER, 0, 0, "ЗН"));
+        assertTrue(index.isFree(Resource.group, 2, 0, 1, "ЧС/ЗН"));
+
+        assertEquals(1L << wed3, index.busySlots(Resource.room, ROOM, ScheduleIndex.NUMERATOR));
+        assertArrayEquals(new int[]{0, wed3}, ScheduleIndex.slotsOf(index.busySlots(Resource.group, 1, ScheduleIndex.NUMERATOR)));
+        assertEquals(3, index.load(Resource.lecturer, LECTURER));
+
+        long free = ScheduleIndex.freeOf(
+                index.busySlots(Resource.group, 1, ScheduleIndex.NUMERATOR),
+                index.busySlots(Resource.room, ROOM, ScheduleIndex.NUMERATOR)
+        );
+        assertEquals(ScheduleIndex.NO_OF_DAYS * ScheduleIndex.NO_OF_CLASSES - 2, Long.bitCount(free));
+        assertArrayEquals(new int[]{102}, index.freeRooms(new int[]{ROOM, 102}, 2, 2, "ЧС"));
+    }
+
+    @Test
+    void sharedClassIsReleasedByLastGroup() {
+        TimetableRow first = row(1, "ВТ", 4, "ЧС/ЗН", ROOM, "Иванов");
+        TimetableRow second = row(2, "ВТ", 4, "ЧС/ЗН", ROOM, "Иванов");
+        ScheduleIndex index = ScheduleIndex.build(Arrays.asList(first, second));
+        assertEquals(2, index.load(Resource.room, ROOM));
+
+        index.remove(first);
+        assertFalse(index.isFree(Resource.room, ROOM, 1, 3, "ЧС/ЗН"));
+        assertTrue(index.isFree(Resource.group, 1, 1, 3, "ЧС/ЗН"));
+
+        index.replaceGroup(2, Collections.singletonList(row(2, "ЧТ", 4, "ЗН", ROOM, "Иванов")));
+        assertTrue(index.isFree(Resource.room, ROOM, 1, 3, "ЧС/ЗН"));
+        assertFalse(index.isFree(Resource.room, ROOM, 3, 3, "ЗН"));
+        assertArrayEquals(new int[]{ROOM}, index.ids(Resource.room));
+    }
+
+    @Test
+    void placeholderLecturerIsNeverBusy() {
+        ScheduleIndex index = ScheduleIndex.build(Collections.singletonList(row(1, "ПТ", 2, "ЧС", ROOM, "[UNKNOWN]")));
+        assertEquals(0, index.load(Resource.lecturer, LECTURER));
+        assertThrows(IllegalArgumentException.class, () -> index.isFree(Resource.room, ROOM, 6, 0, "ЧС"));
+    }
+
+}
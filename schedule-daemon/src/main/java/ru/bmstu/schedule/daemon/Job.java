@@ -0,0 +1,91 @@
+package ru.bmstu.schedule.daemon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Job submitted to the daemon. Its status changes in the worker thread and is read by status requests.
+public class Job {
+
+    private final long id;
+    private final JobType type;
+    private final List<String> args;
+    private final long submittedAt;
+
+    private volatile JobStatus status = JobStatus.queued;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String result;
+
+    Job(long id, JobType type, List<String> args) {
+        this.id = id;
+        this.type = type;
+        this.args = Collections.unmodifiableList(new ArrayList<>(args));
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public JobType getType() {
+        return type;
+    }
+
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    // Report of a finished job or the error of a failed one
+    public String getResult() {
+        return result;
+    }
+
+    public boolean isDone() {
+        JobStatus current = status;
+        return current == JobStatus.finished || current == JobStatus.failed;
+    }
+
+    void start() {
+        startedAt = System.currentTimeMillis();
+        status = JobStatus.running;
+    }
+
+    void finish(String report) {
+        result = report;
+        finishedAt = System.currentTimeMillis();
+        status = JobStatus.finished;
+    }
+
+    void fail(Throwable error) {
+        result = error.getMessage() == null ? error.toString() : error.getMessage();
+        finishedAt = System.currentTimeMillis();
+        status = JobStatus.failed;
+    }
+
+    // Time in the queue and time of the run so far, in milliseconds
+    public long getWaitTime() {
+        long started = startedAt;
+        return (started == 0 ? System.currentTimeMillis() : started) - submittedAt;
+    }
+
+    public long getRunTime() {
+        long started = startedAt;
+        long finished = finishedAt;
+        if (started == 0) {
+            return 0;
+        }
+
+        return (finished == 0 ? System.currentTimeMillis() : finished) - started;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d %s %s wait=%dms run=%dms", id, type, status, getWaitTime(), getRunTime());
+    }
+
+}
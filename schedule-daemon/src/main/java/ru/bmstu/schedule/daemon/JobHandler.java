@@ -0,0 +1,124 @@
+package ru.bmstu.schedule.daemon;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Plain text protocol of the /jobs endpoint:
+//   POST /jobs/<type>  body holds the arguments of the tool, one per line; 202 with the job,
+//                      400 for an unknown type, 503 when the queue of the type is full
+//   GET  /jobs/<id>    status of the job and its report once it is done
+//   GET  /jobs         all known jobs, one per line
+class JobHandler implements HttpHandler {
+
+    static final String PATH = "/jobs";
+
+    private final JobQueue queue;
+
+    JobHandler(JobQueue queue) {
+        this.queue = queue;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String name = path.length() > PATH.length() + 1 ? path.substring(PATH.length() + 1) : "";
+            String method = exchange.getRequestMethod();
+
+            if ("POST".equals(method) && !name.isEmpty()) {
+                submit(exchange, name);
+            } else if ("GET".equals(method) && name.isEmpty()) {
+                StringBuilder body = new StringBuilder();
+                for (Job job : queue.findAll()) {
+                    body.append(job).append('\n');
+                }
+                respond(exchange, 200, body.toString());
+            } else if ("GET".equals(method)) {
+                status(exchange, name);
+            } else {
+                respond(exchange, 405, "Unsupported request: " + method + " " + path + "\n");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void submit(HttpExchange exchange, String typeName) throws IOException {
+        Optional<JobType> type = JobType.byName(typeName);
+        if (!type.isPresent()) {
+            respond(exchange, 400, "Unknown job type: " + typeName + "\n");
+            return;
+        }
+
+        Optional<Job> job = queue.submit(type.get(), readArgs(exchange));
+        if (!job.isPresent()) {
+            respond(exchange, 503, "Queue of " + typeName + " jobs is full\n");
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Location", PATH + "/" + job.get().getId());
+        respond(exchange, 202, describe(job.get()));
+    }
+
+    private void status(HttpExchange exchange, String idStr) throws IOException {
+        Optional<Job> job;
+        try {
+            job = queue.find(Long.parseLong(idStr));
+        } catch (NumberFormatException e) {
+            job = Optional.empty();
+        }
+
+        if (job.isPresent()) {
+            respond(exchange, 200, describe(job.get()));
+        } else {
+            respond(exchange, 404, "Job not found: " + idStr + "\n");
+        }
+    }
+
+    private static List<String> readArgs(HttpExchange exchange) throws IOException {
+        List<String> args = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.trim().isEmpty()) {
+                    args.add(line.trim());
+                }
+            }
+        }
+
+        return args;
+    }
+
+    private static String describe(Job job) {
+        StringBuilder body = new StringBuilder()
+                .append("id: ").append(job.getId()).append('\n')
+                .append("type: ").append(job.getType()).append('\n')
+                .append("status: ").append(job.getStatus()).append('\n')
+                .append("wait: ").append(job.getWaitTime()).append(" ms\n")
+                .append("run: ").append(job.getRunTime()).append(" ms\n");
+        if (job.isDone()) {
+            body.append("result: ").append(job.getResult()).append('\n');
+        }
+
+        return body.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+}
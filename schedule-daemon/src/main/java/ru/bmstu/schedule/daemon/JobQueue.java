@@ -0,0 +1,154 @@
+package ru.bmstu.schedule.daemon;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Bounded queues of jobs, one per job type, each drained by its own number of workers. A job that
+// does not fit into its queue is rejected rather than queued without limit. Exclusive jobs wait
+// for the running jobs of all types and keep the others waiting until they are done.
+public class JobQueue implements AutoCloseable {
+
+    // Finished jobs are forgotten when there are more of them
+    private static final int HISTORY_SIZE = 1000;
+
+    private final Map<JobType, ThreadPoolExecutor> executors = new EnumMap<>(JobType.class);
+    private final Map<JobType, JobRunner> runners;
+    private final Map<Long, Job> jobs = new LinkedHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final ReadWriteLock exclusion = new ReentrantReadWriteLock(true);
+
+    public JobQueue(Map<JobType, JobRunner> runners, Map<JobType, Limits> limits) {
+        this.runners = new EnumMap<>(runners);
+        for (JobType type : runners.keySet()) {
+            Limits limit = limits.get(type);
+            if (limit == null) {
+                throw new IllegalArgumentException("Limits of " + type + " jobs are not specified");
+            }
+
+            AtomicInteger workerNo = new AtomicInteger();
+            executors.put(type, new ThreadPoolExecutor(
+                    limit.workers,
+                    limit.workers,
+                    0,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(limit.capacity),
+                    task -> {
+                        Thread thread = new Thread(task, type + "-worker-" + workerNo.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+            ));
+        }
+    }
+
+    // Empty if the type is not served or its queue is full
+    public Optional<Job> submit(JobType type, List<String> args) {
+        ThreadPoolExecutor executor = executors.get(type);
+        if (executor == null) {
+            return Optional.empty();
+        }
+
+        Job job = new Job(lastId.incrementAndGet(), type, args);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            forgetFinished();
+        }
+
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.getId());
+            }
+            return Optional.empty();
+        }
+
+        return Optional.of(job);
+    }
+
+    public Optional<Job> find(long id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    public List<Job> findAll() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    private void run(Job job) {
+        Lock lock = job.getType().isExclusive() ? exclusion.writeLock() : exclusion.readLock();
+        lock.lock();
+        try {
+            job.start();
+            job.finish(runners.get(job.getType()).run(job.getArgs()));
+        } catch (Exception e) {
+            job.fail(e);
+        } catch (Throwable e) {
+            job.fail(e);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void forgetFinished() {
+        Iterator<Job> it = jobs.values().iterator();
+        while (jobs.size() > HISTORY_SIZE && it.hasNext()) {
+            if (it.next().isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    // Queued jobs are dropped, running ones are interrupted and awaited
+    @Override
+    public void close() throws InterruptedException {
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.shutdownNow();
+        }
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    public static final class Limits {
+        private final int workers;
+        private final int capacity;
+
+        // Number of jobs of a type running at once and number of jobs waiting for them
+        public Limits(int workers, int capacity) {
+            if (workers <= 0 || capacity <= 0) {
+                throw new IllegalArgumentException("Limits of jobs should be positive: " + workers + ", " + capacity);
+            }
+
+            this.workers = workers;
+            this.capacity = capacity;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+    }
+
+}
@@ -0,0 +1,11 @@
+package ru.bmstu.schedule.daemon;
+
+import java.util.List;
+
+// Runs one job with the arguments of the tool's command line, returns a short report of the result
+@FunctionalInterface
+public interface JobRunner {
+
+    String run(List<String> args) throws Exception;
+
+}
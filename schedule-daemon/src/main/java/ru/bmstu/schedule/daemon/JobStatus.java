@@ -0,0 +1,8 @@
+package ru.bmstu.schedule.daemon;
+
+public enum JobStatus {
+    queued,
+    running,
+    finished,
+    failed
+}
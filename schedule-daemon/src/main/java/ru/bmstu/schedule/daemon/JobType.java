@@ -0,0 +1,30 @@
+package ru.bmstu.schedule.daemon;
+
+import java.util.Optional;
+
+// Jobs are named after the tools that run them. An exclusive job runs alone: dbfill clears the database.
+public enum JobType {
+    smtgen(false),
+    pdfgen(false),
+    dbfill(true);
+
+    private final boolean exclusive;
+
+    JobType(boolean exclusive) {
+        this.exclusive = exclusive;
+    }
+
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    public static Optional<JobType> byName(String name) {
+        for (JobType type : values()) {
+            if (type.name().equals(name)) {
+                return Optional.of(type);
+            }
+        }
+
+        return Optional.empty();
+    }
+}
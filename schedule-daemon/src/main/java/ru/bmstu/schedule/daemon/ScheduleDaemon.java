@@ -0,0 +1,144 @@
+package ru.bmstu.schedule.daemon;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.cli.ParseException;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import ru.bmstu.schedule.dbtools.FillSchedule;
+import ru.bmstu.schedule.entity.StudyGroup;
+import ru.bmstu.schedule.pdfgen.PDFUtils;
+import ru.bmstu.schedule.pdfgen.PdfPrinter;
+import ru.bmstu.schedule.smtgen.Schedule;
+import ru.bmstu.schedule.smtgen.cli.CommandLineParser;
+import ru.bmstu.schedule.smtgen.cli.GenerateSchedule;
+import ru.bmstu.schedule.smtgen.cli.ScheduleConfiguration;
+import ru.bmstu.schedule.smtgen.model.ScheduleContextPool;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps the session factory, the Z3 contexts and the PDF font loaded and runs the jobs of smtgen,
+// pdfgen and dbfill sent to a local HTTP endpoint (see JobHandler), so that a job does not pay
+// for their startup. Listens on the loopback interface only.
+//
+//   java -jar schedule-daemon.jar [port]
+//
+// Limits of a job type are set with -Dschedule.daemon.<type>.workers and -Dschedule.daemon.<type>.queue.
+public class ScheduleDaemon {
+
+    private static final int DEFAULT_PORT = 8765;
+    private static final int HTTP_THREADS = 2;
+
+    private final SessionFactory sessionFactory;
+    private final ScheduleContextPool contextPool;
+    private final JobQueue queue;
+    private final ExecutorService httpExecutor = Executors.newFixedThreadPool(HTTP_THREADS);
+    private HttpServer server;
+
+    private ScheduleDaemon(SessionFactory sessionFactory, Map<JobType, JobQueue.Limits> limits) {
+        this.sessionFactory = sessionFactory;
+        this.contextPool = new ScheduleContextPool(limits.get(JobType.smtgen).getWorkers());
+
+        Map<JobType, JobRunner> runners = new EnumMap<>(JobType.class);
+        runners.put(JobType.smtgen, this::generateSchedules);
+        runners.put(JobType.pdfgen, this::printPdf);
+        runners.put(JobType.dbfill, this::fillDatabase);
+        this.queue = new JobQueue(runners, limits);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        Map<JobType, JobQueue.Limits> limits = new EnumMap<>(JobType.class);
+        limits.put(JobType.smtgen, limitsOf(JobType.smtgen, 1, 16));
+        limits.put(JobType.pdfgen, limitsOf(JobType.pdfgen, 4, 64));
+        limits.put(JobType.dbfill, limitsOf(JobType.dbfill, 1, 1));
+
+        long startedAt = System.currentTimeMillis();
+        ScheduleDaemon daemon = new ScheduleDaemon(new Configuration().configure().buildSessionFactory(), limits);
+        daemon.warmUp();
+        daemon.start(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop, "schedule-daemon-shutdown"));
+
+        System.out.printf("[info] Listening on %s:%d, started in %d ms%n",
+                InetAddress.getLoopbackAddress().getHostAddress(), port, System.currentTimeMillis() - startedAt);
+    }
+
+    private static JobQueue.Limits limitsOf(JobType type, int workers, int capacity) {
+        String prefix = "schedule.daemon." + type + ".";
+        return new JobQueue.Limits(
+                Integer.getInteger(prefix + "workers", workers),
+                Integer.getInteger(prefix + "queue", capacity)
+        );
+    }
+
+    // Loads the Z3 natives with the first context, which is kept in the pool, and the font of the documents
+    private void warmUp() throws InterruptedException {
+        contextPool.acquire().close();
+        PDFUtils.preloadFont();
+    }
+
+    private void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(JobHandler.PATH, new JobHandler(queue));
+        server.setExecutor(httpExecutor);
+        server.start();
+    }
+
+    private void stop() {
+        server.stop(0);
+        httpExecutor.shutdown();
+        try {
+            queue.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        contextPool.close();
+        sessionFactory.close();
+    }
+
+    // Arguments are those of smtgen, schedules are generated, written and published as by smtgen
+    private String generateSchedules(List<String> args) throws Exception {
+        ScheduleConfiguration config;
+        try {
+            config = new CommandLineParser().parse(args.toArray(new String[0]));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Невалидные параметры командной строки: " + e.getMessage(), e);
+        }
+
+        GenerateSchedule generator = new GenerateSchedule(sessionFactory);
+        generator.setContextPool(contextPool);
+        Map<StudyGroup, Schedule> schedules = generator.generate(config);
+        int removedDays = generator.persist(schedules).join();
+
+        return String.format("Сгенерировано расписаний: %d, удалено устаревших дней расписания: %d",
+                schedules.size(), removedDays);
+    }
+
+    // Arguments are those of pdfgen: output directory and group cipher
+    private String printPdf(List<String> args) throws Exception {
+        if (args.size() != 2) {
+            throw new IllegalArgumentException(String.format(
+                    "Невалидное число аргументов: %d (требуется %d)", args.size(), 2));
+        }
+
+        return PdfPrinter.print(sessionFactory, args.get(0), args.get(1));
+    }
+
+    // Argument is the config file of dbfill
+    private String fillDatabase(List<String> args) throws Exception {
+        if (args.size() != 1) {
+            throw new IllegalArgumentException("Config file of dbfill is not specified");
+        }
+
+        new FillSchedule(sessionFactory, args.get(0)).run();
+        return "Database filled from " + args.get(0);
+    }
+
+}
@@ -0,0 +1,93 @@
+package ru.bmstu.schedule.daemon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobQueueTest {
+
+    @Test
+    void finishedJobKeepsItsReport() throws Exception {
+        try (JobQueue queue = queue(args -> "done: " + args, new JobQueue.Limits(1, 1))) {
+            Job job = queue.submit(JobType.pdfgen, Collections.singletonList("out")).get();
+
+            awaitDone(job);
+            assertEquals(JobStatus.finished, job.getStatus());
+            assertEquals("done: [out]", job.getResult());
+            assertSame(job, queue.find(job.getId()).get());
+        }
+    }
+
+    @Test
+    void failedJobKeepsItsError() throws Exception {
+        JobRunner failing = args -> {
+            throw new IllegalArgumentException("Группа с таким шифром не найдена в базе");
+        };
+        try (JobQueue queue = queue(failing, new JobQueue.Limits(1, 1))) {
+            Job job = queue.submit(JobType.pdfgen, Collections.emptyList()).get();
+
+            awaitDone(job);
+            assertEquals(JobStatus.failed, job.getStatus());
+            assertEquals("Группа с таким шифром не найдена в базе", job.getResult());
+        }
+    }
+
+    @Test
+    void jobBeyondQueueCapacityIsRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JobRunner blocking = args -> {
+            release.await();
+            return "";
+        };
+        try (JobQueue queue = queue(blocking, new JobQueue.Limits(1, 1))) {
+            Job running = queue.submit(JobType.pdfgen, Collections.emptyList()).get();
+            Job queued = queue.submit(JobType.pdfgen, Collections.emptyList()).get();
+            Optional<Job> rejected = queue.submit(JobType.pdfgen, Collections.emptyList());
+
+            assertFalse(rejected.isPresent());
+            assertEquals(2, queue.findAll().size());
+
+            release.countDown();
+            awaitDone(running);
+            awaitDone(queued);
+        }
+    }
+
+    @Test
+    void typeWithoutRunnerIsNotServed() throws Exception {
+        try (JobQueue queue = queue(args -> "", new JobQueue.Limits(1, 1))) {
+            assertFalse(queue.submit(JobType.smtgen, Collections.emptyList()).isPresent());
+        }
+    }
+
+    @Test
+    void limitsShouldBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new JobQueue.Limits(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new JobQueue.Limits(1, 0));
+    }
+
+    private static JobQueue queue(JobRunner runner, JobQueue.Limits limits) {
+        Map<JobType, JobRunner> runners = new EnumMap<>(JobType.class);
+        runners.put(JobType.pdfgen, runner);
+        Map<JobType, JobQueue.Limits> allLimits = new EnumMap<>(JobType.class);
+        allLimits.put(JobType.pdfgen, limits);
+
+        return new JobQueue(runners, allLimits);
+    }
+
+    private static void awaitDone(Job job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!job.isDone() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isDone(), "Job is not done: " + job);
+    }
+
+}
@@ -0,0 +1,240 @@
+package ru.bmstu.schedule.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Streaming import of a CSV file: a reader thread puts the records into a bounded queue, parse workers
+// turn them into entities in parallel and the calling thread writes the entities in batches, one
+// transaction per batch. Full queues block the stage before them, so a slow writer slows the reading
+// down instead of piling up the file in memory. Entities are written in the order of the file, since
+// generated ids of reference rows (days of week, class times) follow it. Rows that fail to parse or
+// to be written are reported, the others are imported.
+public class CSVPipeline<T> {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    // End marker of the queues, compared by reference
+    private static final Row<?> END = new Row<>(-1, -1, null, null);
+
+    private final Function<CSVRecord, T> rowMapper;
+    private final int workers;
+    private final int batchSize;
+
+    // Mapper is called concurrently and should not share mutable state between rows
+    public CSVPipeline(Function<CSVRecord, T> rowMapper) {
+        this(rowMapper, DEFAULT_WORKERS, DEFAULT_BATCH_SIZE);
+    }
+
+    public CSVPipeline(Function<CSVRecord, T> rowMapper, int workers, int batchSize) {
+        if (workers <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Number of workers and batch size should be positive");
+        }
+
+        this.rowMapper = rowMapper;
+        this.workers = workers;
+        this.batchSize = batchSize;
+    }
+
+    public ImportReport run(String csvFile, Consumer<List<T>> batchWriter) throws IOException {
+        try (Reader reader = new FileReader(csvFile)) {
+            return run(Paths.get(csvFile).getFileName().toString(), reader, batchWriter);
+        }
+    }
+
+    public ImportReport run(String source, Reader reader, Consumer<List<T>> batchWriter) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        CSVParser parser = CSVFormat.EXCEL.withHeader().parse(reader);
+
+        BlockingQueue<Row<CSVRecord>> records = new ArrayBlockingQueue<>(batchSize * 2);
+        BlockingQueue<Row<T>> rows = new ArrayBlockingQueue<>(batchSize * 2);
+        AtomicReference<RuntimeException> readFailure = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1, task -> {
+            Thread thread = new Thread(task, "csv-" + source);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            executor.execute(() -> readRecords(parser, records, readFailure));
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> parseRecords(records, rows));
+            }
+
+            List<ImportReport.RowError> errors = new ArrayList<>();
+            int[] counts = writeRows(rows, batchWriter, errors);
+
+            RuntimeException failure = readFailure.get();
+            if (failure != null) {
+                throw new IOException("Unable to read " + source + ": " + failure.getMessage(), failure);
+            }
+
+            return new ImportReport(source, counts[0], counts[1], errors, System.currentTimeMillis() - startedAt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import of " + source + " was interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Every worker gets its own end marker, whatever stopped the reading
+    private void readRecords(CSVParser parser, BlockingQueue<Row<CSVRecord>> records,
+                             AtomicReference<RuntimeException> readFailure) {
+        try {
+            long seq = 0;
+            try {
+                for (CSVRecord record : parser) {
+                    records.put(new Row<>(seq++, record.getRecordNumber(), record, null));
+                }
+            } catch (RuntimeException e) {
+                // The parser reports malformed input as IllegalStateException
+                readFailure.set(e);
+            }
+
+            for (int i = 0; i < workers; i++) {
+                records.put(end());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A row that fails to parse is passed on with its error to keep the sequence of rows without gaps
+    private void parseRecords(BlockingQueue<Row<CSVRecord>> records, BlockingQueue<Row<T>> rows) {
+        try {
+            for (Row<CSVRecord> record = records.take(); record != END; record = records.take()) {
+                T entity = null;
+                String error = null;
+                try {
+                    entity = rowMapper.apply(record.value);
+                } catch (RuntimeException e) {
+                    error = messageOf(e);
+                }
+
+                rows.put(new Row<>(record.seq, record.number, entity, error));
+            }
+
+            rows.put(end());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Rows parsed ahead of their turn wait in the map; there are no more of them than the rows in flight
+    private int[] writeRows(BlockingQueue<Row<T>> rows, Consumer<List<T>> batchWriter,
+                            List<ImportReport.RowError> errors) throws InterruptedException {
+        Map<Long, Row<T>> ahead = new HashMap<>();
+        List<Row<T>> batch = new ArrayList<>(batchSize);
+        long nextSeq = 0;
+        int written = 0;
+        int finishedWorkers = 0;
+        while (finishedWorkers < workers) {
+            Row<T> row = rows.take();
+            if (row == END) {
+                finishedWorkers++;
+                continue;
+            }
+
+            ahead.put(row.seq, row);
+            for (row = ahead.remove(nextSeq); row != null; row = ahead.remove(nextSeq)) {
+                nextSeq++;
+                if (row.error != null) {
+                    errors.add(new ImportReport.RowError(row.number, row.error));
+                    continue;
+                }
+
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    written += writeBatch(batch, batchWriter, errors);
+                    batch.clear();
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            written += writeBatch(batch, batchWriter, errors);
+        }
+
+        return new int[]{(int) nextSeq, written};
+    }
+
+    // A failed batch is rolled back and written again row by row, so that a bad row does not lose the others
+    private int writeBatch(List<Row<T>> batch, Consumer<List<T>> batchWriter, List<ImportReport.RowError> errors) {
+        List<T> entities = new ArrayList<>(batch.size());
+        for (Row<T> row : batch) {
+            entities.add(row.value);
+        }
+
+        try {
+            batchWriter.accept(entities);
+            return entities.size();
+        } catch (RuntimeException batchError) {
+            if (batch.size() == 1) {
+                errors.add(new ImportReport.RowError(batch.get(0).number, messageOf(batchError)));
+                return 0;
+            }
+        }
+
+        int written = 0;
+        for (Row<T> row : batch) {
+            try {
+                batchWriter.accept(Collections.singletonList(row.value));
+                written++;
+            } catch (RuntimeException e) {
+                errors.add(new ImportReport.RowError(row.number, messageOf(e)));
+            }
+        }
+
+        return written;
+    }
+
+    private static String messageOf(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+
+        return cause.getMessage() == null ? cause.toString() : cause.getMessage();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Row<V> end() {
+        return (Row<V>) END;
+    }
+
+    // Position of a row in the file (seq), its record number for the report and its value or parse error
+    private static final class Row<V> {
+        private final long seq;
+        private final long number;
+        private final V value;
+        private final String error;
+
+        private Row(long seq, long number, V value, String error) {
+            this.seq = seq;
+            this.number = number;
+            this.value = value;
+            this.error = error;
+        }
+    }
+
+}
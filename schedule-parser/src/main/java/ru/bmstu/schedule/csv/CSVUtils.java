@@ -15,8 +15,13 @@ import ru.bmstu.schedule.entity.*;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class CSVUtils {
 
@@ -24,57 +29,74 @@ public class CSVUtils {
     private static final String LECTURER_TYPE_NAME = "лекция";
     private static final String SEMINAR_TYPE_NAME = "семинар";
 
-    @SuppressWarnings("unchecked")
-    public static <E, K extends Serializable> void
+    // Entities are parsed in parallel and written in batches, entityConsumer is called from the parse workers
+    public static <E, K extends Serializable> ImportReport
     fillFromCsv(HibernateDao<K, E> dao, String csvFile, BiConsumer<E, RecordHolder> entityConsumer)
             throws IOException, IllegalStateException {
 
-        CSVParser parser = CSVFormat.EXCEL.withHeader().parse(new FileReader(csvFile));
+        return importFromCsv(csvFile, entityMapper(dao, entityConsumer), dao::createAll);
+    }
+
+    public static <E, K extends Serializable> ImportReport
+    fillFromCsv(HibernateDao<K, E> dao, String csvFile) throws IOException, IllegalStateException {
+        return fillFromCsv(dao, csvFile, (e, r) -> {
+        });
+    }
+
+    // Reference rows already in the database (same natural key) are updated instead of failing the import
+    public static <E, K extends Serializable> ImportReport
+    upsertFromCsv(HibernateDao<K, E> dao, String csvFile, String... naturalKey) throws IOException, IllegalStateException {
+        Function<CSVRecord, E> mapper = entityMapper(dao, (e, r) -> {
+        });
+        return importFromCsv(csvFile, mapper, batch -> dao.upsertAll(batch, naturalKey));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E, K extends Serializable> Function<CSVRecord, E>
+    entityMapper(HibernateDao<K, E> dao, BiConsumer<E, RecordHolder> entityConsumer) {
         EntryParser<E, ?> entityParser = ParserFactory.parserFor(dao.getPersistentClass());
 
-        for (CSVRecord rec : parser) {
+        return rec -> {
             RecordHolder holder = new RecordHolder(rec);
             E parsed = (E) entityParser.parse(holder);
             entityConsumer.accept(parsed, holder);
-            dao.create(parsed);
-        }
+            return parsed;
+        };
     }
 
-    public static <E, K extends Serializable> void
-    fillFromCsv(HibernateDao<K, E> dao, String csvFile) throws IOException, IllegalStateException {
-        fillFromCsv(dao, csvFile, (e, r) -> {
-        });
+    private static <E> ImportReport
+    importFromCsv(String csvFile, Function<CSVRecord, E> mapper, Consumer<List<E>> batchWriter) throws IOException {
+        ImportReport report = new CSVPipeline<>(mapper).run(csvFile, batchWriter);
+        report.print();
+        return report;
     }
 
     @SuppressWarnings("unchecked")
-    public static void fillLecturers(String csvFile, SessionFactory sessionFactory) throws IOException {
-        CSVParser parser = CSVFormat.EXCEL.withHeader().parse(new FileReader(csvFile));
+    public static ImportReport fillLecturers(String csvFile, SessionFactory sessionFactory) throws IOException {
         LecturerDao lecturerDao = new LecturerDao(sessionFactory);
         EntryParser<LecturerEntry, LecturerHeader> lecParser = (EntryParser<LecturerEntry, LecturerHeader>) ParserFactory.parserFor(LecturerEntry.class);
 
-        for (CSVRecord record : parser) {
-            RecordHolder<LecturerHeader> recHolder = new RecordHolder<>(record);
-            LecturerEntry lec;
-            try {
-                lec = lecParser.parse(recHolder);
-            } catch (Exception e) {
-                e.printStackTrace();
-                System.out.println("[error] Failed to parse csv record: " + record);
-                continue;
-            }
+        return importFromCsv(csvFile, record -> {
+            LecturerEntry lec = lecParser.parse(new RecordHolder<>(record));
 
             Lecturer lecEntity = new Lecturer();
             lecEntity.setEduDegree(lec.getEduDegree());
             lecEntity.setFirstName(lec.getFirstName());
             lecEntity.setLastName(lec.getLastName());
             lecEntity.setMiddleName(lec.getMiddleName());
-            lecturerDao.create(lecEntity);
-        }
+            return lecEntity;
+        }, lecturerDao::createAll);
     }
 
     @SuppressWarnings("unchecked")
     public static void fillCalendar(Calendar calendar, SessionFactory sessionFactory, String csvFile) throws IOException {
         CSVParser parser = CSVFormat.EXCEL.withHeader().parse(new FileReader(csvFile));
+        new UnitOfWork(sessionFactory).run(session -> fillCalendarItems(calendar, sessionFactory, parser));
+    }
+
+    // Lookups and the final update share one transaction instead of committing per subject.
+    @SuppressWarnings("unchecked")
+    private static void fillCalendarItems(Calendar detachedCalendar, SessionFactory sessionFactory, CSVParser parser) {
         ClassTypeDao ctDao = new ClassTypeDao(sessionFactory);
         DepartmentSubjectDao deptSubjDao = new DepartmentSubjectDao(sessionFactory);
         DepartmentDao deptDao = new DepartmentDao(sessionFactory);
@@ -82,6 +104,13 @@ public class CSVUtils {
         TermDao termDao = new TermDao(sessionFactory);
         CalendarDao calendarDao = new CalendarDao(sessionFactory);
 
+        Calendar calendar = calendarDao.findByKey(detachedCalendar.getId(), Calendar.IMPORT_DEDUP)
+                .orElseThrow(() -> new IllegalStateException("Calendar not found: " + detachedCalendar.getId()));
+        Set<Integer> existingDeptSubjects = new HashSet<>();
+        for (CalendarItem existingItem : calendar.getCalendarItems()) {
+            existingDeptSubjects.add(existingItem.getDepartmentSubject().getId());
+        }
+
         boolean isOptionalSubject = false;
         String subjectName;
         int lectureHours = -1, seminarHours = -1, laboratoryHours = -1;
@@ -91,7 +120,27 @@ public class CSVUtils {
                 seminarCT = ctDao.findByName(SEMINAR_TYPE_NAME),
                 lectureCT = ctDao.findByName(LECTURER_TYPE_NAME);
 
-        for (CSVRecord rec : parser) {
+        // Departments and subjects of the whole file are fetched in batches, terms once per number
+        List<CSVRecord> records;
+        try {
+            records = parser.getRecords();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        BatchLoader<String, Department> departments = new BatchLoader<>(deptDao::findAllByCiphers);
+        BatchLoader<String, Subject> subjects = new BatchLoader<>(subjDao::findAllByNames);
+        BatchLoader<Integer, Term> termsByNumber = new BatchLoader<>(termDao::findAllByNumbers);
+        for (CSVRecord rec : records) {
+            RecordHolder<CalendarHeader> holder = new RecordHolder<>(rec);
+            String name = holder.get(CalendarHeader.subject);
+            if (StringUtils.isNotEmpty(name) && rec.isSet(CalendarHeader.department.getHeader())) {
+                departments.register(holder.get(CalendarHeader.department));
+                subjects.register(name);
+            }
+        }
+
+        for (CSVRecord rec : records) {
             RecordHolder<CalendarHeader> holder = new RecordHolder<>(rec);
 
             subjectName = holder.get(CalendarHeader.subject);
@@ -133,19 +182,20 @@ public class CSVUtils {
 
                 String deptCipher = holder.get(CalendarHeader.department);
 
-                Optional<Department> deptOpt = deptDao.findByCipher(deptCipher);
+                Optional<Department> deptOpt = departments.load(deptCipher);
                 if (!deptOpt.isPresent()) {
                     System.out.println("[warn] Department not found: " + deptCipher);
                     continue;
                 }
 
-                Optional<Subject> subjOpt = subjDao.findByName(subjectName);
+                Optional<Subject> subjOpt = subjects.load(subjectName);
                 Subject subj;
                 if (subjOpt.isPresent()) {
                     subj = subjOpt.get();
                 } else {
                     subj = new Subject(subjectName);
                     subj = subjDao.findByKey(subjDao.create(subj));
+                    subjects.prime(subjectName, subj);
                 }
 
                 DepartmentSubject deptSubj;
@@ -159,11 +209,17 @@ public class CSVUtils {
                     deptSubj.setId(deptSubjId);
                 }
 
+                // Rows of a file imported before are skipped, rows repeated within one file are kept
+                if (existingDeptSubjects.contains(deptSubj.getId())) {
+                    System.out.println("[warn] Subject is already in the calendar: " + subjectName);
+                    continue;
+                }
+
                 CalendarItem item = new CalendarItem();
                 item.setDepartmentSubject(deptSubj);
 
                 for (int termNo : terms) {
-                    Optional<Term> termOpt = termDao.findByNumber(termNo);
+                    Optional<Term> termOpt = termsByNumber.load(termNo);
                     Term term;
                     if (termOpt.isPresent()) {
                         term = termOpt.get();
@@ -172,6 +228,7 @@ public class CSVUtils {
                         term.setNumber(termNo);
                         Integer termId = termDao.create(term);
                         term.setId(termId);
+                        termsByNumber.prime(termNo, term);
                     }
                     CalendarItemCell itemCell = new CalendarItemCell();
                     itemCell.setTerm(term);
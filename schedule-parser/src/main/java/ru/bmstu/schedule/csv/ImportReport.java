@@ -0,0 +1,78 @@
+package ru.bmstu.schedule.csv;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ImportReport {
+
+    private final String source;
+    private final int rows;
+    private final int written;
+    private final List<RowError> errors;
+    private final long elapsedMillis;
+
+    public ImportReport(String source, int rows, int written, List<RowError> errors, long elapsedMillis) {
+        this.source = source;
+        this.rows = rows;
+        this.written = written;
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getWritten() {
+        return written;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+
+    // Summary line followed by a line per failed row
+    public void print() {
+        System.out.println("[info] " + this);
+        for (RowError error : errors) {
+            System.out.println("[error] " + source + ", row " + error.getRowNumber() + ": " + error.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d rows, %d written, %d failed in %d ms (%.0f rows/s)",
+                source, rows, written, errors.size(), elapsedMillis, getRowsPerSecond());
+    }
+
+    public static final class RowError {
+        private final long rowNumber;
+        private final String message;
+
+        public RowError(long rowNumber, String message) {
+            this.rowNumber = rowNumber;
+            this.message = message;
+        }
+
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+}
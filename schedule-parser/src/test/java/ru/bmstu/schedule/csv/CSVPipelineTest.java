@@ -0,0 +1,63 @@
+package ru.bmstu.schedule.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CSVPipelineTest {
+
+    private static String csv(int rows) {
+        StringBuilder csv = new StringBuilder("number\n");
+        for (int i = 1; i <= rows; i++) {
+            csv.append(i).append('\n');
+        }
+        return csv.toString();
+    }
+
+    @Test
+    public void testRowsAreWrittenInFileOrder() throws Exception {
+        List<Integer> written = new ArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        CSVPipeline<Integer> pipeline = new CSVPipeline<>(rec -> Integer.parseInt(rec.get("number")), 4, 7);
+
+        ImportReport report = pipeline.run("numbers.csv", new StringReader(csv(100)), batch -> {
+            batchSizes.add(batch.size());
+            written.addAll(batch);
+        });
+
+        assertEquals(100, report.getRows());
+        assertEquals(100, report.getWritten());
+        assertEquals(0, report.getErrors().size());
+        assertEquals(15, batchSizes.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, (int) written.get(i));
+        }
+    }
+
+    @Test
+    public void testFailedRowsAreReported() throws Exception {
+        List<Integer> written = new ArrayList<>();
+        CSVPipeline<Integer> pipeline = new CSVPipeline<>(rec -> Integer.parseInt(rec.get("number")), 2, 10);
+        String csv = "number\n1\nnot a number\n3\n13\n5\n";
+
+        ImportReport report = pipeline.run("numbers.csv", new StringReader(csv), batch -> {
+            if (batch.contains(13)) {
+                throw new IllegalStateException("unlucky number");
+            }
+            written.addAll(batch);
+        });
+
+        assertEquals(5, report.getRows());
+        assertEquals(3, report.getWritten());
+        assertEquals(2, report.getErrors().size());
+        assertEquals(2, report.getErrors().get(0).getRowNumber());
+        assertEquals(4, report.getErrors().get(1).getRowNumber());
+        assertEquals("unlucky number", report.getErrors().get(1).getMessage());
+        assertEquals(3, written.size());
+    }
+
+}
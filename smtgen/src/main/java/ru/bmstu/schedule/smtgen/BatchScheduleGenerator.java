@@ -0,0 +1,169 @@
+package ru.bmstu.schedule.smtgen;
+
+import ru.bmstu.schedule.dto.LecturerAssignment;
+import ru.bmstu.schedule.entity.*;
+import ru.bmstu.schedule.smtgen.model.LessonParity;
+import ru.bmstu.schedule.smtgen.model.LessonSlot;
+import ru.bmstu.schedule.smtgen.model.ResourceUsage;
+import ru.bmstu.schedule.smtgen.model.ScheduleContextPool;
+
+import java.util.*;
+
+// Generates schedules for several study plans sharing the same classrooms and lecturers.
+// Every plan is solved separately, the most loaded first, and may only use the rooms and
+// lecturers that are free in the schedules of the plans solved before it.
+public class BatchScheduleGenerator {
+
+    private List<Classroom> classrooms;
+    private List<ClassType> classTypes;
+    private List<StudyPlan> studyPlans = new ArrayList<>();
+    private ScheduleContextPool contextPool;
+
+    public BatchScheduleGenerator(List<Classroom> classrooms, List<ClassType> classTypes) {
+        this.classrooms = classrooms;
+        this.classTypes = classTypes;
+    }
+
+    public void setContextPool(ScheduleContextPool contextPool) {
+        this.contextPool = contextPool;
+    }
+
+    // Hours of the subjects are keyed by subject id
+    public void addStudyPlan(
+            Collection<Subject> subjects,
+            Map<Integer, SubjectsPerWeek> totalSubjectsPerWeak,
+            Collection<LecturerAssignment> lecturerAssignments,
+            Collection<Lecturer> lecturers,
+            List<StudyGroup> groups
+    ) {
+        if (groups.isEmpty()) {
+            return;
+        }
+
+        studyPlans.add(new StudyPlan(subjects, totalSubjectsPerWeak, lecturerAssignments, lecturers, groups));
+    }
+
+    public Map<StudyGroup, Schedule> generateSchedules() throws RuntimeException {
+        List<StudyPlan> plans = new ArrayList<>(studyPlans);
+        plans.sort(Comparator.comparingDouble(StudyPlan::load).reversed());
+
+        Map<StudyGroup, Schedule> schedules = new IdentityHashMap<>();
+        Set<ResourceUsage> busyResources = new HashSet<>();
+
+        for (StudyPlan plan : plans) {
+            SmtScheduleGenerator generator = new SmtScheduleGenerator(
+                    plan.subjects,
+                    plan.totalSubjectsPerWeak,
+                    plan.lecturerAssignments,
+                    plan.lecturers,
+                    classrooms,
+                    plan.groups,
+                    classTypes
+            );
+            generator.setContextPool(contextPool);
+            generator.setBusyResources(new ArrayList<>(busyResources));
+
+            Map<StudyGroup, Schedule> planSchedules;
+            try {
+                planSchedules = generator.generateSchedule();
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Unable to build schedule for groups " + plan.groupIds(), e);
+            }
+
+            busyResources.addAll(usedResources(planSchedules));
+            schedules.putAll(planSchedules);
+        }
+
+        return schedules;
+    }
+
+    static Set<ResourceUsage> usedResources(Map<StudyGroup, Schedule> schedules) {
+        Set<ResourceUsage> usages = new HashSet<>();
+        LessonSlot[] slots = LessonSlot.values();
+
+        for (Schedule schedule : schedules.values()) {
+            for (DayEntry dayEntry : schedule.getDayEntries()) {
+                if (dayEntry == null) {
+                    continue;
+                }
+
+                for (LessonItem item : dayEntry.getItems()) {
+                    if (item == null) {
+                        continue;
+                    }
+
+                    LessonSlot slot = slots[item.getIndex()];
+                    if (item instanceof SingleLessonItem) {
+                        addUsage(usages, dayEntry.getDayOfWeek(), slot, LessonParity.always, ((SingleLessonItem) item).getLesson());
+                    } else if (item instanceof PairLessonItem) {
+                        PairLessonItem pairItem = (PairLessonItem) item;
+                        addUsage(usages, dayEntry.getDayOfWeek(), slot, LessonParity.numerator, pairItem.getNumerator());
+                        addUsage(usages, dayEntry.getDayOfWeek(), slot, LessonParity.denominator, pairItem.getDenominator());
+                    }
+                }
+            }
+        }
+
+        return usages;
+    }
+
+    private static void addUsage(Set<ResourceUsage> usages, DayOfWeek day, LessonSlot slot, LessonParity parity, Lesson lesson) {
+        if (lesson == null) {
+            return;
+        }
+
+        // Placeholder tutor of subjects without lecturers is not a real person and is never busy.
+        // It is decoded to a lesson without lecturer, the id check keeps it out should it get one.
+        Integer roomId = lesson.getClassroom() == null ? null : lesson.getClassroom().getId();
+        Lecturer lecturer = lesson.getLecturer();
+        Integer tutorId = lecturer == null || lecturer.getId() == SmtScheduleGenerator.UNKNOWN_TUTOR_ID
+                ? null
+                : lecturer.getId();
+        usages.add(new ResourceUsage(day, slot, parity, roomId, tutorId));
+    }
+
+    private static class StudyPlan {
+
+        private Collection<Subject> subjects;
+        private Map<Integer, SubjectsPerWeek> totalSubjectsPerWeak;
+        private Collection<LecturerAssignment> lecturerAssignments;
+        private Collection<Lecturer> lecturers;
+        private List<StudyGroup> groups;
+
+        StudyPlan(
+                Collection<Subject> subjects,
+                Map<Integer, SubjectsPerWeek> totalSubjectsPerWeak,
+                Collection<LecturerAssignment> lecturerAssignments,
+                Collection<Lecturer> lecturers,
+                List<StudyGroup> groups
+        ) {
+            this.subjects = subjects;
+            this.totalSubjectsPerWeak = totalSubjectsPerWeak;
+            this.lecturerAssignments = lecturerAssignments;
+            this.lecturers = lecturers;
+            this.groups = groups;
+        }
+
+        double load() {
+            double lessonsPerWeek = 0;
+            for (SubjectsPerWeek subjPerWeek : totalSubjectsPerWeak.values()) {
+                for (double count : subjPerWeek.values()) {
+                    lessonsPerWeek += count;
+                }
+            }
+
+            return lessonsPerWeek * groups.size();
+        }
+
+        List<Integer> groupIds() {
+            List<Integer> ids = new ArrayList<>();
+            for (StudyGroup group : groups) {
+                ids.add(group.getId());
+            }
+
+            return ids;
+        }
+
+    }
+
+}
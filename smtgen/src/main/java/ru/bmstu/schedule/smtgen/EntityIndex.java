@@ -0,0 +1,83 @@
+package ru.bmstu.schedule.smtgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// Dense ordinals 0..size-1 of entities, in the order of their ids. The generator works with ids and
+// ordinals only and maps them back to entities when the schedules are decoded: entities are never
+// hashed, their hashCode() walks the associations and may load them lazily.
+public final class EntityIndex<E> {
+
+    private final int[] ids;
+    private final Object[] entities;
+
+    private EntityIndex(int[] ids, Object[] entities) {
+        this.ids = ids;
+        this.entities = entities;
+    }
+
+    public static <E> EntityIndex<E> of(Collection<? extends E> entities, ToIntFunction<? super E> idOf) {
+        Object[] given = entities.toArray();
+        // Id in the high half, position in the low one: sorting the keys sorts the positions by id
+        long[] keys = new long[given.length];
+        for (int i = 0; i < given.length; i++) {
+            @SuppressWarnings("unchecked")
+            E entity = (E) given[i];
+            keys[i] = (long) idOf.applyAsInt(entity) << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        int[] ids = new int[given.length];
+        Object[] sorted = new Object[given.length];
+        int n = 0;
+        for (long key : keys) {
+            int id = (int) (key >> 32);
+            // The same entity may be given twice, e.g. a lecturer of several subjects
+            if (n > 0 && ids[n - 1] == id) {
+                continue;
+            }
+            ids[n] = id;
+            sorted[n++] = given[(int) key];
+        }
+
+        return new EntityIndex<>(Arrays.copyOf(ids, n), Arrays.copyOf(sorted, n));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    // Negative if there is no entity with this id
+    public int ordinalOf(int id) {
+        int ordinal = Arrays.binarySearch(ids, id);
+        return ordinal < 0 ? -1 : ordinal;
+    }
+
+    public int idAt(int ordinal) {
+        return ids[ordinal];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int ordinal) {
+        return (E) entities[ordinal];
+    }
+
+    // Null if there is no entity with this id
+    public E findById(int id) {
+        int ordinal = ordinalOf(id);
+        return ordinal < 0 ? null : get(ordinal);
+    }
+
+    public List<Integer> ids() {
+        List<Integer> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(id);
+        }
+
+        return result;
+    }
+
+}
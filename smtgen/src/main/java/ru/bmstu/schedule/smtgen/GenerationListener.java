@@ -0,0 +1,11 @@
+package ru.bmstu.schedule.smtgen;
+
+@FunctionalInterface
+public interface GenerationListener {
+
+    GenerationListener NONE = progress -> {
+    };
+
+    void onProgress(GenerationProgress progress);
+
+}
@@ -0,0 +1,8 @@
+package ru.bmstu.schedule.smtgen;
+
+public enum GenerationPhase {
+    building,
+    solving,
+    decoding,
+    finished
+}
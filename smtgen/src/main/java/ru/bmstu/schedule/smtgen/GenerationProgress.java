@@ -0,0 +1,50 @@
+package ru.bmstu.schedule.smtgen;
+
+import java.util.Objects;
+
+public class GenerationProgress {
+
+    private final GenerationPhase phase;
+    private final long conflicts;
+    private final long elapsedMillis;
+
+    public GenerationProgress(GenerationPhase phase, long conflicts, long elapsedMillis) {
+        this.phase = phase;
+        this.conflicts = conflicts;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public GenerationPhase getPhase() {
+        return phase;
+    }
+
+    // Number of conflicts reported by Z3 after the last finished check (0 until solving ends).
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GenerationProgress that = (GenerationProgress) o;
+        return conflicts == that.conflicts &&
+                elapsedMillis == that.elapsedMillis &&
+                phase == that.phase;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(phase, conflicts, elapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] conflicts: %d, elapsed: %d ms", phase, conflicts, elapsedMillis);
+    }
+
+}
@@ -1,18 +1,33 @@
 package ru.bmstu.schedule.smtgen;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.microsoft.z3.Status;
+import ru.bmstu.schedule.dto.LecturerAssignment;
 import ru.bmstu.schedule.entity.*;
 import ru.bmstu.schedule.smtgen.model.ModelToScheduleTransformer;
+import ru.bmstu.schedule.smtgen.model.ResourceUsage;
+import ru.bmstu.schedule.smtgen.model.ScheduleContext;
+import ru.bmstu.schedule.smtgen.model.ScheduleContextPool;
 import ru.bmstu.schedule.smtgen.model.SmtScheduleModelGenerator;
 import ru.bmstu.schedule.smtgen.model.TutorForLesson;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 public class SmtScheduleGenerator {
 
-    private static final int UNKNOWN_TUTOR_ID = 0;
+    static final int UNKNOWN_TUTOR_ID = 0;
+    private static final long PROGRESS_INTERVAL_MS = 1000;
+
+    private static final ExecutorService GENERATION_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("smtgen-worker-%d").setDaemon(true).build()
+    );
+    private static final ScheduledExecutorService PROGRESS_TIMER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("smtgen-progress").setDaemon(true).build()
+    );
+
     private static final Map<String, LessonKind> CT_NAME_TO_KIND;
 
     static {
@@ -23,12 +38,14 @@ public class SmtScheduleGenerator {
     }
 
     private List<TutorForLesson> tutorForLessons = new ArrayList<>();
-    private BiMap<Subject, Integer> subjectIdBiMap = HashBiMap.create();
-    private BiMap<StudyGroup, Integer> groupIdBiMap = HashBiMap.create();
-    private BiMap<Classroom, Integer> roomIdBiMap = HashBiMap.create();
-    private Map<Integer, Lecturer> lecturerIdToTutor = new HashMap<>();
+    private EntityIndex<Subject> subjects;
+    private EntityIndex<StudyGroup> groups;
+    private EntityIndex<Classroom> rooms;
+    private EntityIndex<Lecturer> lecturers;
     private Map<Integer, SubjectsPerWeek> subjectsPerWeakMap = new HashMap<>();
-    private Map<LessonKind, ClassType> kindToClassType = new HashMap<>();
+    private Map<LessonKind, ClassType> kindToClassType = new EnumMap<>(LessonKind.class);
+    private ScheduleContextPool contextPool;
+    private Collection<ResourceUsage> busyResources = Collections.emptyList();
 
     public SmtScheduleGenerator(
             Map<Subject, SubjectsPerWeek> totalSubjectsPerWeak,
@@ -37,49 +54,91 @@ public class SmtScheduleGenerator {
             List<StudyGroup> groups,
             List<ClassType> classTypes
     ) {
-        for (Subject subj : totalSubjectsPerWeak.keySet()) {
-            subjectIdBiMap.put(subj, subj.getId());
-            subjectsPerWeakMap.put(subj.getId(), totalSubjectsPerWeak.get(subj));
+        for (Map.Entry<Subject, SubjectsPerWeek> entry : totalSubjectsPerWeak.entrySet()) {
+            subjectsPerWeakMap.put(entry.getKey().getId(), entry.getValue());
         }
+        initResources(totalSubjectsPerWeak.keySet(), classrooms, groups, classTypes);
 
-        for (StudyGroup group : groups) {
-            groupIdBiMap.put(group, group.getId());
+        List<Lecturer> tutors = new ArrayList<>();
+        Set<Integer> subjectsSetForTutor = new HashSet<>();
+        for (LecturerSubject lecSubj : lecturerSubjects) {
+            if (addTutorForLesson(
+                    lecSubj.getLecturer().getId(),
+                    lecSubj.getDepartmentSubject().getSubject().getId(),
+                    lecSubj.getClassType().getName(),
+                    subjectsSetForTutor
+            )) {
+                tutors.add(lecSubj.getLecturer());
+            }
         }
 
-        for (Classroom room : classrooms) {
-            roomIdBiMap.put(room, room.getId());
+        lecturers = EntityIndex.of(tutors, Lecturer::getId);
+        addUnknownTutors(subjectsSetForTutor);
+    }
+
+    // Same as above, but takes the hours of the subjects by subject id and lecturer assignments
+    // loaded by projection queries
+    public SmtScheduleGenerator(
+            Collection<Subject> subjects,
+            Map<Integer, SubjectsPerWeek> totalSubjectsPerWeak,
+            Collection<LecturerAssignment> lecturerAssignments,
+            Collection<Lecturer> lecturers,
+            List<Classroom> classrooms,
+            List<StudyGroup> groups,
+            List<ClassType> classTypes
+    ) {
+        subjectsPerWeakMap.putAll(totalSubjectsPerWeak);
+        initResources(subjects, classrooms, groups, classTypes);
+
+        Set<Integer> subjectsSetForTutor = new HashSet<>();
+        for (LecturerAssignment assignment : lecturerAssignments) {
+            addTutorForLesson(
+                    assignment.getLecturerId(),
+                    assignment.getSubjectId(),
+                    assignment.getClassTypeName(),
+                    subjectsSetForTutor
+            );
         }
 
+        this.lecturers = EntityIndex.of(lecturers, Lecturer::getId);
+        addUnknownTutors(subjectsSetForTutor);
+    }
+
+    private void initResources(
+            Collection<Subject> subjects,
+            List<Classroom> classrooms,
+            List<StudyGroup> groups,
+            List<ClassType> classTypes
+    ) {
+        this.subjects = EntityIndex.of(subjects, Subject::getId);
+        this.groups = EntityIndex.of(groups, StudyGroup::getId);
+        this.rooms = EntityIndex.of(classrooms, Classroom::getId);
+
         for (ClassType classType : classTypes) {
             String ctName = classType.getName();
             if (CT_NAME_TO_KIND.containsKey(ctName)) {
                 kindToClassType.put(CT_NAME_TO_KIND.get(ctName), classType);
             }
         }
+    }
 
-        Set<Integer> subjectsSetForTutor = new HashSet<>();
-        for (LecturerSubject lecSubj : lecturerSubjects) {
-            TutorForLesson tutorForLesson = new TutorForLesson();
-            String kindName = lecSubj.getClassType().getName();
-            Subject subj = lecSubj.getDepartmentSubject().getSubject();
-            Lecturer lec = lecSubj.getLecturer();
-            int subjId = subj.getId();
-            int lecId = lec.getId();
-
-            if (!CT_NAME_TO_KIND.containsKey(kindName)) {
-                continue;
-            }
-            LessonKind kind = CT_NAME_TO_KIND.get(kindName);
+    private boolean addTutorForLesson(int lecId, int subjId, String kindName, Set<Integer> subjectsSetForTutor) {
+        if (!CT_NAME_TO_KIND.containsKey(kindName)) {
+            return false;
+        }
 
-            tutorForLesson.setKind(kind);
-            tutorForLesson.setSubjectId(subjId);
-            tutorForLesson.setTutorId(lecId);
-            subjectsSetForTutor.add(subjId);
+        TutorForLesson tutorForLesson = new TutorForLesson();
 
-            tutorForLessons.add(tutorForLesson);
-            lecturerIdToTutor.put(lecId, lec);
-        }
+        tutorForLesson.setKind(CT_NAME_TO_KIND.get(kindName));
+        tutorForLesson.setSubjectId(subjId);
+        tutorForLesson.setTutorId(lecId);
+        subjectsSetForTutor.add(subjId);
+
+        tutorForLessons.add(tutorForLesson);
+        return true;
+    }
 
+    private void addUnknownTutors(Set<Integer> subjectsSetForTutor) {
         for (int subjId : subjectsPerWeakMap.keySet()) {
             if (!subjectsSetForTutor.contains(subjId)) {
                 for (LessonKind kind : LessonKind.values()) {
@@ -89,28 +148,150 @@ public class SmtScheduleGenerator {
         }
     }
 
+    // Without a pool every generation creates and closes its own Z3 context.
+    public void setContextPool(ScheduleContextPool contextPool) {
+        this.contextPool = contextPool;
+    }
+
+    public void setBusyResources(Collection<ResourceUsage> busyResources) {
+        this.busyResources = busyResources;
+    }
 
     public Map<StudyGroup, Schedule> generateSchedule() throws RuntimeException {
-        SmtScheduleModelGenerator modelGenerator = new SmtScheduleModelGenerator(
-                subjectsPerWeakMap,
-                tutorForLessons,
-                new ArrayList<>(roomIdBiMap.values()),
-                new ArrayList<>(groupIdBiMap.values())
-        );
-        Status check = modelGenerator.check();
-        if (check != Status.SATISFIABLE) {
-            throw new RuntimeException("Unable to build model with provided parameters");
+        return generateSchedule(GenerationListener.NONE, new AtomicReference<>(), () -> false);
+    }
+
+    public CompletableFuture<Map<StudyGroup, Schedule>> generateScheduleAsync(GenerationListener listener) {
+        return generateScheduleAsync(GENERATION_EXECUTOR, listener);
+    }
+
+    // Cancelling the returned future interrupts the Z3 context of the running generation.
+    public CompletableFuture<Map<StudyGroup, Schedule>> generateScheduleAsync(Executor executor, GenerationListener listener) {
+        CompletableFuture<Map<StudyGroup, Schedule>> result = new CompletableFuture<>();
+        AtomicReference<SmtScheduleModelGenerator> running = new AtomicReference<>();
+
+        result.whenComplete((schedules, e) -> {
+            SmtScheduleModelGenerator modelGenerator = running.get();
+            if (result.isCancelled() && modelGenerator != null) {
+                modelGenerator.interrupt();
+            }
+        });
+
+        executor.execute(() -> {
+            if (result.isCancelled()) {
+                return;
+            }
+
+            try {
+                result.complete(generateSchedule(listener, running, result::isCancelled));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        return result;
+    }
+
+    private Map<StudyGroup, Schedule> generateSchedule(
+            GenerationListener listener,
+            AtomicReference<SmtScheduleModelGenerator> running,
+            BooleanSupplier cancelled
+    ) throws RuntimeException {
+        long startedAt = System.currentTimeMillis();
+        listener.onProgress(new GenerationProgress(GenerationPhase.building, 0, 0));
+
+        try (SmtScheduleModelGenerator modelGenerator = createModelGenerator()) {
+            running.set(modelGenerator);
+            modelGenerator.setBusyResources(busyResources);
+            modelGenerator.build();
+            checkNotCancelled(cancelled);
+
+            listener.onProgress(new GenerationProgress(GenerationPhase.solving, 0, System.currentTimeMillis() - startedAt));
+            ScheduledFuture<?> heartbeat = PROGRESS_TIMER.scheduleAtFixedRate(
+                    () -> listener.onProgress(new GenerationProgress(GenerationPhase.solving, 0, System.currentTimeMillis() - startedAt)),
+                    PROGRESS_INTERVAL_MS,
+                    PROGRESS_INTERVAL_MS,
+                    TimeUnit.MILLISECONDS
+            );
+
+            Status check;
+            try {
+                // cancel() may have been called before the model generator became visible to it
+                checkNotCancelled(cancelled);
+                check = modelGenerator.check();
+            } finally {
+                heartbeat.cancel(false);
+            }
+            checkNotCancelled(cancelled);
+
+            long conflicts = modelGenerator.getConflicts();
+            if (check != Status.SATISFIABLE) {
+                throw new RuntimeException("Unable to build model with provided parameters");
+            }
+
+            listener.onProgress(new GenerationProgress(GenerationPhase.decoding, conflicts, System.currentTimeMillis() - startedAt));
+            Schedule[] schedulesOfGroups;
+            try (ModelToScheduleTransformer transformer = new ModelToScheduleTransformer(
+                    modelGenerator,
+                    subjects,
+                    lecturers,
+                    groups,
+                    rooms,
+                    kindToClassType
+            )) {
+                schedulesOfGroups = transformer.transform();
+            }
+            listener.onProgress(new GenerationProgress(GenerationPhase.finished, conflicts, System.currentTimeMillis() - startedAt));
+
+            return toScheduleMap(schedulesOfGroups);
         }
+    }
 
-        ModelToScheduleTransformer transformer = new ModelToScheduleTransformer(
-                modelGenerator,
-                subjectIdBiMap.inverse(),
-                lecturerIdToTutor,
-                groupIdBiMap.inverse(),
-                roomIdBiMap.inverse(),
-                kindToClassType
-        );
-        return transformer.transform();
+    // The groups are distinct instances, so they are not hashed: hashing a group walks its calendar and term
+    private Map<StudyGroup, Schedule> toScheduleMap(Schedule[] schedulesOfGroups) {
+        Map<StudyGroup, Schedule> schedules = new IdentityHashMap<>(groups.size());
+        for (int ordinal = 0; ordinal < groups.size(); ordinal++) {
+            schedules.put(groups.get(ordinal), schedulesOfGroups[ordinal]);
+        }
+
+        return schedules;
+    }
+
+    // The model generator owns the context once it is created; until then the context is closed here,
+    // otherwise a pooled one would never get back to its pool.
+    private SmtScheduleModelGenerator createModelGenerator() throws RuntimeException {
+        ScheduleContext scheduleCtx = acquireContext();
+        try {
+            return new SmtScheduleModelGenerator(
+                    scheduleCtx,
+                    subjectsPerWeakMap,
+                    tutorForLessons,
+                    rooms.ids(),
+                    groups.ids()
+            );
+        } catch (RuntimeException | Error e) {
+            scheduleCtx.close();
+            throw e;
+        }
+    }
+
+    private ScheduleContext acquireContext() throws RuntimeException {
+        if (contextPool == null) {
+            return new ScheduleContext();
+        }
+
+        try {
+            return contextPool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a free Z3 context", e);
+        }
+    }
+
+    private static void checkNotCancelled(BooleanSupplier cancelled) throws CancellationException {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Schedule generation was cancelled");
+        }
     }
 
 }
@@ -10,6 +10,8 @@ import static org.apache.commons.cli.Option.builder;
 public class CommandLineParser {
 
     private static final String GROUP_RE = "(\\p{Lu}+)(\\d+)?-\\d{2,}";
+    private static final String BATCH_CIPHER_RE = "(\\p{Lu}+)(\\d+)?";
+    private static final String BATCH_TERMS_RE = "\\d+(,\\d+)*";
     private static final String UTIL_NAME = "smtgen";
     private static final Map<String, String> STUDY_PLAN_PARAMS_RE;
 
@@ -36,7 +38,13 @@ public class CommandLineParser {
         checkCmdArgs();
         ScheduleConfiguration config = new ScheduleConfiguration();
 
-        if (cmd.hasOption("g")) {
+        if (cmd.hasOption("b")) {
+            config.setBatchCipher(cmd.getOptionValue("b"));
+            config.setBatchTerms(Arrays.stream(cmd.getOptionValue("t").split(","))
+                    .map(Integer::valueOf)
+                    .collect(Collectors.toList())
+            );
+        } else if (cmd.hasOption("g")) {
             config.setGroupCiphers(getNonEmptyOptions("g"));
         } else {
             config.setDepartmentCipher(cmd.getOptionValue("d"));
@@ -53,6 +61,11 @@ public class CommandLineParser {
     }
 
     private void checkCmdArgs() throws ParseException {
+        if (cmd.hasOption("b")) {
+            checkBatchArgs();
+            return;
+        }
+
         boolean paramsForStudyPlanProvided = STUDY_PLAN_PARAMS_RE.keySet().stream().allMatch(cmd::hasOption);
         if (!cmd.hasOption("g") && !paramsForStudyPlanProvided) {
             String spParams = STUDY_PLAN_PARAMS_RE
@@ -101,6 +114,30 @@ public class CommandLineParser {
 
     }
 
+    private void checkBatchArgs() throws ParseException {
+        if (cmd.hasOption("g") || !cmd.hasOption("t")) {
+            throw new ParseException("Для параметра '-b' требуется указать только параметр '-t' со списком семестров");
+        }
+
+        String cipher = cmd.getOptionValue("b");
+        if (!cipher.matches(BATCH_CIPHER_RE)) {
+            throw new ParseException(String.format(
+                    "Неправильный формат шифра факультета или кафедры: %s (%s)",
+                    cipher,
+                    "например, ИУ или ИУ9"
+            ));
+        }
+
+        String terms = cmd.getOptionValue("t");
+        if (!terms.matches(BATCH_TERMS_RE)) {
+            throw new ParseException(String.format(
+                    "Невалидное значение параметра -%s: %s",
+                    "t",
+                    terms
+            ));
+        }
+    }
+
     private void setOptions() {
         opts.addOption(builder("g")
                 .longOpt("groups")
@@ -111,6 +148,14 @@ public class CommandLineParser {
                 .build()
         );
 
+        opts.addOption(builder("b")
+                .longOpt("batch")
+                .desc("Шифр факультета или кафедры: расписание строится сразу для всех учебных планов")
+                .numberOfArgs(1)
+                .type(String.class)
+                .build()
+        );
+
         opts.addOption(builder("s")
                 .longOpt("specialization")
                 .desc("Код специализации")
@@ -129,7 +174,7 @@ public class CommandLineParser {
 
         opts.addOption(builder("t")
                 .longOpt("term")
-                .desc("Номер семестра")
+                .desc("Номер семестра (для параметра '-b' - список семестров через запятую)")
                 .numberOfArgs(1)
                 .type(Integer.class)
                 .build()
@@ -4,23 +4,23 @@ import org.apache.commons.cli.ParseException;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import ru.bmstu.schedule.dao.*;
+import ru.bmstu.schedule.dto.LecturerAssignment;
+import ru.bmstu.schedule.dto.SubjectHours;
 import ru.bmstu.schedule.entity.Calendar;
-import ru.bmstu.schedule.entity.DayOfWeek;
 import ru.bmstu.schedule.entity.*;
 import ru.bmstu.schedule.smtgen.*;
+import ru.bmstu.schedule.smtgen.model.ScheduleContextPool;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class GenerateSchedule {
 
     private static final int NO_OF_CLASS_ROOMS = 10;
     private static final int NO_OF_STUDY_WEEKS = 17;
-    private static final String PARITY_ALWAYS = "ЧС/ЗН";
-    private static final String PARITY_NUM = "ЧС";
-    private static final String PARITY_DEN = "ЗН";
 
     private static final Map<String, LessonKind> CLASS_TYPE_TO_LESSON_KIND;
-    private static SessionFactory sessionFactory;
 
     static {
         CLASS_TYPE_TO_LESSON_KIND = new HashMap<>();
@@ -29,23 +29,36 @@ public class GenerateSchedule {
         CLASS_TYPE_TO_LESSON_KIND.put("лабораторная работа", LessonKind.lab);
     }
 
-    private Map<Subject, DepartmentSubject> departmentSubjectMap = new HashMap<>();
+    // Same subject may be taught by different departments in different calendars
+    private Map<Integer, Map<Integer, Integer>> departmentSubjectMap = new HashMap<>();
+    private CompletableFuture<Integer> cleanup;
+    private ScheduleContextPool contextPool;
 
-    private ScheduleDayDao scheduleDayDao;
+    private final SessionFactory sessionFactory;
+    private PublishedScheduleDao publishedScheduleDao;
     private StudyGroupDao studyGroupDao;
-    private LecturerSubjectDao lecSubjDao;
-    private LecturerDao lecDao;
     private CalendarDao calendarDao;
     private ClassroomDao classroomDao;
-    private ClassTimeDao classTimeDao;
     private ClassTypeDao classTypeDao;
-    private WeekDao weekDao;
+    private SubjectDao subjectDao;
+    private LecturerDao lecturerDao;
+
+    public GenerateSchedule(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        studyGroupDao = new StudyGroupDao(sessionFactory);
+        publishedScheduleDao = new PublishedScheduleDao(sessionFactory);
+        classroomDao = new ClassroomDao(sessionFactory);
+        classTypeDao = new ClassTypeDao(sessionFactory);
+        calendarDao = new CalendarDao(sessionFactory);
+        subjectDao = new SubjectDao(sessionFactory);
+        lecturerDao = new LecturerDao(sessionFactory);
+    }
 
     public static void main(String[] args) {
-        GenerateSchedule genSchedule = new GenerateSchedule();
+        SessionFactory sessionFactory = new Configuration().configure().buildSessionFactory();
+        GenerateSchedule genSchedule = new GenerateSchedule(sessionFactory);
         CommandLineParser parser = new CommandLineParser();
         try {
-            genSchedule.initDaoObjects();
             genSchedule.runScheduleGeneration(parser.parse(args));
         } catch (ParseException e) {
             if (e.getMessage() != null) {
@@ -55,35 +68,61 @@ public class GenerateSchedule {
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
+            genSchedule.awaitCleanup();
+            if (DaoMetrics.isEnabled()) {
+                System.out.println("Статистика обращений к базе:");
+                System.out.print(DaoMetrics.report(sessionFactory));
+            }
             sessionFactory.close();
         }
     }
 
-    private void initDaoObjects() {
-        sessionFactory = new Configuration().configure().buildSessionFactory();
-        studyGroupDao = new StudyGroupDao(sessionFactory);
-        scheduleDayDao = new ScheduleDayDao(sessionFactory);
-        lecSubjDao = new LecturerSubjectDao(sessionFactory);
-        classroomDao = new ClassroomDao(sessionFactory);
-        classTypeDao = new ClassTypeDao(sessionFactory);
-        classTimeDao = new ClassTimeDao(sessionFactory);
-        calendarDao = new CalendarDao(sessionFactory);
-        lecDao = new LecturerDao(sessionFactory);
-        weekDao = new WeekDao(sessionFactory);
+    // Long-running callers share warm Z3 contexts between generations, otherwise each one creates its own
+    public void setContextPool(ScheduleContextPool contextPool) {
+        this.contextPool = contextPool;
     }
 
     private void runScheduleGeneration(ScheduleConfiguration config) throws RuntimeException {
-        Map<StudyGroup, Schedule> schedules = generateSchedules(config);
+        Map<StudyGroup, Schedule> schedules = generate(config);
         printSchedules(schedules);
-        removeSchedules(schedules);
-        persistSchedules(schedules);
+        persist(schedules);
     }
 
-    private void removeSchedules(Map<StudyGroup, Schedule> schedules) {
-        for (StudyGroup studyGroup : schedules.keySet()) {
-            for (ScheduleDay scheduleDay : studyGroup.getScheduleDays()) {
-                scheduleDayDao.delete(scheduleDay);
+    // Schedules of the groups given by the configuration, not yet written to the database
+    public Map<StudyGroup, Schedule> generate(ScheduleConfiguration config) throws RuntimeException {
+        return generateSchedules(config);
+    }
+
+    // Old schedules stay visible until the new version is published, then they are removed in background.
+    // The returned future completes with the number of removed days.
+    public CompletableFuture<Integer> persist(Map<StudyGroup, Schedule> scheduleMap) {
+        int version = publishedScheduleDao.nextVersion();
+        new ScheduleWriter(sessionFactory, departmentSubjectMap).write(scheduleMap, version);
+        try {
+            publishedScheduleDao.publish(scheduleMap.keySet(), version);
+        } catch (RuntimeException e) {
+            // Rows of a version that was never published would not be removed by deleteObsoleteVersions
+            try {
+                publishedScheduleDao.deleteVersion(scheduleMap.keySet(), version);
+            } catch (RuntimeException cleanupError) {
+                e.addSuppressed(cleanupError);
             }
+            throw e;
+        }
+
+        cleanup = CompletableFuture.supplyAsync(publishedScheduleDao::deleteObsoleteVersions);
+        return cleanup;
+    }
+
+    private void awaitCleanup() {
+        if (cleanup == null) {
+            return;
+        }
+
+        try {
+            System.out.printf("Удалено устаревших дней расписания: %d%n", cleanup.join());
+        } catch (CompletionException e) {
+            System.err.println("[ошибка] Не удалось удалить устаревшие версии расписания: " + e.getCause().getMessage());
         }
     }
 
@@ -91,15 +130,19 @@ public class GenerateSchedule {
         if (groups.size() == 0)
             return;
 
-        Calendar firstCalendar = groups.get(0).getCalendar();
+        int firstCalendarId = groups.get(0).getCalendar().getId();
         for (int i = 1; i < groups.size(); i++) {
-            if (!groups.get(i).getCalendar().equals(firstCalendar)) {
+            if (groups.get(i).getCalendar().getId() != firstCalendarId) {
                 throw new RuntimeException("Невозможно сгенерировать рассписание для данных групп: группы имеют разные учебные планы");
             }
         }
     }
 
     private Map<StudyGroup, Schedule> generateSchedules(ScheduleConfiguration config) throws RuntimeException {
+        if (config.getBatchCipher() != null) {
+            return generateBatchSchedules(config.getBatchCipher(), config.getBatchTerms());
+        }
+
         List<StudyGroup> groups = new ArrayList<>();
         Calendar calendar;
         int term;
@@ -122,199 +165,137 @@ public class GenerateSchedule {
 
             Optional<Calendar> calendarOpt = calendarDao.findByStartYearAndDepartmentCodeAndSpecCode(year, deptCipher, specCode);
 
+            calendarOpt = calendarOpt.flatMap(c -> calendarDao.findByKey(c.getId(), Calendar.SOLVER_INPUT));
             if (!calendarOpt.isPresent()) {
                 throw new RuntimeException("Учебный план с заданными параметрами не найден");
             }
             calendar = calendarOpt.get();
-
-            for (StudyGroup group : calendar.getStudyGroups()) {
-                if (group.getTerm().getNumber() == term) {
-                    groups.add(group);
-                }
-            }
+            groups.addAll(groupsOfTerm(calendar, term));
         }
 
-        Map<Subject, SubjectsPerWeek> subjectsPerWeekMap = new HashMap<>();
-        List<LecturerSubject> lecturerSubjects = new ArrayList<>();
-
-        for (CalendarItem item : calendar.getCalendarItems()) {
-            DepartmentSubject deptSubj = item.getDepartmentSubject();
-            Subject subject = deptSubj.getSubject();
-
-            departmentSubjectMap.put(subject, deptSubj);
-            for (CalendarItemCell itemCell : item.getCalendarItemCells()) {
-                if (itemCell.getTerm().getNumber() == term) {
-                    SubjectsPerWeek subjPerWeek = new SubjectsPerWeek();
-
-                    for (HoursPerClass hpc : itemCell.getHoursPerClasses()) {
-                        int noOfHours = hpc.getNoOfHours();
-                        ClassType classType = hpc.getClassType();
-                        LessonKind kind = CLASS_TYPE_TO_LESSON_KIND.get(classType.getName());
-                        if (kind != null && noOfHours > 0) {
-                            subjPerWeek.put(kind, (double) noOfHours / (NO_OF_STUDY_WEEKS * 2.0));
-                        }
-                    }
-                    subjectsPerWeekMap.put(subject, subjPerWeek);
-                }
-            }
-
-            for (LecturerSubject lecSubj : deptSubj.getLecturerSubjects()) {
-                if (subjectsPerWeekMap.containsKey(lecSubj.getDepartmentSubject().getSubject())) {
-                    lecturerSubjects.add(lecSubj);
-                }
-            }
-        }
-
-        List<Classroom> classrooms = classroomDao.findAll().subList(0, NO_OF_CLASS_ROOMS);
-
-
-        List<ClassType> classTypes = new ArrayList<>();
-        for (String typeName : CLASS_TYPE_TO_LESSON_KIND.keySet()) {
-            Optional<ClassType> ctOpt = classTypeDao.findByName(typeName);
-            if (!ctOpt.isPresent()) {
-                throw new IllegalStateException("Не известный тип занятий: " + typeName);
-            }
+        List<Subject> subjects = new ArrayList<>();
+        Map<Integer, SubjectsPerWeek> subjectsPerWeekMap = new HashMap<>();
+        List<LecturerAssignment> assignments = new ArrayList<>();
+        List<Lecturer> lecturers = new ArrayList<>();
+        collectStudyPlan(calendar, term, subjects, subjectsPerWeekMap, assignments, lecturers);
 
-            classTypes.add(ctOpt.get());
-        }
+        List<Classroom> classrooms = classroomDao.findAll(Specification.all(), Page.of(0, NO_OF_CLASS_ROOMS));
 
         SmtScheduleGenerator scheduleGenerator = new SmtScheduleGenerator(
+                subjects,
                 subjectsPerWeekMap,
-                lecturerSubjects,
+                assignments,
+                lecturers,
                 classrooms,
                 groups,
-                classTypes
+                findClassTypes()
         );
+        scheduleGenerator.setContextPool(contextPool);
 
         return scheduleGenerator.generateSchedule();
     }
 
-    private void persistSchedules(Map<StudyGroup, Schedule> scheduleMap) {
-        for (StudyGroup studyGroup : scheduleMap.keySet()) {
-            Schedule schedule = scheduleMap.get(studyGroup);
-            for (DayEntry dayEntry : schedule.getDayEntries()) {
-                ScheduleDay scheduleDay;
-                try {
-                    scheduleDay = convertToScheduleDay(dayEntry);
-                } catch (RuntimeException e) {
-                    e.printStackTrace();
-                    System.err.println("[ошибка] " + e.getMessage());
-                    continue;
-                }
+    private Map<StudyGroup, Schedule> generateBatchSchedules(String cipher, List<Integer> terms) throws RuntimeException {
+        List<Integer> calendarIds = new ArrayList<>();
+        for (Calendar calendar : calendarDao.findAllByFacultyOrDepartmentCipher(cipher)) {
+            calendarIds.add(calendar.getId());
+        }
 
-                scheduleDay.setStudyGroup(studyGroup);
-                scheduleDayDao.create(scheduleDay);
+        List<Calendar> calendars = calendarDao.findAllByKeys(calendarIds, Calendar.SOLVER_INPUT);
+        int noOfPlans = 0;
+        for (Calendar calendar : calendars) {
+            for (int term : terms) {
+                if (!groupsOfTerm(calendar, term).isEmpty()) {
+                    noOfPlans++;
+                }
             }
         }
-    }
-
-    private ScheduleDay convertToScheduleDay(DayEntry entry) throws IllegalStateException {
-        String weekAlias = entry.getDayOfWeek().getAlias();
-        Optional<DayOfWeek> weekOpt = weekDao.findByShortName(weekAlias);
 
-        if (!weekOpt.isPresent()) {
-            throw new IllegalStateException("День недели не найден в базе: " + weekAlias);
+        if (noOfPlans == 0) {
+            throw new RuntimeException("Не найдено ни одной группы для заданного факультета или кафедры: " + cipher);
         }
 
-        ScheduleDay dayEntity = new ScheduleDay();
-        dayEntity.setDayOfWeek(weekOpt.get());
-        for (int i = 0; i < entry.getItems().length; i++) {
-            ScheduleItem scheduleItem;
-            LessonItem lessonItem = entry.getItems()[i];
-            if (lessonItem == null) {
-                continue;
-            }
+        // Plans are solved one by one, so every plan gets its own share of rooms
+        List<Classroom> classrooms = classroomDao.findAll(Specification.all(), Page.of(0, NO_OF_CLASS_ROOMS * noOfPlans));
+
+        BatchScheduleGenerator batchGenerator = new BatchScheduleGenerator(classrooms, findClassTypes());
+        batchGenerator.setContextPool(contextPool);
+        for (Calendar calendar : calendars) {
+            for (int term : terms) {
+                List<StudyGroup> groups = groupsOfTerm(calendar, term);
+                if (groups.isEmpty()) {
+                    continue;
+                }
 
-            scheduleItem = convertToScheduleItem(lessonItem);
-            dayEntity.addScheduleItem(scheduleItem);
+                List<Subject> subjects = new ArrayList<>();
+                Map<Integer, SubjectsPerWeek> subjectsPerWeekMap = new HashMap<>();
+                List<LecturerAssignment> assignments = new ArrayList<>();
+                List<Lecturer> lecturers = new ArrayList<>();
+                collectStudyPlan(calendar, term, subjects, subjectsPerWeekMap, assignments, lecturers);
+                batchGenerator.addStudyPlan(subjects, subjectsPerWeekMap, assignments, lecturers, groups);
+            }
         }
 
-        return dayEntity;
+        return batchGenerator.generateSchedules();
     }
 
-    private ScheduleItem convertToScheduleItem(LessonItem lessonItem) throws RuntimeException {
-        ScheduleItem scheduleItem = new ScheduleItem();
-        Optional<ClassTime> ctOpt = classTimeDao.findByOrderNumber(lessonItem.getIndex() + 1);
-        if (!ctOpt.isPresent()) {
-            String msg = String.format("[ошибка] Не существует занятия с таким номером: %d%n", lessonItem.getIndex() + 1);
-            throw new RuntimeException(msg);
+    private static List<StudyGroup> groupsOfTerm(Calendar calendar, int term) {
+        List<StudyGroup> groups = new ArrayList<>();
+        for (StudyGroup group : calendar.getStudyGroups()) {
+            if (group.getTerm().getNumber() == term) {
+                groups.add(group);
+            }
         }
 
-        scheduleItem.setClassTime(ctOpt.get());
+        return groups;
+    }
 
-        if (lessonItem instanceof SingleLessonItem) {
-            Lesson lesson = ((SingleLessonItem) lessonItem).getLesson();
-            if (lesson != null) {
-                scheduleItem.addItemParity(convertToItemParity(lesson, PARITY_ALWAYS));
+    // Solver input is loaded as flat rows keyed by ids, only subjects and lecturers of the plan are fetched as entities
+    private void collectStudyPlan(
+            Calendar calendar,
+            int term,
+            List<Subject> subjects,
+            Map<Integer, SubjectsPerWeek> hoursBySubject,
+            List<LecturerAssignment> assignments,
+            List<Lecturer> lecturers
+    ) {
+        Map<Integer, Integer> calendarSubjects = departmentSubjectMap.computeIfAbsent(calendar.getId(), id -> new HashMap<>());
+
+        for (SubjectHours hours : calendarDao.findSubjectHours(calendar.getId(), term)) {
+            calendarSubjects.put(hours.getSubjectId(), hours.getDepartmentSubjectId());
+            SubjectsPerWeek subjPerWeek = hoursBySubject.computeIfAbsent(hours.getSubjectId(), id -> new SubjectsPerWeek());
+
+            LessonKind kind = CLASS_TYPE_TO_LESSON_KIND.get(hours.getClassTypeName());
+            if (kind != null && hours.getNoOfHours() > 0) {
+                subjPerWeek.put(kind, (double) hours.getNoOfHours() / (NO_OF_STUDY_WEEKS * 2.0));
             }
-        } else if (lessonItem instanceof PairLessonItem) {
-            PairLessonItem pairLessonItem = (PairLessonItem) lessonItem;
-            Lesson numerator = pairLessonItem.getNumerator();
-            Lesson denominator = pairLessonItem.getDenominator();
+        }
 
-            if (numerator != null) {
-                scheduleItem.addItemParity(convertToItemParity(numerator, PARITY_NUM));
-            }
-            if (denominator != null) {
-                scheduleItem.addItemParity(convertToItemParity(denominator, PARITY_DEN));
+        subjects.addAll(subjectDao.findAllByKeys(hoursBySubject.keySet()));
+
+        Set<Integer> lecturerIds = new HashSet<>();
+        for (LecturerAssignment assignment : calendarDao.findLecturerAssignments(calendar.getId(), term)) {
+            if (hoursBySubject.containsKey(assignment.getSubjectId())) {
+                assignments.add(assignment);
+                lecturerIds.add(assignment.getLecturerId());
             }
         }
 
-        return scheduleItem;
+        lecturers.addAll(lecturerDao.findAllByKeys(lecturerIds));
     }
 
-    private ScheduleItemParity convertToItemParity(Lesson lesson, String parity) throws RuntimeException {
-        ScheduleItemParity itemParity = new ScheduleItemParity();
-        ClassType classType = lesson.getClassType();
-        itemParity.setClassroom(lesson.getClassroom());
-        itemParity.setClassType(classType);
-        itemParity.setDayParity(parity);
-        Lecturer lecturer = lesson.getLecturer();
-        Subject subject = lesson.getSubject();
-
-        DepartmentSubject deptSubj = departmentSubjectMap.get(subject);
-        LecturerSubject lecSubj;
-
-        if (lecturer == null) {
-            Lecturer unknownLec = lecDao.fetchUnknownLecturer();
-            Optional<LecturerSubject> lecSubjOpt = lecSubjDao.findByLecturerAndDepartmentSubjectAndClassType(
-                    unknownLec,
-                    deptSubj,
-                    classType
-            );
-
-            if (!lecSubjOpt.isPresent()) {
-                lecSubj = new LecturerSubject();
-                lecSubj.setLecturer(unknownLec);
-                lecSubj.setDepartmentSubject(deptSubj);
-                lecSubj.setClassType(classType);
-                Integer lecSubjId = lecSubjDao.create(lecSubj);
-                lecSubj.setId(lecSubjId);
-            } else {
-                lecSubj = lecSubjOpt.get();
-            }
-        } else {
-            Optional<LecturerSubject> lecSubjOpt = lecSubjDao.findByLecturerAndDepartmentSubjectAndClassType(
-                    lecturer,
-                    deptSubj,
-                    classType
-            );
-            if (!lecSubjOpt.isPresent()) {
-                String msg = String.format(
-                        "Некорректные данные для построяения модели: не сеществует преподавателя '%s', который ведет предмет '%s' (%s.)",
-                        lecturer.getInitials(),
-                        subject.getName(),
-                        classType.getName().substring(0, 3)
-                );
-                throw new RuntimeException(msg);
+    private List<ClassType> findClassTypes() throws IllegalStateException {
+        List<ClassType> classTypes = new ArrayList<>();
+        for (String typeName : CLASS_TYPE_TO_LESSON_KIND.keySet()) {
+            Optional<ClassType> ctOpt = classTypeDao.findByName(typeName);
+            if (!ctOpt.isPresent()) {
+                throw new IllegalStateException("Не известный тип занятий: " + typeName);
             }
-            lecSubj = lecSubjOpt.get();
-        }
-
 
-        itemParity.setLecturerSubject(lecSubj);
+            classTypes.add(ctOpt.get());
+        }
 
-        return itemParity;
+        return classTypes;
     }
 
     private static void printSchedules(Map<StudyGroup, Schedule> scheduleMap) {
@@ -10,6 +10,8 @@ public class ScheduleConfiguration {
     private int enrollmentYear = -1;
     private String specializationCode;
     private String departmentCipher;
+    private String batchCipher;
+    private List<Integer> batchTerms;
 
     public List<String> getGroupCiphers() {
         return groupCiphers;
@@ -51,6 +53,22 @@ public class ScheduleConfiguration {
         this.departmentCipher = departmentCipher;
     }
 
+    public String getBatchCipher() {
+        return batchCipher;
+    }
+
+    public void setBatchCipher(String batchCipher) {
+        this.batchCipher = batchCipher;
+    }
+
+    public List<Integer> getBatchTerms() {
+        return batchTerms;
+    }
+
+    public void setBatchTerms(List<Integer> batchTerms) {
+        this.batchTerms = batchTerms;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -60,12 +78,14 @@ public class ScheduleConfiguration {
                 enrollmentYear == that.enrollmentYear &&
                 Objects.equals(groupCiphers, that.groupCiphers) &&
                 Objects.equals(specializationCode, that.specializationCode) &&
-                Objects.equals(departmentCipher, that.departmentCipher);
+                Objects.equals(departmentCipher, that.departmentCipher) &&
+                Objects.equals(batchCipher, that.batchCipher) &&
+                Objects.equals(batchTerms, that.batchTerms);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(groupCiphers, noOfTerm, enrollmentYear, specializationCode, departmentCipher);
+        return Objects.hash(groupCiphers, noOfTerm, enrollmentYear, specializationCode, departmentCipher, batchCipher, batchTerms);
     }
 
 }
@@ -0,0 +1,221 @@
+package ru.bmstu.schedule.smtgen.cli;
+
+import org.hibernate.SessionFactory;
+import ru.bmstu.schedule.dao.*;
+import ru.bmstu.schedule.entity.Calendar;
+import ru.bmstu.schedule.entity.DayOfWeek;
+import ru.bmstu.schedule.entity.*;
+import ru.bmstu.schedule.smtgen.*;
+
+import java.util.*;
+
+// Converts generated schedules to entities using lookups loaded once and writes them in a single transaction.
+class ScheduleWriter {
+
+    private static final String PARITY_ALWAYS = "ЧС/ЗН";
+    private static final String PARITY_NUM = "ЧС";
+    private static final String PARITY_DEN = "ЗН";
+
+    private SessionFactory sessionFactory;
+    private ScheduleDayDao scheduleDayDao;
+    private LecturerSubjectDao lecSubjDao;
+    private LecturerDao lecDao;
+    private DepartmentSubjectDao deptSubjDao;
+
+    // Calendar id -> subject id -> department subject id
+    private Map<Integer, Map<Integer, Integer>> departmentSubjectMap;
+    private BatchLoader<Integer, DepartmentSubject> departmentSubjects;
+    private Map<String, DayOfWeek> daysByShortName = new HashMap<>();
+    private Map<Integer, ClassTime> classTimesByNumber = new HashMap<>();
+    private Map<List<Integer>, LecturerSubject> lecturerSubjects = new HashMap<>();
+    private Lecturer unknownLecturer;
+
+    ScheduleWriter(SessionFactory sessionFactory, Map<Integer, Map<Integer, Integer>> departmentSubjectMap) {
+        this.sessionFactory = sessionFactory;
+        this.scheduleDayDao = new ScheduleDayDao(sessionFactory);
+        this.lecSubjDao = new LecturerSubjectDao(sessionFactory);
+        this.lecDao = new LecturerDao(sessionFactory);
+        this.deptSubjDao = new DepartmentSubjectDao(sessionFactory);
+        this.departmentSubjectMap = departmentSubjectMap;
+
+        for (DayOfWeek day : new WeekDao(sessionFactory).findAll()) {
+            daysByShortName.put(day.getShortName(), day);
+        }
+
+        for (ClassTime classTime : new ClassTimeDao(sessionFactory).findAll()) {
+            classTimesByNumber.put(classTime.getNoOfClass(), classTime);
+        }
+
+        Set<Integer> deptSubjIds = new HashSet<>();
+        for (Map<Integer, Integer> calendarSubjects : departmentSubjectMap.values()) {
+            deptSubjIds.addAll(calendarSubjects.values());
+        }
+
+        for (LecturerSubject lecSubj : lecSubjDao.findAllByDepartmentSubjectIds(deptSubjIds)) {
+            int deptSubjId = lecSubj.getDepartmentSubject().getId();
+            lecturerSubjects.put(lecturerSubjectKey(lecSubj.getLecturer(), deptSubjId, lecSubj.getClassType()), lecSubj);
+        }
+    }
+
+    // Rows are written under the given version and stay invisible to readers until it is published.
+    // Lecturer subjects created on the way are committed together with the days.
+    void write(Map<StudyGroup, Schedule> scheduleMap, int version) {
+        // Partitions of a new semester are created before the unit, which locks the tables they refer to
+        Set<Integer> semesters = new TreeSet<>();
+        for (StudyGroup studyGroup : scheduleMap.keySet()) {
+            semesters.add(studyGroup.getSemester());
+        }
+        scheduleDayDao.preparePartitions(semesters);
+
+        new UnitOfWork(sessionFactory).run(session -> writeDays(scheduleMap, version));
+    }
+
+    private void writeDays(Map<StudyGroup, Schedule> scheduleMap, int version) {
+        List<ScheduleDay> scheduleDays = new ArrayList<>();
+
+        // Department subjects a new lecturer subject may refer to are fetched together on the first need
+        departmentSubjects = new BatchLoader<>(ids -> {
+            Map<Integer, DepartmentSubject> found = new HashMap<>();
+            deptSubjDao.findAllByKeys(ids).forEach(deptSubj -> found.put(deptSubj.getId(), deptSubj));
+            return found;
+        });
+        departmentSubjectMap.values().forEach(calendarSubjects -> departmentSubjects.registerAll(calendarSubjects.values()));
+
+        for (StudyGroup studyGroup : scheduleMap.keySet()) {
+            Schedule schedule = scheduleMap.get(studyGroup);
+            for (DayEntry dayEntry : schedule.getDayEntries()) {
+                ScheduleDay scheduleDay;
+                try {
+                    scheduleDay = convertToScheduleDay(dayEntry, studyGroup);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    System.err.println("[ошибка] " + e.getMessage());
+                    continue;
+                }
+
+                scheduleDay.setScheduleVersion(version);
+                scheduleDays.add(scheduleDay);
+            }
+        }
+
+        scheduleDayDao.createAll(scheduleDays);
+    }
+
+    private ScheduleDay convertToScheduleDay(DayEntry entry, StudyGroup studyGroup) throws IllegalStateException {
+        String weekAlias = entry.getDayOfWeek().getAlias();
+        DayOfWeek dayOfWeek = daysByShortName.get(weekAlias);
+
+        if (dayOfWeek == null) {
+            throw new IllegalStateException("День недели не найден в базе: " + weekAlias);
+        }
+
+        Calendar calendar = studyGroup.getCalendar();
+        ScheduleDay dayEntity = new ScheduleDay();
+        dayEntity.setDayOfWeek(dayOfWeek);
+        dayEntity.setStudyGroup(studyGroup);
+        dayEntity.setSemester(studyGroup.getSemester());
+        for (int i = 0; i < entry.getItems().length; i++) {
+            LessonItem lessonItem = entry.getItems()[i];
+            if (lessonItem == null) {
+                continue;
+            }
+
+            dayEntity.addScheduleItem(convertToScheduleItem(lessonItem, calendar));
+        }
+
+        return dayEntity;
+    }
+
+    private ScheduleItem convertToScheduleItem(LessonItem lessonItem, Calendar calendar) throws RuntimeException {
+        ScheduleItem scheduleItem = new ScheduleItem();
+        ClassTime classTime = classTimesByNumber.get(lessonItem.getIndex() + 1);
+        if (classTime == null) {
+            String msg = String.format("[ошибка] Не существует занятия с таким номером: %d%n", lessonItem.getIndex() + 1);
+            throw new RuntimeException(msg);
+        }
+
+        scheduleItem.setClassTime(classTime);
+
+        if (lessonItem instanceof SingleLessonItem) {
+            Lesson lesson = ((SingleLessonItem) lessonItem).getLesson();
+            if (lesson != null) {
+                scheduleItem.addItemParity(convertToItemParity(lesson, PARITY_ALWAYS, calendar));
+            }
+        } else if (lessonItem instanceof PairLessonItem) {
+            PairLessonItem pairLessonItem = (PairLessonItem) lessonItem;
+            Lesson numerator = pairLessonItem.getNumerator();
+            Lesson denominator = pairLessonItem.getDenominator();
+
+            if (numerator != null) {
+                scheduleItem.addItemParity(convertToItemParity(numerator, PARITY_NUM, calendar));
+            }
+            if (denominator != null) {
+                scheduleItem.addItemParity(convertToItemParity(denominator, PARITY_DEN, calendar));
+            }
+        }
+
+        return scheduleItem;
+    }
+
+    private ScheduleItemParity convertToItemParity(Lesson lesson, String parity, Calendar calendar) throws RuntimeException {
+        ScheduleItemParity itemParity = new ScheduleItemParity();
+        ClassType classType = lesson.getClassType();
+        itemParity.setClassroom(lesson.getClassroom());
+        itemParity.setClassType(classType);
+        itemParity.setDayParity(parity);
+        Lecturer lecturer = lesson.getLecturer();
+        Subject subject = lesson.getSubject();
+
+        int deptSubjId = departmentSubjectMap.get(calendar.getId()).get(subject.getId());
+        LecturerSubject lecSubj;
+
+        if (lecturer == null) {
+            Lecturer unknownLec = fetchUnknownLecturer();
+            List<Integer> key = lecturerSubjectKey(unknownLec, deptSubjId, classType);
+            lecSubj = lecturerSubjects.get(key);
+
+            // Created right away: the parities written later in one batch must reference a persisted row
+            if (lecSubj == null) {
+                lecSubj = new LecturerSubject();
+                lecSubj.setLecturer(unknownLec);
+                lecSubj.setDepartmentSubject(fetchDepartmentSubject(deptSubjId));
+                lecSubj.setClassType(classType);
+                Integer lecSubjId = lecSubjDao.create(lecSubj);
+                lecSubj.setId(lecSubjId);
+                lecturerSubjects.put(key, lecSubj);
+            }
+        } else {
+            lecSubj = lecturerSubjects.get(lecturerSubjectKey(lecturer, deptSubjId, classType));
+            if (lecSubj == null) {
+                String msg = String.format(
+                        "Некорректные данные для построяения модели: не сеществует преподавателя '%s', который ведет предмет '%s' (%s.)",
+                        lecturer.getInitials(),
+                        subject.getName(),
+                        classType.getName().substring(0, 3)
+                );
+                throw new RuntimeException(msg);
+            }
+        }
+
+        itemParity.setLecturerSubject(lecSubj);
+
+        return itemParity;
+    }
+
+    private Lecturer fetchUnknownLecturer() {
+        if (unknownLecturer == null) {
+            unknownLecturer = lecDao.fetchUnknownLecturer();
+        }
+
+        return unknownLecturer;
+    }
+
+    private DepartmentSubject fetchDepartmentSubject(int deptSubjId) {
+        return departmentSubjects.load(deptSubjId).orElse(null);
+    }
+
+    private static List<Integer> lecturerSubjectKey(Lecturer lecturer, int deptSubjId, ClassType classType) {
+        return Arrays.asList(lecturer.getId(), deptSubjId, classType.getId());
+    }
+
+}
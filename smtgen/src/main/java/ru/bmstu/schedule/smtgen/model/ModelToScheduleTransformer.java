@@ -7,13 +7,12 @@ import ru.bmstu.schedule.entity.*;
 import ru.bmstu.schedule.smtgen.DayEntry;
 import ru.bmstu.schedule.smtgen.*;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
 import static ru.bmstu.schedule.smtgen.Z3Utils.*;
 
-public class ModelToScheduleTransformer {
+public class ModelToScheduleTransformer implements AutoCloseable {
 
     private SmtScheduleModelGenerator modelGenerator;
 
@@ -21,18 +20,18 @@ public class ModelToScheduleTransformer {
     private ScheduleFunctions funcs;
     private ScheduleSorts sorts;
 
-    private Map<Integer, Subject> idToSubj;
-    private Map<Integer, Lecturer> idToLecturer;
-    private Map<Integer, StudyGroup> idToStudyGroup;
-    private Map<Integer, Classroom> idToClassroom;
+    private EntityIndex<Subject> subjects;
+    private EntityIndex<Lecturer> lecturers;
+    private EntityIndex<StudyGroup> groups;
+    private EntityIndex<Classroom> rooms;
     private Map<LessonKind, ClassType> idToClassType;
 
     public ModelToScheduleTransformer(
             SmtScheduleModelGenerator modelGenerator,
-            Map<Integer, Subject> idToSubj,
-            Map<Integer, Lecturer> idToLecturer,
-            Map<Integer, StudyGroup> idToStudyGroup,
-            Map<Integer, Classroom> idToClassroom,
+            EntityIndex<Subject> subjects,
+            EntityIndex<Lecturer> lecturers,
+            EntityIndex<StudyGroup> groups,
+            EntityIndex<Classroom> rooms,
             Map<LessonKind, ClassType> kindToClassType
     ) {
         this.modelGenerator = modelGenerator;
@@ -40,14 +39,15 @@ public class ModelToScheduleTransformer {
         this.funcs = modelGenerator.getFunctions();
         this.sorts = modelGenerator.getSorts();
 
-        this.idToSubj = idToSubj;
-        this.idToLecturer = idToLecturer;
-        this.idToStudyGroup = idToStudyGroup;
-        this.idToClassroom = idToClassroom;
+        this.subjects = subjects;
+        this.lecturers = lecturers;
+        this.groups = groups;
+        this.rooms = rooms;
         this.idToClassType = kindToClassType;
     }
 
-    public Map<StudyGroup, Schedule> transform() throws RuntimeException {
+    // Schedules indexed by the ordinals of the groups
+    public Schedule[] transform() throws RuntimeException {
         if (!modelGenerator.satisfies()) {
             throw new RuntimeException("Unable to transform model to schedule, because model is not satisfiable.");
         }
@@ -59,15 +59,14 @@ public class ModelToScheduleTransformer {
 
         Model model = modelOpt.get();
 
-        Map<StudyGroup, Schedule> schedulesOfGroups = new HashMap<>();
+        Schedule[] schedulesOfGroups = new Schedule[groups.size()];
 
         Expr[] groupsExpr = modelGenerator.getGroupsConstants();
         Expr[] daysExpr = modelGenerator.getDaysConstants();
         Expr[] slotsExpr = modelGenerator.getSlotsConstants();
 
         for (Expr groupExpr : groupsExpr) {
-            Integer groupId = toInt(sorts.groupId(groupExpr));
-            StudyGroup studyGroup = idToStudyGroup.get(groupId);
+            int groupOrdinal = groups.ordinalOf(toInt(sorts.groupId(groupExpr)));
             Schedule schedule = new Schedule();
             int dayNo = 0;
 
@@ -76,9 +75,10 @@ public class ModelToScheduleTransformer {
                 dayEntry.setDayOfWeek(sorts.dayOfWeekEnum(dayExpr));
 
                 LessonItem[] items = new LessonItem[7];
-                int itemNo = 0;
 
-                for (Expr slotExpr : slotsExpr) {
+                // Item index has to match the slot: it becomes the class time of the lesson
+                for (int itemNo = 0; itemNo < slotsExpr.length; itemNo++) {
+                    Expr slotExpr = slotsExpr[itemNo];
                     // Get slot item interpretation from current model
                     Expr slotItemInterpExpr = model.eval(ctx.mkApp(funcs.schedule(), groupExpr, dayExpr, slotExpr), false);
                     Expr[] itemLessonsExprs;
@@ -113,18 +113,26 @@ public class ModelToScheduleTransformer {
                     } else {
                         items[itemNo] = new SingleLessonItem(itemNo, lessonExprToLesson(itemLessonsExprs[0]));
                     }
-                    itemNo++;
                 }
                 dayEntry.setItems(items);
                 schedule.setDay(dayNo++, dayEntry);
             }
 
-            schedulesOfGroups.put(studyGroup, schedule);
+            schedulesOfGroups[groupOrdinal] = schedule;
         }
 
         return schedulesOfGroups;
     }
 
+    // The transformer does not own the context, it only releases its references to it.
+    @Override
+    public void close() {
+        modelGenerator = null;
+        ctx = null;
+        funcs = null;
+        sorts = null;
+    }
+
     private Lesson lessonExprToLesson(Expr lessonExpr) {
         if(lessonExpr == null)
             return null;
@@ -137,14 +145,15 @@ public class ModelToScheduleTransformer {
 
         Lesson lesson = new Lesson();
 
-        Integer subjId = toInt(sorts.subjectId(sorts.lessonSubject(lessonExpr)));
-        Integer tutorId = toInt(sorts.tutorId(sorts.lessonTutor(lessonExpr)));
-        Integer roomId = toInt(sorts.roomId(sorts.lessonRoom(lessonExpr)));
+        int subjId = toInt(sorts.subjectId(sorts.lessonSubject(lessonExpr)));
+        int tutorId = toInt(sorts.tutorId(sorts.lessonTutor(lessonExpr)));
+        int roomId = toInt(sorts.roomId(sorts.lessonRoom(lessonExpr)));
         LessonKind kind = sorts.kindEnum(sorts.lessonKind(lessonExpr));
 
-        lesson.setSubject(idToSubj.get(subjId));
-        lesson.setLecturer(idToLecturer.get(tutorId));
-        lesson.setClassroom(idToClassroom.get(roomId));
+        // The placeholder tutor has no entity, the lesson is left without a lecturer
+        lesson.setSubject(subjects.findById(subjId));
+        lesson.setLecturer(lecturers.findById(tutorId));
+        lesson.setClassroom(rooms.findById(roomId));
         lesson.setClassType(idToClassType.get(kind));
 
         return lesson;
@@ -0,0 +1,61 @@
+package ru.bmstu.schedule.smtgen.model;
+
+import ru.bmstu.schedule.smtgen.DayOfWeek;
+
+import java.util.Objects;
+
+// Room and tutor already taken in a slot by a schedule generated earlier.
+public class ResourceUsage {
+
+    private DayOfWeek day;
+    private LessonSlot slot;
+    private LessonParity parity;
+    private Integer roomId;
+    private Integer tutorId;
+
+    public ResourceUsage(DayOfWeek day, LessonSlot slot, LessonParity parity, Integer roomId, Integer tutorId) {
+        this.day = day;
+        this.slot = slot;
+        this.parity = parity;
+        this.roomId = roomId;
+        this.tutorId = tutorId;
+    }
+
+    public DayOfWeek getDay() {
+        return day;
+    }
+
+    public LessonSlot getSlot() {
+        return slot;
+    }
+
+    public LessonParity getParity() {
+        return parity;
+    }
+
+    public Integer getRoomId() {
+        return roomId;
+    }
+
+    public Integer getTutorId() {
+        return tutorId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ResourceUsage that = (ResourceUsage) o;
+        return day == that.day &&
+                slot == that.slot &&
+                parity == that.parity &&
+                Objects.equals(roomId, that.roomId) &&
+                Objects.equals(tutorId, that.tutorId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(day, slot, parity, roomId, tutorId);
+    }
+
+}
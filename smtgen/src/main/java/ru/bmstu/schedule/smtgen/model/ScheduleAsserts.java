@@ -63,6 +63,41 @@ public class ScheduleAsserts {
         );
     }
 
+    // Neither lesson of the group in the given slot takes the room or the tutor (both may be null).
+    public BoolExpr resourcesNotUsed(Expr group, Expr day, Expr slot, LessonParity parity, Expr room, Expr tutor) {
+        checkExprsSort(sorts.group(), group);
+        checkExprsSort(sorts.dayOfWeak(), day);
+        checkExprsSort(sorts.slot(), slot);
+
+        Expr slotItem = ctx.mkApp(func.schedule(), group, day, slot);
+        BoolExpr isPair = sorts.isPairItemExpr(slotItem);
+
+        return ctx.mkAnd(
+                ctx.mkImplies(sorts.isSingleItemExpr(slotItem), lessonNotUses(sorts.singleItemLesson(slotItem), room, tutor)),
+                parity == LessonParity.denominator
+                        ? ctx.mkTrue()
+                        : ctx.mkImplies(isPair, lessonNotUses(sorts.pairItemNumerator(slotItem), room, tutor)),
+                parity == LessonParity.numerator
+                        ? ctx.mkTrue()
+                        : ctx.mkImplies(isPair, lessonNotUses(sorts.pairItemDenominator(slotItem), room, tutor))
+        );
+    }
+
+    private BoolExpr lessonNotUses(Expr lesson, Expr room, Expr tutor) {
+        List<BoolExpr> uses = new ArrayList<>();
+        if (room != null) {
+            uses.add(ctx.mkEq(sorts.lessonRoom(lesson), room));
+        }
+        if (tutor != null) {
+            uses.add(ctx.mkEq(sorts.lessonTutor(lesson), tutor));
+        }
+
+        return ctx.mkOr(
+                sorts.isBlankLessonExpr(lesson),
+                ctx.mkNot(ctx.mkOr(uses.toArray(new BoolExpr[0])))
+        );
+    }
+
     private RealExpr countLessonsInWeak(Expr subject, Expr group, Expr kind) {
         DayOfWeek[] days = DayOfWeek.values();
         RealExpr[] countDayLessons = new RealExpr[days.length];
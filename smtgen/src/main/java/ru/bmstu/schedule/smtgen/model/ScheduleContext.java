@@ -0,0 +1,86 @@
+package ru.bmstu.schedule.smtgen.model;
+
+import com.microsoft.z3.Context;
+
+// Z3 context together with the schedule sorts, functions and asserts declared in it.
+public class ScheduleContext implements AutoCloseable {
+
+    private final Context ctx;
+    private final ScheduleSorts sorts;
+    private final ScheduleFunctions functions;
+    private final ScheduleAsserts asserts;
+    private final ScheduleContextPool pool;
+
+    private boolean leased;
+    private boolean interrupted;
+    private boolean disposed;
+
+    public ScheduleContext() {
+        this(null);
+    }
+
+    ScheduleContext(ScheduleContextPool pool) {
+        this.pool = pool;
+        this.ctx = new Context();
+        this.sorts = new ScheduleSorts(ctx);
+        this.functions = new ScheduleFunctions(sorts);
+        this.asserts = new ScheduleAsserts(sorts, functions);
+        this.leased = true;
+    }
+
+    public Context getContext() {
+        return ctx;
+    }
+
+    public ScheduleSorts getSorts() {
+        return sorts;
+    }
+
+    public ScheduleFunctions getFunctions() {
+        return functions;
+    }
+
+    public ScheduleAsserts getAsserts() {
+        return asserts;
+    }
+
+    public synchronized void interrupt() {
+        if (!disposed) {
+            interrupted = true;
+            ctx.interrupt();
+        }
+    }
+
+    synchronized boolean isInterrupted() {
+        return interrupted;
+    }
+
+    synchronized void lease() {
+        leased = true;
+    }
+
+    // Returns a pooled context back to its pool, otherwise releases the native Z3 memory.
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!leased || disposed) {
+                return;
+            }
+            leased = false;
+        }
+
+        if (pool == null) {
+            dispose();
+        } else {
+            pool.release(this);
+        }
+    }
+
+    synchronized void dispose() {
+        if (!disposed) {
+            disposed = true;
+            ctx.close();
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package ru.bmstu.schedule.smtgen.model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+
+// Bounded pool of Z3 contexts with already declared schedule sorts for long-lived callers.
+public class ScheduleContextPool implements AutoCloseable {
+
+    private final Semaphore available;
+    private final Deque<ScheduleContext> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    public ScheduleContextPool(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Size of the context pool should be positive: " + maxSize);
+        }
+
+        this.available = new Semaphore(maxSize, true);
+    }
+
+    public ScheduleContext acquire() throws InterruptedException {
+        available.acquire();
+
+        try {
+            ScheduleContext ctx;
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("Context pool is closed");
+                }
+                ctx = idle.poll();
+            }
+
+            if (ctx == null) {
+                return new ScheduleContext(this);
+            }
+
+            ctx.lease();
+            return ctx;
+        } catch (RuntimeException e) {
+            available.release();
+            throw e;
+        }
+    }
+
+    void release(ScheduleContext ctx) {
+        synchronized (this) {
+            // Z3 keeps the cancel flag of an interrupted context, so it is never handed out again
+            if (closed || ctx.isInterrupted()) {
+                ctx.dispose();
+            } else {
+                idle.push(ctx);
+            }
+        }
+
+        available.release();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (ScheduleContext ctx : idle) {
+            ctx.dispose();
+        }
+        idle.clear();
+    }
+
+}
@@ -10,7 +10,9 @@ import java.util.*;
 import static java.lang.Math.abs;
 import static ru.bmstu.schedule.smtgen.Z3Utils.checkExprsSort;
 
-public class SmtScheduleModelGenerator {
+public class SmtScheduleModelGenerator implements AutoCloseable {
+
+    private static final String CONFLICTS_STAT_KEY = "conflicts";
 
     private Map<Integer, SubjectsPerWeek> totalSubjectsPerWeak;
 
@@ -18,6 +20,7 @@ public class SmtScheduleModelGenerator {
 
     private Solver solver;
     private Status modelStatus;
+    private ScheduleContext scheduleCtx;
     private Context ctx;
     private ScheduleSorts sorts;
     private ScheduleFunctions func;
@@ -33,7 +36,21 @@ public class SmtScheduleModelGenerator {
     private List<Expr> roomsConsts;
     private List<Expr> groupsConsts;
 
+    private Collection<ResourceUsage> busyResources = Collections.emptyList();
+
+    private boolean closed;
+
+    public SmtScheduleModelGenerator(
+            Map<Integer, SubjectsPerWeek> totalSubjectsPerWeak,
+            List<TutorForLesson> tutorForLessons,
+            List<Integer> rooms,
+            List<Integer> groups) {
+        this(new ScheduleContext(), totalSubjectsPerWeak, tutorForLessons, rooms, groups);
+    }
+
+    // Takes ownership of the given context: it is closed (or returned to its pool) by close().
     public SmtScheduleModelGenerator(
+            ScheduleContext scheduleCtx,
             Map<Integer, SubjectsPerWeek> totalSubjectsPerWeak,
             List<TutorForLesson> tutorForLessons,
             List<Integer> rooms,
@@ -42,10 +59,11 @@ public class SmtScheduleModelGenerator {
         this.tutorForLessons = tutorForLessons;
         this.rooms = rooms;
         this.groups = groups;
-        this.ctx = new Context();
-        this.sorts = new ScheduleSorts(ctx);
-        this.func = new ScheduleFunctions(sorts);
-        this.asserts = new ScheduleAsserts(sorts, func);
+        this.scheduleCtx = scheduleCtx;
+        this.ctx = scheduleCtx.getContext();
+        this.sorts = scheduleCtx.getSorts();
+        this.func = scheduleCtx.getFunctions();
+        this.asserts = scheduleCtx.getAsserts();
 
         countSlotsOfEachType();
 
@@ -100,18 +118,43 @@ public class SmtScheduleModelGenerator {
         return func;
     }
 
+    // Must be set before build(): keeps the generated schedules off resources taken by other study plans.
+    public void setBusyResources(Collection<ResourceUsage> busyResources) {
+        this.busyResources = busyResources;
+    }
+
+    public void build() {
+        if (solver == null) {
+            solver = ctx.mkSolver();
+            solver.add(validSchedule());
+        }
+    }
+
     public Status check() {
         if (modelStatus == null) {
-            if (solver == null) {
-                solver = ctx.mkSolver();
-                solver.add(validSchedule());
-            }
+            build();
             modelStatus = solver.check();
         }
 
         return modelStatus;
     }
 
+    // Safe to call from any thread: makes a running check() return Status.UNKNOWN.
+    public synchronized void interrupt() {
+        if (!closed) {
+            scheduleCtx.interrupt();
+        }
+    }
+
+    public long getConflicts() {
+        if (modelStatus == null) {
+            return 0;
+        }
+
+        Statistics.Entry conflicts = solver.getStatistics().get(CONFLICTS_STAT_KEY);
+        return conflicts == null ? 0 : conflicts.getUIntValue();
+    }
+
     public boolean satisfies() {
         return check() == Status.SATISFIABLE;
     }
@@ -120,6 +163,23 @@ public class SmtScheduleModelGenerator {
         return Optional.ofNullable(satisfies() ? solver.getModel() : null);
     }
 
+    // Drops every expression built in the context before giving the context away,
+    // so a pooled context does not keep this model alive.
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        solver = null;
+        tutorConstById = null;
+        subjConstById = null;
+        roomsConsts = null;
+        groupsConsts = null;
+        scheduleCtx.close();
+    }
+
     private void createTutorsConstants() {
         this.tutorConstById = new HashMap<>();
 
@@ -365,8 +425,34 @@ public class SmtScheduleModelGenerator {
 
         return ctx.mkAnd(
                 ctx.mkAnd(validForGroup),
-                ctx.mkAnd(validForTwoGroups)
+                ctx.mkAnd(validForTwoGroups),
+                busyResourcesNotUsed()
         );
     }
 
+    private BoolExpr busyResourcesNotUsed() {
+        List<BoolExpr> notUsed = new ArrayList<>();
+
+        for (ResourceUsage usage : busyResources) {
+            Expr room = usage.getRoomId() == null ? null : ctx.mkApp(sorts.roomDecl(), ctx.mkInt(usage.getRoomId()));
+            Expr tutor = usage.getTutorId() == null ? null : ctx.mkApp(sorts.tutorDecl(), ctx.mkInt(usage.getTutorId()));
+            if (room == null && tutor == null) {
+                continue;
+            }
+
+            for (Expr group : groupsConsts) {
+                notUsed.add(asserts.resourcesNotUsed(
+                        group,
+                        sorts.dayOfWeak(usage.getDay()),
+                        sorts.slot(usage.getSlot()),
+                        usage.getParity(),
+                        room,
+                        tutor
+                ));
+            }
+        }
+
+        return ctx.mkAnd(notUsed.toArray(new BoolExpr[0]));
+    }
+
 }
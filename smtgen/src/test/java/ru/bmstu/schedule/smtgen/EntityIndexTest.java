@@ -0,0 +1,56 @@
+package ru.bmstu.schedule.smtgen;
+
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.entity.Classroom;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityIndexTest {
+
+    @Test
+    void ordinalsFollowIds() {
+        Classroom first = room(42, "101");
+        Classroom second = room(7, "202");
+        Classroom third = room(19, "303");
+
+        EntityIndex<Classroom> index = EntityIndex.of(Arrays.asList(first, second, third), Classroom::getId);
+
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList(7, 19, 42), index.ids());
+        assertSame(second, index.get(0));
+        assertSame(first, index.get(2));
+        assertEquals(1, index.ordinalOf(19));
+        assertEquals(42, index.idAt(2));
+        assertSame(third, index.findById(19));
+    }
+
+    @Test
+    void unknownIdHasNoOrdinal() {
+        EntityIndex<Classroom> index = EntityIndex.of(Collections.singletonList(room(5, "101")), Classroom::getId);
+
+        assertEquals(-1, index.ordinalOf(0));
+        assertEquals(-1, index.ordinalOf(6));
+        assertNull(index.findById(0));
+    }
+
+    @Test
+    void repeatedIdsAreIndexedOnce() {
+        Classroom room = room(3, "101");
+
+        EntityIndex<Classroom> index = EntityIndex.of(Arrays.asList(room, room(1, "202"), room), Classroom::getId);
+
+        assertEquals(2, index.size());
+        assertSame(room, index.findById(3));
+    }
+
+    private static Classroom room(int id, String number) {
+        Classroom room = new Classroom();
+        room.setId(id);
+        room.setRoomNumber(number);
+        return room;
+    }
+
+}
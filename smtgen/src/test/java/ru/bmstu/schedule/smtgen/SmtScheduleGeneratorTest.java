@@ -0,0 +1,115 @@
+package ru.bmstu.schedule.smtgen;
+
+import org.junit.jupiter.api.Test;
+import ru.bmstu.schedule.dto.LecturerAssignment;
+import ru.bmstu.schedule.entity.*;
+import ru.bmstu.schedule.smtgen.model.ScheduleContext;
+import ru.bmstu.schedule.smtgen.model.ScheduleContextPool;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtScheduleGeneratorTest {
+
+    private static final int SUBJECT_ID = 1;
+    private static final int LECTURER_ID = 1;
+
+    @Test
+    void phasesOfGenerationAreReported() throws Exception {
+        List<GenerationPhase> phases = new CopyOnWriteArrayList<>();
+
+        Map<StudyGroup, Schedule> schedules = generator()
+                .generateScheduleAsync(progress -> phases.add(progress.getPhase()))
+                .get(1, TimeUnit.MINUTES);
+
+        assertEquals(1, schedules.size());
+        // The solving phase is repeated by the heartbeat while the solver runs
+        assertEquals(
+                Arrays.asList(GenerationPhase.building, GenerationPhase.solving, GenerationPhase.decoding, GenerationPhase.finished),
+                new ArrayList<>(new LinkedHashSet<>(phases))
+        );
+    }
+
+    @Test
+    void cancellingInterruptsTheContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ScheduleContextPool pool = new ScheduleContextPool(1)) {
+            // The generation gets this context back from the pool
+            ScheduleContext context = pool.acquire();
+            context.close();
+
+            SmtScheduleGenerator generator = generator();
+            generator.setContextPool(pool);
+
+            List<GenerationPhase> phases = new CopyOnWriteArrayList<>();
+            // The listener may be called before the future is returned to this thread
+            CompletableFuture<Future<?>> started = new CompletableFuture<>();
+            CompletableFuture<Map<StudyGroup, Schedule>> generation = generator.generateScheduleAsync(executor, progress -> {
+                phases.add(progress.getPhase());
+                if (progress.getPhase() == GenerationPhase.solving) {
+                    started.join().cancel(true);
+                }
+            });
+            started.complete(generation);
+
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+            assertTrue(generation.isCancelled());
+            assertEquals(Arrays.asList(GenerationPhase.building, GenerationPhase.solving), new ArrayList<>(new LinkedHashSet<>(phases)));
+
+            // An interrupted context is disposed instead of being returned to the pool
+            try (ScheduleContext next = pool.acquire()) {
+                assertNotSame(context, next);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static SmtScheduleGenerator generator() {
+        Subject subject = new Subject();
+        subject.setId(SUBJECT_ID);
+        subject.setName("Математический анализ");
+
+        Lecturer lecturer = new Lecturer();
+        lecturer.setId(LECTURER_ID);
+        lecturer.setLastName("Иванов");
+
+        StudyGroup group = new StudyGroup();
+        group.setId(1);
+        group.setNumber(1);
+
+        List<ClassType> classTypes = Arrays.asList(classType(1, "лекция"), classType(2, "семинар"));
+        List<LecturerAssignment> assignments = Arrays.asList(
+                new LecturerAssignment(LECTURER_ID, SUBJECT_ID, 1, "лекция"),
+                new LecturerAssignment(LECTURER_ID, SUBJECT_ID, 1, "семинар")
+        );
+
+        return new SmtScheduleGenerator(
+                Collections.singletonList(subject),
+                Collections.singletonMap(SUBJECT_ID, new SubjectsPerWeek(1, 1, 0)),
+                assignments,
+                Collections.singletonList(lecturer),
+                Arrays.asList(room(1, "101"), room(2, "202")),
+                Collections.singletonList(group),
+                classTypes
+        );
+    }
+
+    private static ClassType classType(int id, String name) {
+        ClassType classType = new ClassType();
+        classType.setId(id);
+        classType.setName(name);
+        return classType;
+    }
+
+    private static Classroom room(int id, String number) {
+        Classroom room = new Classroom();
+        room.setId(id);
+        room.setRoomNumber(number);
+        return room;
+    }
+
+}
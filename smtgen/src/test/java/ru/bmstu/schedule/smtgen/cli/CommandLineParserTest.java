@@ -24,6 +24,10 @@ class CommandLineParserTest {
             "-g group1, group2",
             "-g ИУ9-21, ЮР, group2",
             "-g ,",
+            "-b ИУ9",
+            "-b иу9 -t 3",
+            "-b ИУ9 -t 1,,3",
+            "-b ИУ -g ИУ9-21 -t 1",
     })
     public void testInvalidParameters(String opts) {
         System.out.println("options: " + opts);
@@ -64,6 +68,26 @@ class CommandLineParserTest {
         assertNull(config.getSpecializationCode());
     }
 
+    @ParameterizedTest
+    @MethodSource("batchSource")
+    void testValidBatch(String opts, String cipher, List<Integer> terms) throws ParseException {
+        String[] args = opts.split("\\s+");
+        CommandLineParser parser = new CommandLineParser();
+        ScheduleConfiguration config = parser.parse(args);
+
+        assertEquals(cipher, config.getBatchCipher());
+        assertEquals(terms, config.getBatchTerms());
+        assertNull(config.getGroupCiphers());
+        assertNull(config.getDepartmentCipher());
+    }
+
+    private static Stream<Arguments> batchSource() {
+        return Stream.of(
+                Arguments.of("-b ИУ -t 1,3,5,7", "ИУ", Arrays.asList(1, 3, 5, 7)),
+                Arguments.of("-b ИУ9 -t 5", "ИУ9", Collections.singletonList(5))
+        );
+    }
+
     private static Stream<Arguments> groupsSource() {
         return Stream.of(
                 Arguments.of("-g ИУ9-54, ИУ9-12, ИБМ-112,  Э9-32", Arrays.asList("ИУ9-54","ИУ9-12", "ИБМ-112", "Э9-32")),
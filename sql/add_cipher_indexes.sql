@@ -0,0 +1,8 @@
+-- Upgrades an existing database with the indexes used by cipher lookups (see create_tables.sql)
+CREATE INDEX IF NOT EXISTS subject_name_idx ON "subject" (subject_name);
+CREATE INDEX IF NOT EXISTS department_faculty_number_idx ON department (faculty_id, department_number);
+CREATE INDEX IF NOT EXISTS dept_to_spec_department_idx ON department_to_specialization (department_id, specialization_id);
+
+ANALYZE "subject";
+ANALYZE department;
+ANALYZE department_to_specialization;
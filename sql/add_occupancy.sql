@@ -0,0 +1,284 @@
+-- Upgrades an existing database with the room and lecturer occupancy (see create_tables.sql)
+
+-- Rooms and lecturers taken by the visible schedules (see published_schedule), one row per week:
+-- a class held every week ('ЧС/ЗН') takes both the numerator ('ЧС') and the denominator ('ЗН') week.
+-- Groups attending the same class share its row, another class at the same time is rejected.
+-- The rows are maintained by the triggers below, so conflict checks and free room lookups
+-- are index lookups instead of joins over all the schedules.
+CREATE TABLE room_occupancy
+(
+  classroom_id  INTEGER NOT NULL REFERENCES classroom (room_id),
+  weak_id       INTEGER NOT NULL REFERENCES day_of_weak (weak_id),
+  class_time_id INTEGER NOT NULL REFERENCES class_time (class_time_id),
+  week_parity   VARCHAR(2) NOT NULL CHECK (week_parity = 'ЧС' OR week_parity = 'ЗН'),
+  subject_id    INTEGER,
+  class_type_id INTEGER,
+  lecturer_id   INTEGER,
+  group_ids     INTEGER[] NOT NULL,
+  PRIMARY KEY (classroom_id, weak_id, class_time_id, week_parity)
+);
+
+CREATE INDEX room_occupancy_slot_idx ON room_occupancy (weak_id, class_time_id, week_parity);
+
+-- The placeholder lecturer '[UNKNOWN]' is not a real person and is never busy
+CREATE TABLE lecturer_occupancy
+(
+  lecturer_id   INTEGER NOT NULL REFERENCES lecturer (lecturer_id),
+  weak_id       INTEGER NOT NULL REFERENCES day_of_weak (weak_id),
+  class_time_id INTEGER NOT NULL REFERENCES class_time (class_time_id),
+  week_parity   VARCHAR(2) NOT NULL CHECK (week_parity = 'ЧС' OR week_parity = 'ЗН'),
+  subject_id    INTEGER,
+  class_type_id INTEGER,
+  classroom_id  INTEGER,
+  group_ids     INTEGER[] NOT NULL,
+  PRIMARY KEY (lecturer_id, weak_id, class_time_id, week_parity)
+);
+
+CREATE OR REPLACE VIEW schedule_class AS
+SELECT sip.schedule_item_parity_id,
+       sd.group_id,
+       sd.schedule_version,
+       sd.schedule_version = COALESCE(ps.schedule_version, 0) AS visible,
+       sd.weak_id,
+       si.class_time_id,
+       sip.day_parity,
+       sip.classroom_id,
+       l.lecturer_id,
+       ds.subject_id,
+       sip.class_type_id
+FROM schedule_item_parity sip
+       INNER JOIN schedule_item si ON si.schedule_item_id = sip.schedule_item_id
+       INNER JOIN schedule_day sd ON sd.day_id = si.day_id
+       LEFT JOIN published_schedule ps ON ps.group_id = sd.group_id
+       LEFT JOIN lecturer_subject ls ON ls.id = sip.lec_subj_id
+       LEFT JOIN lecturer l ON l.lecturer_id = ls.lecturer_id AND l.last_name <> '[UNKNOWN]'
+       LEFT JOIN department_subject ds ON ds.id = ls.subject_on_department_id;
+
+CREATE OR REPLACE FUNCTION week_parities(day_parity CHAR)
+  RETURNS TEXT[]
+AS
+$BODY$
+BEGIN
+  IF day_parity IS NULL
+  THEN
+    RETURN ARRAY []::TEXT[];
+  ELSIF rtrim(day_parity) = 'ЧС/ЗН'
+  THEN
+    RETURN ARRAY ['ЧС', 'ЗН'];
+  END IF;
+  RETURN ARRAY [rtrim(day_parity)];
+END
+$BODY$
+  LANGUAGE 'plpgsql' IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION occupy(c schedule_class)
+  RETURNS VOID
+AS
+$BODY$
+DECLARE
+  parity TEXT;
+BEGIN
+  FOREACH parity IN ARRAY week_parities(c.day_parity)
+    LOOP
+      IF c.classroom_id IS NOT NULL
+      THEN
+        INSERT INTO room_occupancy AS o (classroom_id, weak_id, class_time_id, week_parity,
+                                         subject_id, class_type_id, lecturer_id, group_ids)
+        VALUES (c.classroom_id, c.weak_id, c.class_time_id, parity,
+                c.subject_id, c.class_type_id, c.lecturer_id, ARRAY [c.group_id])
+        ON CONFLICT (classroom_id, weak_id, class_time_id, week_parity) DO UPDATE
+          SET group_ids = o.group_ids || c.group_id
+          WHERE o.subject_id IS NOT DISTINCT FROM c.subject_id
+            AND o.class_type_id IS NOT DISTINCT FROM c.class_type_id
+            AND o.lecturer_id IS NOT DISTINCT FROM c.lecturer_id;
+        IF NOT FOUND
+        THEN
+          RAISE EXCEPTION 'Аудитория c room_id="%" уже занята другим занятием: weak_id="%", class_time_id="%", "%".',
+            c.classroom_id, c.weak_id, c.class_time_id, parity
+            USING ERRCODE = 'unique_violation';
+        END IF;
+      END IF;
+
+      IF c.lecturer_id IS NOT NULL
+      THEN
+        INSERT INTO lecturer_occupancy AS o (lecturer_id, weak_id, class_time_id, week_parity,
+                                             subject_id, class_type_id, classroom_id, group_ids)
+        VALUES (c.lecturer_id, c.weak_id, c.class_time_id, parity,
+                c.subject_id, c.class_type_id, c.classroom_id, ARRAY [c.group_id])
+        ON CONFLICT (lecturer_id, weak_id, class_time_id, week_parity) DO UPDATE
+          SET group_ids = o.group_ids || c.group_id
+          WHERE o.subject_id IS NOT DISTINCT FROM c.subject_id
+            AND o.class_type_id IS NOT DISTINCT FROM c.class_type_id
+            AND o.classroom_id IS NOT DISTINCT FROM c.classroom_id;
+        IF NOT FOUND
+        THEN
+          RAISE EXCEPTION 'У преподавателя с lecturer_id="%" уже есть занятие в данное время: weak_id="%", class_time_id="%", "%".',
+            c.lecturer_id, c.weak_id, c.class_time_id, parity
+            USING ERRCODE = 'unique_violation';
+        END IF;
+      END IF;
+    END LOOP;
+END
+$BODY$
+  LANGUAGE 'plpgsql';
+
+CREATE OR REPLACE FUNCTION release(c schedule_class)
+  RETURNS VOID
+AS
+$BODY$
+DECLARE
+  parity TEXT;
+BEGIN
+  FOREACH parity IN ARRAY week_parities(c.day_parity)
+    LOOP
+      UPDATE room_occupancy
+      SET group_ids = array_remove(group_ids, c.group_id)
+      WHERE classroom_id = c.classroom_id
+        AND weak_id = c.weak_id
+        AND class_time_id = c.class_time_id
+        AND week_parity = parity;
+      UPDATE lecturer_occupancy
+      SET group_ids = array_remove(group_ids, c.group_id)
+      WHERE lecturer_id = c.lecturer_id
+        AND weak_id = c.weak_id
+        AND class_time_id = c.class_time_id
+        AND week_parity = parity;
+    END LOOP;
+
+  DELETE FROM room_occupancy
+  WHERE classroom_id = c.classroom_id
+    AND weak_id = c.weak_id
+    AND class_time_id = c.class_time_id
+    AND cardinality(group_ids) = 0;
+  DELETE FROM lecturer_occupancy
+  WHERE lecturer_id = c.lecturer_id
+    AND weak_id = c.weak_id
+    AND class_time_id = c.class_time_id
+    AND cardinality(group_ids) = 0;
+END
+$BODY$
+  LANGUAGE 'plpgsql';
+
+-- Old values are released before the row changes, while the view still shows them
+CREATE OR REPLACE FUNCTION release_item_parity()
+  RETURNS trigger AS
+$$
+BEGIN
+  PERFORM release(c)
+  FROM schedule_class c
+  WHERE c.schedule_item_parity_id = OLD.schedule_item_parity_id
+    AND c.visible;
+  IF TG_OP = 'DELETE'
+  THEN
+    RETURN OLD;
+  END IF;
+  RETURN NEW;
+END;
+$$
+  LANGUAGE 'plpgsql';
+
+CREATE OR REPLACE FUNCTION occupy_item_parity()
+  RETURNS trigger AS
+$$
+BEGIN
+  PERFORM occupy(c)
+  FROM schedule_class c
+  WHERE c.schedule_item_parity_id = NEW.schedule_item_parity_id
+    AND c.visible;
+  RETURN NEW;
+END;
+$$
+  LANGUAGE 'plpgsql';
+
+CREATE TRIGGER trigger_release_item_parity
+  BEFORE UPDATE OR DELETE
+  ON schedule_item_parity
+  FOR EACH ROW
+EXECUTE PROCEDURE release_item_parity();
+
+CREATE TRIGGER trigger_occupy_item_parity
+  AFTER INSERT OR UPDATE
+  ON schedule_item_parity
+  FOR EACH ROW
+EXECUTE PROCEDURE occupy_item_parity();
+
+-- Publishing swaps the classes of the groups: the previously visible versions are released, the new ones
+-- are occupied. The swap is done for the whole statement at once, so that the new classes of one group may
+-- take the slots of the old classes of another group published together. For INSERT ... ON CONFLICT DO
+-- UPDATE the UPDATE statement triggers fire before the INSERT ones; groups published for the first time
+-- release their version 0 and are occupied after the others are swapped.
+CREATE OR REPLACE FUNCTION publish_occupancy()
+  RETURNS trigger AS
+$$
+BEGIN
+  IF TG_OP = 'UPDATE'
+  THEN
+    -- Rows updated to the version they had change nothing
+    PERFORM release(c)
+    FROM old_rows o
+           INNER JOIN schedule_class c ON c.group_id = o.group_id AND c.schedule_version = o.schedule_version
+    WHERE NOT EXISTS(SELECT 1
+                     FROM new_rows n
+                     WHERE n.group_id = o.group_id
+                       AND n.schedule_version = o.schedule_version);
+    PERFORM occupy(c)
+    FROM new_rows n
+           INNER JOIN schedule_class c ON c.group_id = n.group_id AND c.schedule_version = n.schedule_version
+    WHERE NOT EXISTS(SELECT 1
+                     FROM old_rows o
+                     WHERE o.group_id = n.group_id
+                       AND o.schedule_version = n.schedule_version);
+  ELSIF TG_OP = 'INSERT'
+  THEN
+    -- Unpublished groups show their version 0, the first publish swaps it for the new version
+    PERFORM release(c)
+    FROM new_rows n
+           INNER JOIN schedule_class c ON c.group_id = n.group_id AND c.schedule_version = 0
+    WHERE n.schedule_version <> 0;
+    PERFORM occupy(c)
+    FROM new_rows n
+           INNER JOIN schedule_class c ON c.group_id = n.group_id AND c.schedule_version = n.schedule_version;
+  ELSE
+    PERFORM release(c)
+    FROM old_rows o
+           INNER JOIN schedule_class c ON c.group_id = o.group_id AND c.schedule_version = o.schedule_version;
+    -- Unpublished groups show their version 0 again
+    PERFORM occupy(c)
+    FROM old_rows o
+           INNER JOIN schedule_class c ON c.group_id = o.group_id AND c.schedule_version = 0
+    WHERE o.schedule_version <> 0;
+  END IF;
+  RETURN NULL;
+END;
+$$
+  LANGUAGE 'plpgsql';
+
+-- Transition tables are allowed for triggers of a single event only
+CREATE TRIGGER trigger_publish_occupancy_insert
+  AFTER INSERT
+  ON published_schedule
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT
+EXECUTE PROCEDURE publish_occupancy();
+
+CREATE TRIGGER trigger_publish_occupancy_update
+  AFTER UPDATE
+  ON published_schedule
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT
+EXECUTE PROCEDURE publish_occupancy();
+
+CREATE TRIGGER trigger_publish_occupancy_delete
+  AFTER DELETE
+  ON published_schedule
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT
+EXECUTE PROCEDURE publish_occupancy();
+
+-- Fails on the first conflict between the schedules already published, it has to be fixed before the upgrade
+SELECT occupy(c)
+FROM schedule_class c
+WHERE c.visible;
+
+ANALYZE room_occupancy;
+ANALYZE lecturer_occupancy;
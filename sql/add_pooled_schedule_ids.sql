@@ -0,0 +1,13 @@
+-- Upgrades an existing database to the schedule ids allocated by blocks of 50 (see create_tables.sql).
+-- Hibernate takes the ids v .. v + 49 for every value v of the sequences, so the sequences have to step
+-- by 50 and start past the ids already taken. Run it while no schedules are written.
+ALTER SEQUENCE schedule_day_day_id_seq INCREMENT BY 50;
+ALTER SEQUENCE schedule_item_schedule_item_id_seq INCREMENT BY 50;
+ALTER SEQUENCE schedule_item_parity_schedule_item_parity_id_seq INCREMENT BY 50;
+
+SELECT setval('schedule_day_day_id_seq', COALESCE(max(day_id), 0) + 1, FALSE)
+FROM schedule_day;
+SELECT setval('schedule_item_schedule_item_id_seq', COALESCE(max(schedule_item_id), 0) + 1, FALSE)
+FROM schedule_item;
+SELECT setval('schedule_item_parity_schedule_item_parity_id_seq', COALESCE(max(schedule_item_parity_id), 0) + 1, FALSE)
+FROM schedule_item_parity;
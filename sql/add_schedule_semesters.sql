@@ -0,0 +1,65 @@
+-- Upgrades an existing database to schedule rows tagged with the semester of their group (see create_tables.sql)
+CREATE OR REPLACE FUNCTION semester_of(start_year INTEGER, term_no INTEGER)
+  RETURNS INTEGER
+AS
+$BODY$
+SELECT (start_year + (term_no - 1) / 2) * 10 + (term_no - 1) % 2 + 1
+$BODY$
+  LANGUAGE 'sql' IMMUTABLE;
+
+ALTER TABLE schedule_day ADD COLUMN semester INTEGER;
+ALTER TABLE schedule_item ADD COLUMN semester INTEGER;
+ALTER TABLE schedule_item_parity ADD COLUMN semester INTEGER;
+
+-- The classes do not change, the occupancy tables are left as they are
+ALTER TABLE schedule_item_parity DISABLE TRIGGER trigger_release_item_parity;
+ALTER TABLE schedule_item_parity DISABLE TRIGGER trigger_occupy_item_parity;
+
+UPDATE schedule_day sd
+SET semester = semester_of(c.start_year, t.term_no)
+FROM study_group gr
+       INNER JOIN calendar c ON c.id = gr.calendar_id
+       INNER JOIN term t ON t.term_id = gr.term_id
+WHERE gr.group_id = sd.group_id;
+
+UPDATE schedule_item si
+SET semester = sd.semester
+FROM schedule_day sd
+WHERE sd.day_id = si.day_id;
+
+UPDATE schedule_item_parity sip
+SET semester = si.semester
+FROM schedule_item si
+WHERE si.schedule_item_id = sip.schedule_item_id;
+
+ALTER TABLE schedule_item_parity ENABLE TRIGGER trigger_release_item_parity;
+ALTER TABLE schedule_item_parity ENABLE TRIGGER trigger_occupy_item_parity;
+
+ALTER TABLE schedule_day ALTER COLUMN semester SET NOT NULL;
+ALTER TABLE schedule_item ALTER COLUMN semester SET NOT NULL;
+ALTER TABLE schedule_item_parity ALTER COLUMN semester SET NOT NULL;
+
+CREATE OR REPLACE VIEW schedule_class AS
+SELECT sip.schedule_item_parity_id,
+       sd.group_id,
+       sd.schedule_version,
+       sd.schedule_version = COALESCE(ps.schedule_version, 0) AS visible,
+       sd.weak_id,
+       si.class_time_id,
+       sip.day_parity,
+       sip.classroom_id,
+       l.lecturer_id,
+       ds.subject_id,
+       sip.class_type_id,
+       sip.semester
+FROM schedule_item_parity sip
+       INNER JOIN schedule_item si ON si.schedule_item_id = sip.schedule_item_id AND si.semester = sip.semester
+       INNER JOIN schedule_day sd ON sd.day_id = si.day_id AND sd.semester = si.semester
+       LEFT JOIN published_schedule ps ON ps.group_id = sd.group_id
+       LEFT JOIN lecturer_subject ls ON ls.id = sip.lec_subj_id
+       LEFT JOIN lecturer l ON l.lecturer_id = ls.lecturer_id AND l.last_name <> '[UNKNOWN]'
+       LEFT JOIN department_subject ds ON ds.id = ls.subject_on_department_id;
+
+ANALYZE schedule_day;
+ANALYZE schedule_item;
+ANALYZE schedule_item_parity;
@@ -0,0 +1,12 @@
+-- Upgrades an existing database to versioned schedules (see create_tables.sql)
+ALTER TABLE schedule_day ADD COLUMN schedule_version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE schedule_day DROP CONSTRAINT IF EXISTS schedule_day_weak_id_group_id_key;
+ALTER TABLE schedule_day ADD UNIQUE (group_id, schedule_version, weak_id);
+
+CREATE SEQUENCE schedule_version_seq;
+
+CREATE TABLE published_schedule
+(
+  group_id         INTEGER PRIMARY KEY REFERENCES study_group (group_id),
+  schedule_version INTEGER NOT NULL
+);
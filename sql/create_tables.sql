@@ -10,6 +10,8 @@ CREATE TABLE "subject"
   subject_name TEXT NOT NULL
 );
 
+CREATE INDEX subject_name_idx ON "subject" (subject_name);
+
 CREATE TABLE class_type
 (
   "type_id"   SERIAL PRIMARY KEY,
@@ -85,6 +87,9 @@ CREATE TABLE department
   title             TEXT    NULL
 );
 
+-- Department ciphers ('ИУ9') are looked up by faculty and department number, not by their concatenation
+CREATE INDEX department_faculty_number_idx ON department (faculty_id, department_number);
+
 CREATE TABLE speciality
 (
   id        SERIAL PRIMARY KEY,
@@ -111,6 +116,8 @@ CREATE TABLE department_to_specialization
   specialization_id INTEGER REFERENCES specialization (id)
 );
 
+CREATE INDEX dept_to_spec_department_idx ON department_to_specialization (department_id, specialization_id);
+
 CREATE TABLE department_subject
 (
   id            SERIAL PRIMARY KEY,
@@ -147,12 +154,33 @@ CREATE TABLE study_group
   UNIQUE (calendar_id, term_id, group_number)
 );
 
+-- Semester of a group: academic year and its half, 20241 is the autumn of 2024/2025 and 20242 its spring.
+-- Schedule rows carry the semester of their group, partition_schedule.sql partitions the tables by it.
+CREATE OR REPLACE FUNCTION semester_of(start_year INTEGER, term_no INTEGER)
+  RETURNS INTEGER
+AS
+$BODY$
+SELECT (start_year + (term_no - 1) / 2) * 10 + (term_no - 1) % 2 + 1
+$BODY$
+  LANGUAGE 'sql' IMMUTABLE;
+
 CREATE TABLE schedule_day
 (
-  day_id   SERIAL PRIMARY KEY,
-  weak_id  INTEGER REFERENCES day_of_weak (weak_id),
-  group_id INTEGER REFERENCES study_group (group_id),
-  UNIQUE (weak_id, group_id)
+  day_id           SERIAL PRIMARY KEY,
+  weak_id          INTEGER REFERENCES day_of_weak (weak_id),
+  group_id         INTEGER REFERENCES study_group (group_id),
+  schedule_version INTEGER NOT NULL DEFAULT 0,
+  semester         INTEGER NOT NULL,
+  UNIQUE (group_id, schedule_version, weak_id)
+);
+
+-- Schedules are written under a new version and become visible once published_schedule points to it
+CREATE SEQUENCE schedule_version_seq;
+
+CREATE TABLE published_schedule
+(
+  group_id         INTEGER PRIMARY KEY REFERENCES study_group (group_id),
+  schedule_version INTEGER NOT NULL
 );
 
 CREATE TABLE schedule_item
@@ -160,6 +188,7 @@ CREATE TABLE schedule_item
   schedule_item_id SERIAL PRIMARY KEY,
   day_id           INTEGER REFERENCES schedule_day (day_id),
   class_time_id    INTEGER REFERENCES class_time (class_time_id),
+  semester         INTEGER NOT NULL,
   UNIQUE (day_id, class_time_id)
 );
 
@@ -173,6 +202,7 @@ CREATE TABLE schedule_item_parity
   classroom_id            INTEGER REFERENCES classroom (room_id),
   class_type_id           INTEGER REFERENCES class_type ("type_id"),
   lec_subj_id             INTEGER REFERENCES "lecturer_subject" (id),
+  semester                INTEGER NOT NULL,
 
   CONSTRAINT unq_cr UNIQUE (schedule_item_id, day_parity, classroom_id),
   CONSTRAINT unq_subj UNIQUE (schedule_item_id, day_parity, lec_subj_id),
@@ -180,6 +210,11 @@ CREATE TABLE schedule_item_parity
   CONSTRAINT unq_parity UNIQUE (schedule_item_id, day_parity)
 );
 
+-- Hibernate allocates schedule ids by blocks of 50 (pooled-lo) to batch the inserts
+ALTER SEQUENCE schedule_day_day_id_seq INCREMENT BY 50;
+ALTER SEQUENCE schedule_item_schedule_item_id_seq INCREMENT BY 50;
+ALTER SEQUENCE schedule_item_parity_schedule_item_parity_id_seq INCREMENT BY 50;
+
 
 CREATE TABLE calendar_item
 (
@@ -235,6 +270,282 @@ END
 $BODY$
   LANGUAGE 'plpgsql';
 
+-- Rooms and lecturers taken by the visible schedules (see published_schedule), one row per week:
+-- a class held every week ('ЧС/ЗН') takes both the numerator ('ЧС') and the denominator ('ЗН') week.
+-- Groups attending the same class share its row, another class at the same time is rejected.
+-- The rows are maintained by the triggers below, so conflict checks and free room lookups
+-- are index lookups instead of joins over all the schedules.
+CREATE TABLE room_occupancy
+(
+  classroom_id  INTEGER NOT NULL REFERENCES classroom (room_id),
+  weak_id       INTEGER NOT NULL REFERENCES day_of_weak (weak_id),
+  class_time_id INTEGER NOT NULL REFERENCES class_time (class_time_id),
+  week_parity   VARCHAR(2) NOT NULL CHECK (week_parity = 'ЧС' OR week_parity = 'ЗН'),
+  subject_id    INTEGER,
+  class_type_id INTEGER,
+  lecturer_id   INTEGER,
+  group_ids     INTEGER[] NOT NULL,
+  PRIMARY KEY (classroom_id, weak_id, class_time_id, week_parity)
+);
+
+CREATE INDEX room_occupancy_slot_idx ON room_occupancy (weak_id, class_time_id, week_parity);
+
+-- The placeholder lecturer '[UNKNOWN]' is not a real person and is never busy
+CREATE TABLE lecturer_occupancy
+(
+  lecturer_id   INTEGER NOT NULL REFERENCES lecturer (lecturer_id),
+  weak_id       INTEGER NOT NULL REFERENCES day_of_weak (weak_id),
+  class_time_id INTEGER NOT NULL REFERENCES class_time (class_time_id),
+  week_parity   VARCHAR(2) NOT NULL CHECK (week_parity = 'ЧС' OR week_parity = 'ЗН'),
+  subject_id    INTEGER,
+  class_type_id INTEGER,
+  classroom_id  INTEGER,
+  group_ids     INTEGER[] NOT NULL,
+  PRIMARY KEY (lecturer_id, weak_id, class_time_id, week_parity)
+);
+
+CREATE OR REPLACE VIEW schedule_class AS
+SELECT sip.schedule_item_parity_id,
+       sd.group_id,
+       sd.schedule_version,
+       sd.schedule_version = COALESCE(ps.schedule_version, 0) AS visible,
+       sd.weak_id,
+       si.class_time_id,
+       sip.day_parity,
+       sip.classroom_id,
+       l.lecturer_id,
+       ds.subject_id,
+       sip.class_type_id,
+       sip.semester
+FROM schedule_item_parity sip
+       INNER JOIN schedule_item si ON si.schedule_item_id = sip.schedule_item_id AND si.semester = sip.semester
+       INNER JOIN schedule_day sd ON sd.day_id = si.day_id AND sd.semester = si.semester
+       LEFT JOIN published_schedule ps ON ps.group_id = sd.group_id
+       LEFT JOIN lecturer_subject ls ON ls.id = sip.lec_subj_id
+       LEFT JOIN lecturer l ON l.lecturer_id = ls.lecturer_id AND l.last_name <> '[UNKNOWN]'
+       LEFT JOIN department_subject ds ON ds.id = ls.subject_on_department_id;
+
+CREATE OR REPLACE FUNCTION week_parities(day_parity CHAR)
+  RETURNS TEXT[]
+AS
+$BODY$
+BEGIN
+  IF day_parity IS NULL
+  THEN
+    RETURN ARRAY []::TEXT[];
+  ELSIF rtrim(day_parity) = 'ЧС/ЗН'
+  THEN
+    RETURN ARRAY ['ЧС', 'ЗН'];
+  END IF;
+  RETURN ARRAY [rtrim(day_parity)];
+END
+$BODY$
+  LANGUAGE 'plpgsql' IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION occupy(c schedule_class)
+  RETURNS VOID
+AS
+$BODY$
+DECLARE
+  parity TEXT;
+BEGIN
+  FOREACH parity IN ARRAY week_parities(c.day_parity)
+    LOOP
+      IF c.classroom_id IS NOT NULL
+      THEN
+        INSERT INTO room_occupancy AS o (classroom_id, weak_id, class_time_id, week_parity,
+                                         subject_id, class_type_id, lecturer_id, group_ids)
+        VALUES (c.classroom_id, c.weak_id, c.class_time_id, parity,
+                c.subject_id, c.class_type_id, c.lecturer_id, ARRAY [c.group_id])
+        ON CONFLICT (classroom_id, weak_id, class_time_id, week_parity) DO UPDATE
+          SET group_ids = o.group_ids || c.group_id
+          WHERE o.subject_id IS NOT DISTINCT FROM c.subject_id
+            AND o.class_type_id IS NOT DISTINCT FROM c.class_type_id
+            AND o.lecturer_id IS NOT DISTINCT FROM c.lecturer_id;
+        IF NOT FOUND
+        THEN
+          RAISE EXCEPTION 'Аудитория c room_id="%" уже занята другим занятием: weak_id="%", class_time_id="%", "%".',
+            c.classroom_id, c.weak_id, c.class_time_id, parity
+            USING ERRCODE = 'unique_violation';
+        END IF;
+      END IF;
+
+      IF c.lecturer_id IS NOT NULL
+      THEN
+        INSERT INTO lecturer_occupancy AS o (lecturer_id, weak_id, class_time_id, week_parity,
+                                             subject_id, class_type_id, classroom_id, group_ids)
+        VALUES (c.lecturer_id, c.weak_id, c.class_time_id, parity,
+                c.subject_id, c.class_type_id, c.classroom_id, ARRAY [c.group_id])
+        ON CONFLICT (lecturer_id, weak_id, class_time_id, week_parity) DO UPDATE
+          SET group_ids = o.group_ids || c.group_id
+          WHERE o.subject_id IS NOT DISTINCT FROM c.subject_id
+            AND o.class_type_id IS NOT DISTINCT FROM c.class_type_id
+            AND o.classroom_id IS NOT DISTINCT FROM c.classroom_id;
+        IF NOT FOUND
+        THEN
+          RAISE EXCEPTION 'У преподавателя с lecturer_id="%" уже есть занятие в данное время: weak_id="%", class_time_id="%", "%".',
+            c.lecturer_id, c.weak_id, c.class_time_id, parity
+            USING ERRCODE = 'unique_violation';
+        END IF;
+      END IF;
+    END LOOP;
+END
+$BODY$
+  LANGUAGE 'plpgsql';
+
+CREATE OR REPLACE FUNCTION release(c schedule_class)
+  RETURNS VOID
+AS
+$BODY$
+DECLARE
+  parity TEXT;
+BEGIN
+  FOREACH parity IN ARRAY week_parities(c.day_parity)
+    LOOP
+      UPDATE room_occupancy
+      SET group_ids = array_remove(group_ids, c.group_id)
+      WHERE classroom_id = c.classroom_id
+        AND weak_id = c.weak_id
+        AND class_time_id = c.class_time_id
+        AND week_parity = parity;
+      UPDATE lecturer_occupancy
+      SET group_ids = array_remove(group_ids, c.group_id)
+      WHERE lecturer_id = c.lecturer_id
+        AND weak_id = c.weak_id
+        AND class_time_id = c.class_time_id
+        AND week_parity = parity;
+    END LOOP;
+
+  DELETE FROM room_occupancy
+  WHERE classroom_id = c.classroom_id
+    AND weak_id = c.weak_id
+    AND class_time_id = c.class_time_id
+    AND cardinality(group_ids) = 0;
+  DELETE FROM lecturer_occupancy
+  WHERE lecturer_id = c.lecturer_id
+    AND weak_id = c.weak_id
+    AND class_time_id = c.class_time_id
+    AND cardinality(group_ids) = 0;
+END
+$BODY$
+  LANGUAGE 'plpgsql';
+
+-- Old values are released before the row changes, while the view still shows them
+CREATE OR REPLACE FUNCTION release_item_parity()
+  RETURNS trigger AS
+$$
+BEGIN
+  PERFORM release(c)
+  FROM schedule_class c
+  WHERE c.schedule_item_parity_id = OLD.schedule_item_parity_id
+    AND c.visible;
+  IF TG_OP = 'DELETE'
+  THEN
+    RETURN OLD;
+  END IF;
+  RETURN NEW;
+END;
+$$
+  LANGUAGE 'plpgsql';
+
+CREATE OR REPLACE FUNCTION occupy_item_parity()
+  RETURNS trigger AS
+$$
+BEGIN
+  PERFORM occupy(c)
+  FROM schedule_class c
+  WHERE c.schedule_item_parity_id = NEW.schedule_item_parity_id
+    AND c.visible;
+  RETURN NEW;
+END;
+$$
+  LANGUAGE 'plpgsql';
+
+CREATE TRIGGER trigger_release_item_parity
+  BEFORE UPDATE OR DELETE
+  ON schedule_item_parity
+  FOR EACH ROW
+EXECUTE PROCEDURE release_item_parity();
+
+CREATE TRIGGER trigger_occupy_item_parity
+  AFTER INSERT OR UPDATE
+  ON schedule_item_parity
+  FOR EACH ROW
+EXECUTE PROCEDURE occupy_item_parity();
+
+-- Publishing swaps the classes of the groups: the previously visible versions are released, the new ones
+-- are occupied. The swap is done for the whole statement at once, so that the new classes of one group may
+-- take the slots of the old classes of another group published together. For INSERT ... ON CONFLICT DO
+-- UPDATE the UPDATE statement triggers fire before the INSERT ones; groups published for the first time
+-- release their version 0 and are occupied after the others are swapped.
+CREATE OR REPLACE FUNCTION publish_occupancy()
+  RETURNS trigger AS
+$$
+BEGIN
+  IF TG_OP = 'UPDATE'
+  THEN
+    -- Rows updated to the version they had change nothing
+    PERFORM release(c)
+    FROM old_rows o
+           INNER JOIN schedule_class c ON c.group_id = o.group_id AND c.schedule_version = o.schedule_version
+    WHERE NOT EXISTS(SELECT 1
+                     FROM new_rows n
+                     WHERE n.group_id = o.group_id
+                       AND n.schedule_version = o.schedule_version);
+    PERFORM occupy(c)
+    FROM new_rows n
+           INNER JOIN schedule_class c ON c.group_id = n.group_id AND c.schedule_version = n.schedule_version
+    WHERE NOT EXISTS(SELECT 1
+                     FROM old_rows o
+                     WHERE o.group_id = n.group_id
+                       AND o.schedule_version = n.schedule_version);
+  ELSIF TG_OP = 'INSERT'
+  THEN
+    -- Unpublished groups show their version 0, the first publish swaps it for the new version
+    PERFORM release(c)
+    FROM new_rows n
+           INNER JOIN schedule_class c ON c.group_id = n.group_id AND c.schedule_version = 0
+    WHERE n.schedule_version <> 0;
+    PERFORM occupy(c)
+    FROM new_rows n
+           INNER JOIN schedule_class c ON c.group_id = n.group_id AND c.schedule_version = n.schedule_version;
+  ELSE
+    PERFORM release(c)
+    FROM old_rows o
+           INNER JOIN schedule_class c ON c.group_id = o.group_id AND c.schedule_version = o.schedule_version;
+    -- Unpublished groups show their version 0 again
+    PERFORM occupy(c)
+    FROM old_rows o
+           INNER JOIN schedule_class c ON c.group_id = o.group_id AND c.schedule_version = 0
+    WHERE o.schedule_version <> 0;
+  END IF;
+  RETURN NULL;
+END;
+$$
+  LANGUAGE 'plpgsql';
+
+-- Transition tables are allowed for triggers of a single event only
+CREATE TRIGGER trigger_publish_occupancy_insert
+  AFTER INSERT
+  ON published_schedule
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT
+EXECUTE PROCEDURE publish_occupancy();
+
+CREATE TRIGGER trigger_publish_occupancy_update
+  AFTER UPDATE
+  ON published_schedule
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT
+EXECUTE PROCEDURE publish_occupancy();
+
+CREATE TRIGGER trigger_publish_occupancy_delete
+  AFTER DELETE
+  ON published_schedule
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT
+EXECUTE PROCEDURE publish_occupancy();
+
 -- -- check if class time items are intersected.
 -- CREATE OR REPLACE FUNCTION is_class_time_valid(time_id INTEGER, s TIME, e TIME)
 --   RETURNS BOOLEAN AS
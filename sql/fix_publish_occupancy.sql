@@ -0,0 +1,88 @@
+-- Upgrades a database created with the row-level publishing trigger of add_occupancy.sql, which failed
+-- when several groups were republished together and their old and new classes crossed (see create_tables.sql)
+
+DROP TRIGGER IF EXISTS trigger_publish_occupancy ON published_schedule;
+
+-- Publishing swaps the classes of the groups: the previously visible versions are released, the new ones
+-- are occupied. The swap is done for the whole statement at once, so that the new classes of one group may
+-- take the slots of the old classes of another group published together. For INSERT ... ON CONFLICT DO
+-- UPDATE the UPDATE statement triggers fire before the INSERT ones; groups published for the first time
+-- release their version 0 and are occupied after the others are swapped.
+CREATE OR REPLACE FUNCTION publish_occupancy()
+  RETURNS trigger AS
+$$
+BEGIN
+  IF TG_OP = 'UPDATE'
+  THEN
+    -- Rows updated to the version they had change nothing
+    PERFORM release(c)
+    FROM old_rows o
+           INNER JOIN schedule_class c ON c.group_id = o.group_id AND c.schedule_version = o.schedule_version
+    WHERE NOT EXISTS(SELECT 1
+                     FROM new_rows n
+                     WHERE n.group_id = o.group_id
+                       AND n.schedule_version = o.schedule_version);
+    PERFORM occupy(c)
+    FROM new_rows n
+           INNER JOIN schedule_class c ON c.group_id = n.group_id AND c.schedule_version = n.schedule_version
+    WHERE NOT EXISTS(SELECT 1
+                     FROM old_rows o
+                     WHERE o.group_id = n.group_id
+                       AND o.schedule_version = n.schedule_version);
+  ELSIF TG_OP = 'INSERT'
+  THEN
+    -- Unpublished groups show their version 0, the first publish swaps it for the new version
+    PERFORM release(c)
+    FROM new_rows n
+           INNER JOIN schedule_class c ON c.group_id = n.group_id AND c.schedule_version = 0
+    WHERE n.schedule_version <> 0;
+    PERFORM occupy(c)
+    FROM new_rows n
+           INNER JOIN schedule_class c ON c.group_id = n.group_id AND c.schedule_version = n.schedule_version;
+  ELSE
+    PERFORM release(c)
+    FROM old_rows o
+           INNER JOIN schedule_class c ON c.group_id = o.group_id AND c.schedule_version = o.schedule_version;
+    -- Unpublished groups show their version 0 again
+    PERFORM occupy(c)
+    FROM old_rows o
+           INNER JOIN schedule_class c ON c.group_id = o.group_id AND c.schedule_version = 0
+    WHERE o.schedule_version <> 0;
+  END IF;
+  RETURN NULL;
+END;
+$$
+  LANGUAGE 'plpgsql';
+
+-- Transition tables are allowed for triggers of a single event only
+CREATE TRIGGER trigger_publish_occupancy_insert
+  AFTER INSERT
+  ON published_schedule
+  REFERENCING NEW TABLE AS new_rows
+  FOR EACH STATEMENT
+EXECUTE PROCEDURE publish_occupancy();
+
+CREATE TRIGGER trigger_publish_occupancy_update
+  AFTER UPDATE
+  ON published_schedule
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+  FOR EACH STATEMENT
+EXECUTE PROCEDURE publish_occupancy();
+
+CREATE TRIGGER trigger_publish_occupancy_delete
+  AFTER DELETE
+  ON published_schedule
+  REFERENCING OLD TABLE AS old_rows
+  FOR EACH STATEMENT
+EXECUTE PROCEDURE publish_occupancy();
+
+-- Rows left by classes that are no longer visible are dropped by rebuilding the occupancy from the
+-- visible schedules
+TRUNCATE room_occupancy, lecturer_occupancy;
+
+SELECT occupy(c)
+FROM schedule_class c
+WHERE c.visible;
+
+ANALYZE room_occupancy;
+ANALYZE lecturer_occupancy;
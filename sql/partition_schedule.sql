@@ -0,0 +1,179 @@
+-- Partitions the schedule tables by semester (PostgreSQL 13 or newer), one partition per semester and table.
+-- Run it on a database created by create_tables.sql or upgraded with add_schedule_semesters.sql.
+-- Queries of the live term read its partitions only, and a past semester is removed by dropping
+-- its partitions (see drop_schedule_partitions) instead of deleting its rows one by one.
+-- Primary keys and unique constraints include the semester, as PostgreSQL requires of partitioned tables.
+BEGIN;
+
+-- Partitions are created as plain tables and attached afterwards: ATTACH PARTITION does not block
+-- reads and writes of the other semesters, unlike CREATE TABLE ... PARTITION OF, and the CHECK
+-- constraint spares it the scan of the new partition. The application calls it before writing
+-- the schedules of a semester, so the rollover to a new term does not stop the live one.
+CREATE OR REPLACE FUNCTION create_schedule_partitions(_semester INTEGER)
+  RETURNS VOID
+AS
+$BODY$
+DECLARE
+  _table     TEXT;
+  _partition TEXT;
+BEGIN
+  FOREACH _table IN ARRAY ARRAY ['schedule_day', 'schedule_item', 'schedule_item_parity']
+    LOOP
+      _partition = _table || '_' || _semester;
+      IF to_regclass(_partition) IS NULL
+      THEN
+        EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', _partition, _table);
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (semester = %s)',
+                       _partition, _partition || '_semester_check', _semester);
+        EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES IN (%s)', _table, _partition, _semester);
+      END IF;
+    END LOOP;
+END
+$BODY$
+  LANGUAGE 'plpgsql';
+
+-- Triggers do not fire for a dropped table, so the visible classes of the semester are released
+-- from the occupancy tables beforehand. Returns the number of removed days.
+CREATE OR REPLACE FUNCTION drop_schedule_partitions(_semester INTEGER)
+  RETURNS INTEGER
+AS
+$BODY$
+DECLARE
+  _table     TEXT;
+  _partition TEXT;
+  _days      INTEGER = 0;
+BEGIN
+  IF to_regclass('schedule_day_' || _semester) IS NULL
+  THEN
+    RETURN 0;
+  END IF;
+
+  EXECUTE format('SELECT count(*) FROM %I', 'schedule_day_' || _semester) INTO _days;
+  PERFORM release(c)
+  FROM schedule_class c
+  WHERE c.semester = _semester
+    AND c.visible;
+
+  FOREACH _table IN ARRAY ARRAY ['schedule_item_parity', 'schedule_item', 'schedule_day']
+    LOOP
+      _partition = _table || '_' || _semester;
+      IF to_regclass(_partition) IS NOT NULL
+      THEN
+        EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', _table, _partition);
+        EXECUTE format('DROP TABLE %I', _partition);
+      END IF;
+    END LOOP;
+  RETURN _days;
+END
+$BODY$
+  LANGUAGE 'plpgsql';
+
+ALTER TABLE schedule_item_parity RENAME TO schedule_item_parity_unpartitioned;
+ALTER TABLE schedule_item RENAME TO schedule_item_unpartitioned;
+ALTER TABLE schedule_day RENAME TO schedule_day_unpartitioned;
+
+CREATE TABLE schedule_day
+(
+  day_id           INTEGER NOT NULL DEFAULT nextval('schedule_day_day_id_seq'),
+  weak_id          INTEGER REFERENCES day_of_weak (weak_id),
+  group_id         INTEGER REFERENCES study_group (group_id),
+  schedule_version INTEGER NOT NULL DEFAULT 0,
+  semester         INTEGER NOT NULL,
+  PRIMARY KEY (day_id, semester),
+  UNIQUE (group_id, schedule_version, weak_id, semester)
+) PARTITION BY LIST (semester);
+
+CREATE TABLE schedule_item
+(
+  schedule_item_id INTEGER NOT NULL DEFAULT nextval('schedule_item_schedule_item_id_seq'),
+  day_id           INTEGER,
+  class_time_id    INTEGER REFERENCES class_time (class_time_id),
+  semester         INTEGER NOT NULL,
+  PRIMARY KEY (schedule_item_id, semester),
+  UNIQUE (day_id, class_time_id, semester),
+  FOREIGN KEY (day_id, semester) REFERENCES schedule_day (day_id, semester)
+) PARTITION BY LIST (semester);
+
+CREATE TABLE schedule_item_parity
+(
+  schedule_item_parity_id INTEGER NOT NULL DEFAULT nextval('schedule_item_parity_schedule_item_parity_id_seq'),
+  schedule_item_id        INTEGER,
+  day_parity              CHAR(5)
+    CHECK (day_parity = 'ЧС' OR day_parity = 'ЗН' OR day_parity = 'ЧС/ЗН')
+    DEFAULT 'ЧС/ЗН',
+  classroom_id            INTEGER REFERENCES classroom (room_id),
+  class_type_id           INTEGER REFERENCES class_type ("type_id"),
+  lec_subj_id             INTEGER REFERENCES "lecturer_subject" (id),
+  semester                INTEGER NOT NULL,
+  PRIMARY KEY (schedule_item_parity_id, semester),
+  UNIQUE (schedule_item_id, day_parity, classroom_id, semester),
+  UNIQUE (schedule_item_id, day_parity, lec_subj_id, semester),
+  UNIQUE (schedule_item_id, day_parity, class_type_id, semester),
+  UNIQUE (schedule_item_id, day_parity, semester),
+  FOREIGN KEY (schedule_item_id, semester) REFERENCES schedule_item (schedule_item_id, semester)
+) PARTITION BY LIST (semester);
+
+SELECT create_schedule_partitions(s.semester)
+FROM (SELECT DISTINCT semester FROM schedule_day_unpartitioned) s;
+
+-- The new parity table has no triggers yet, the occupancy tables already hold these classes
+INSERT INTO schedule_day (day_id, weak_id, group_id, schedule_version, semester)
+SELECT day_id, weak_id, group_id, schedule_version, semester
+FROM schedule_day_unpartitioned;
+
+INSERT INTO schedule_item (schedule_item_id, day_id, class_time_id, semester)
+SELECT schedule_item_id, day_id, class_time_id, semester
+FROM schedule_item_unpartitioned;
+
+INSERT INTO schedule_item_parity (schedule_item_parity_id, schedule_item_id, day_parity,
+                                  classroom_id, class_type_id, lec_subj_id, semester)
+SELECT schedule_item_parity_id, schedule_item_id, day_parity, classroom_id, class_type_id, lec_subj_id, semester
+FROM schedule_item_parity_unpartitioned;
+
+CREATE OR REPLACE VIEW schedule_class AS
+SELECT sip.schedule_item_parity_id,
+       sd.group_id,
+       sd.schedule_version,
+       sd.schedule_version = COALESCE(ps.schedule_version, 0) AS visible,
+       sd.weak_id,
+       si.class_time_id,
+       sip.day_parity,
+       sip.classroom_id,
+       l.lecturer_id,
+       ds.subject_id,
+       sip.class_type_id,
+       sip.semester
+FROM schedule_item_parity sip
+       INNER JOIN schedule_item si ON si.schedule_item_id = sip.schedule_item_id AND si.semester = sip.semester
+       INNER JOIN schedule_day sd ON sd.day_id = si.day_id AND sd.semester = si.semester
+       LEFT JOIN published_schedule ps ON ps.group_id = sd.group_id
+       LEFT JOIN lecturer_subject ls ON ls.id = sip.lec_subj_id
+       LEFT JOIN lecturer l ON l.lecturer_id = ls.lecturer_id AND l.last_name <> '[UNKNOWN]'
+       LEFT JOIN department_subject ds ON ds.id = ls.subject_on_department_id;
+
+-- The sequences would be dropped together with the tables owning them
+ALTER SEQUENCE schedule_day_day_id_seq OWNED BY schedule_day.day_id;
+ALTER SEQUENCE schedule_item_schedule_item_id_seq OWNED BY schedule_item.schedule_item_id;
+ALTER SEQUENCE schedule_item_parity_schedule_item_parity_id_seq OWNED BY schedule_item_parity.schedule_item_parity_id;
+
+DROP TABLE schedule_item_parity_unpartitioned;
+DROP TABLE schedule_item_unpartitioned;
+DROP TABLE schedule_day_unpartitioned;
+
+CREATE TRIGGER trigger_release_item_parity
+  BEFORE UPDATE OR DELETE
+  ON schedule_item_parity
+  FOR EACH ROW
+EXECUTE PROCEDURE release_item_parity();
+
+CREATE TRIGGER trigger_occupy_item_parity
+  AFTER INSERT OR UPDATE
+  ON schedule_item_parity
+  FOR EACH ROW
+EXECUTE PROCEDURE occupy_item_parity();
+
+COMMIT;
+
+ANALYZE schedule_day;
+ANALYZE schedule_item;
+ANALYZE schedule_item_parity;
@@ -1,3 +1,20 @@
+DROP TRIGGER IF EXISTS trigger_publish_occupancy ON published_schedule;
+DROP TRIGGER IF EXISTS trigger_publish_occupancy_insert ON published_schedule;
+DROP TRIGGER IF EXISTS trigger_publish_occupancy_update ON published_schedule;
+DROP TRIGGER IF EXISTS trigger_publish_occupancy_delete ON published_schedule;
+DROP TRIGGER IF EXISTS trigger_occupy_item_parity ON schedule_item_parity;
+DROP TRIGGER IF EXISTS trigger_release_item_parity ON schedule_item_parity;
+DROP FUNCTION IF EXISTS publish_occupancy;
+DROP FUNCTION IF EXISTS occupy_item_parity;
+DROP FUNCTION IF EXISTS release_item_parity;
+DROP FUNCTION IF EXISTS occupy(c schedule_class);
+DROP FUNCTION IF EXISTS release(c schedule_class);
+DROP FUNCTION IF EXISTS week_parities(day_parity CHAR);
+DROP FUNCTION IF EXISTS create_schedule_partitions(_semester INTEGER);
+DROP FUNCTION IF EXISTS drop_schedule_partitions(_semester INTEGER);
+DROP VIEW IF EXISTS schedule_class;
+DROP TABLE IF EXISTS room_occupancy CASCADE;
+DROP TABLE IF EXISTS lecturer_occupancy CASCADE;
 DROP TRIGGER IF EXISTS tirgger_upd_classtime ON class_time;
 DROP FUNCTION IF EXISTS is_class_time_valid(time_id integer, s TIME, e TIME);
 DROP FUNCTION IF EXISTS classtime_upd;
@@ -11,6 +28,9 @@ DROP TABLE IF EXISTS department_to_specialization CASCADE;
 DROP TABLE IF EXISTS calendar CASCADE;
 DROP TABLE IF EXISTS schedule_item CASCADE;
 DROP TABLE IF EXISTS schedule_day CASCADE;
+DROP TABLE IF EXISTS published_schedule CASCADE;
+DROP SEQUENCE IF EXISTS schedule_version_seq;
+DROP FUNCTION IF EXISTS semester_of(start_year INTEGER, term_no INTEGER);
 DROP TABLE IF EXISTS day_of_weak CASCADE;
 DROP TABLE IF EXISTS study_group CASCADE;
 DROP TABLE IF EXISTS department_subject CASCADE;